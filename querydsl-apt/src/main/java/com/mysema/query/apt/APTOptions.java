@@ -35,6 +35,8 @@ public final class APTOptions {
 
     public static final String QUERYDSL_ENTITY_ACCESSORS = "querydsl.entityAccessors";
 
+    public static final String QUERYDSL_LAZY_INITIALIZATION = "querydsl.lazyInitialization";
+
     public static final String QUERYDSL_EXCLUDED_PACKAGES = "querydsl.excludedPackages";
 
     public static final String QUERYDSL_EXCLUDED_CLASSES = "querydsl.excludedClasses";
@@ -17,6 +17,7 @@ import static com.mysema.query.apt.APTOptions.QUERYDSL_CREATE_DEFAULT_VARIABLE;
 import static com.mysema.query.apt.APTOptions.QUERYDSL_ENTITY_ACCESSORS;
 import static com.mysema.query.apt.APTOptions.QUERYDSL_EXCLUDED_CLASSES;
 import static com.mysema.query.apt.APTOptions.QUERYDSL_EXCLUDED_PACKAGES;
+import static com.mysema.query.apt.APTOptions.QUERYDSL_LAZY_INITIALIZATION;
 import static com.mysema.query.apt.APTOptions.QUERYDSL_LIST_ACCESSORS;
 import static com.mysema.query.apt.APTOptions.QUERYDSL_MAP_ACCESSORS;
 import static com.mysema.query.apt.APTOptions.QUERYDSL_PACKAGE_SUFFIX;
@@ -139,6 +140,7 @@ public class DefaultConfiguration implements Configuration {
         boolean listAccessors = false;
         boolean mapAccessors = false;
         boolean createDefaultVariable = true;
+        boolean lazyInitialization = false;
         
         if (options.containsKey(QUERYDSL_ENTITY_ACCESSORS)) {
             entityAccessors = Boolean.valueOf(options.get(QUERYDSL_ENTITY_ACCESSORS));
@@ -152,6 +154,9 @@ public class DefaultConfiguration implements Configuration {
         if (options.containsKey(QUERYDSL_CREATE_DEFAULT_VARIABLE)) {
             createDefaultVariable = Boolean.valueOf(options.get(QUERYDSL_CREATE_DEFAULT_VARIABLE));
         }
+        if (options.containsKey(QUERYDSL_LAZY_INITIALIZATION)) {
+            lazyInitialization = Boolean.valueOf(options.get(QUERYDSL_LAZY_INITIALIZATION));
+        }
         if (options.containsKey(QUERYDSL_PACKAGE_SUFFIX)) {
             module.bind(CodegenModule.PACKAGE_SUFFIX, options.get(QUERYDSL_PACKAGE_SUFFIX));
         }
@@ -184,7 +189,7 @@ public class DefaultConfiguration implements Configuration {
         }
 
         defaultSerializerConfig = new SimpleSerializerConfig(entityAccessors, listAccessors, 
-                mapAccessors, createDefaultVariable);
+                mapAccessors, createDefaultVariable, lazyInitialization);
 
     }
 
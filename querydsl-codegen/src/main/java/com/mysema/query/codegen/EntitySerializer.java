@@ -222,7 +222,10 @@ public class EntitySerializer implements Serializer{
         if (field.isInherited()) {
             writer.line("// inherited");
         }
-        if (config.useEntityAccessors()) {
+        if (config.useLazyInitialization()) {
+            lazyField(field, queryType, NEW + writer.getRawName(queryType) + 
+                    "(forProperty(\"" + field.getName() + "\"))", writer);
+        } else if (config.useEntityAccessors()) {
             writer.protectedField(queryType, field.getEscapedName());
         } else {
             writer.publicFinal(queryType, field.getEscapedName());
@@ -252,7 +255,9 @@ public class EntitySerializer implements Serializer{
         }
 
         for (Property field : model.getProperties()) {
-            if (field.getType().getCategory() == TypeCategory.ENTITY) {
+            if (isLazy(field, config)) {
+                continue;
+            } else if (field.getType().getCategory() == TypeCategory.ENTITY) {
                 initEntityField(writer, config, model, field);
 
             } else if (field.isInherited() && superType != null && superType.getEntityType().hasEntityFields()) {
@@ -512,8 +517,59 @@ public class EntitySerializer implements Serializer{
         }          
     }
 
-    protected void listAccessor(EntityType model, Property field, CodeWriter writer) throws IOException {
+    protected boolean isLazy(Property property, SerializerConfig config) {
+        if (!config.useLazyInitialization()) {
+            return false;
+        }
+        TypeCategory category = property.getType().getCategory();
+        if (typeMappings.isRegistered(property.getType())
+                && category != TypeCategory.CUSTOM
+                && category != TypeCategory.ENTITY) {
+            return false;
+        }
+        switch (category) {
+            case ENTITY:
+            case COLLECTION:
+            case SET:
+            case LIST:
+            case MAP: return true;
+            default: return false;
+        }
+    }
+
+    /**
+     * Serialize a private volatile field with a thread-safe accessor which creates the value 
+     * on first access
+     * 
+     * @param field
+     * @param type
+     * @param value
+     * @param writer
+     * @throws IOException
+     */
+    protected void lazyField(Property field, Type type, String value, 
+            CodeWriter writer) throws IOException {
         String escapedName = field.getEscapedName();
+        String typeName = writer.getGenericName(false, type);
+        writer.line("private volatile ", typeName, " ", escapedName, SEMICOLON);
+        writer.nl();
+        writer.beginPublicMethod(type, escapedName);
+        writer.line(typeName, " rv = this.", escapedName, SEMICOLON);
+        writer.line("if (rv == null) {");
+        writer.line("    synchronized (this) {");
+        writer.line("        rv = this.", escapedName, SEMICOLON);
+        writer.line("        if (rv == null) {");
+        writer.line("            this.", escapedName, " = rv = ", value, SEMICOLON);
+        writer.line("        }");
+        writer.line("    }");
+        writer.line("}");
+        writer.line(RETURN, "rv", SEMICOLON);
+        writer.end();
+    }
+
+    protected void listAccessor(EntityType model, Property field, SerializerConfig config, 
+            CodeWriter writer) throws IOException {
+        String escapedName = field.getEscapedName() + (isLazy(field, config) ? "()" : EMPTY);
         Type queryType = typeMappings.getPathType(field.getParameter(0), model, false);
 
         writer.beginPublicMethod(queryType, escapedName, new Parameter("index", Types.INT));
@@ -524,8 +580,9 @@ public class EntitySerializer implements Serializer{
         writer.line(RETURN + escapedName +".get(index);").end();
     }
 
-    protected void mapAccessor(EntityType model, Property field, CodeWriter writer) throws IOException {
-        String escapedName = field.getEscapedName();
+    protected void mapAccessor(EntityType model, Property field, SerializerConfig config, 
+            CodeWriter writer) throws IOException {
+        String escapedName = field.getEscapedName() + (isLazy(field, config) ? "()" : EMPTY);
         Type queryType = typeMappings.getPathType(field.getParameter(1), model, false);
 
         writer.beginPublicMethod(queryType, escapedName, new Parameter("key", field.getParameter(0)));
@@ -587,10 +644,11 @@ public class EntitySerializer implements Serializer{
         for (Property property : model.getProperties()) {
             TypeCategory category = property.getType().getCategory();
             if (category == TypeCategory.MAP && config.useMapAccessors()) {
-                mapAccessor(model, property, writer);
+                mapAccessor(model, property, config, writer);
             } else if (category == TypeCategory.LIST && config.useListAccessors()) {
-                listAccessor(model, property, writer);
-            } else if (category == TypeCategory.ENTITY && config.useEntityAccessors()) {
+                listAccessor(model, property, config, writer);
+            } else if (category == TypeCategory.ENTITY && config.useEntityAccessors() 
+                    && !config.useLazyInitialization()) {
                 entityAccessor(model, property, writer);
             }
         }
@@ -625,6 +683,24 @@ public class EntitySerializer implements Serializer{
         }
     }
 
+    private void collectionField(EntityType model, Property field, SerializerConfig config, Type type, 
+            CodeWriter writer, String factoryMethod, String... args) throws IOException {
+        if (isLazy(field, config)) {
+            StringBuilder value = new StringBuilder();
+            value.append(factoryMethod + "(\"" + field.getName() + QUOTE);
+            for (String arg : args) {
+                value.append(COMMA + arg);
+            }
+            value.append(")");
+            if (field.isInherited()) {
+                writer.line("//inherited");
+            }
+            lazyField(field, type, value.toString(), writer);
+        } else {
+            serialize(model, field, type, writer, factoryMethod, args);
+        }
+    }
+
     private void customField(EntityType model, Property field, SerializerConfig config, 
             CodeWriter writer) throws IOException {
         Type queryType = typeMappings.getPathType(field.getType(), model, false);
@@ -712,7 +788,8 @@ public class EntitySerializer implements Serializer{
                 localRawName = writer.getRawName(property.getParameter(0));
                 queryType = typeMappings.getPathType(property.getParameter(0), model, true);
 
-                serialize(model, property, new ClassType(CollectionPath.class, getRaw(property.getParameter(0)), genericQueryType),
+                collectionField(model, property, config, 
+                        new ClassType(CollectionPath.class, getRaw(property.getParameter(0)), genericQueryType),
                         writer, "this.<"+genericKey + COMMA + writer.getGenericName(true, genericQueryType) + ">createCollection",
                         localRawName + DOT_CLASS, writer.getRawName(queryType) + DOT_CLASS);
                 break;
@@ -723,7 +800,8 @@ public class EntitySerializer implements Serializer{
                 localRawName = writer.getRawName(property.getParameter(0));
                 queryType = typeMappings.getPathType(property.getParameter(0), model, true);
 
-                serialize(model, property, new ClassType(SetPath.class, getRaw(property.getParameter(0)), genericQueryType),
+                collectionField(model, property, config, 
+                        new ClassType(SetPath.class, getRaw(property.getParameter(0)), genericQueryType),
                         writer, "this.<"+genericKey + COMMA + writer.getGenericName(true, genericQueryType) + ">createSet",
                         localRawName + DOT_CLASS, writer.getRawName(queryType) + DOT_CLASS);
                 break;
@@ -734,7 +812,8 @@ public class EntitySerializer implements Serializer{
                 localRawName = writer.getRawName(property.getParameter(0));
                 queryType = typeMappings.getPathType(property.getParameter(0), model, true);
 
-                serialize(model, property, new ClassType(ListPath.class, getRaw(property.getParameter(0)), genericQueryType),
+                collectionField(model, property, config, 
+                        new ClassType(ListPath.class, getRaw(property.getParameter(0)), genericQueryType),
                         writer, "this.<"+genericKey + COMMA + writer.getGenericName(true, genericQueryType) + ">createList",
                         localRawName + DOT_CLASS, writer.getRawName(queryType) + DOT_CLASS);
                 break;
@@ -747,7 +826,7 @@ public class EntitySerializer implements Serializer{
                 String valueType = writer.getRawName(property.getParameter(1));
                 queryType = typeMappings.getPathType(property.getParameter(1), model, true);
 
-                serialize(model, property, new ClassType(MapPath.class, getRaw(property.getParameter(0)), 
+                collectionField(model, property, config, new ClassType(MapPath.class, getRaw(property.getParameter(0)), 
                         getRaw(property.getParameter(1)), genericQueryType),
                         writer, "this.<" + genericKey + COMMA + genericValue + COMMA +
                             writer.getGenericName(true, genericQueryType) + ">createMap",
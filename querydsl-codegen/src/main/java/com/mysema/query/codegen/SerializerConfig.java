@@ -41,4 +41,9 @@ public interface SerializerConfig {
      */
     boolean createDefaultVariable();
 
+    /**
+     * @return if entity and collection valued paths are initialized lazily via accessors
+     */
+    boolean useLazyInitialization();
+
 }
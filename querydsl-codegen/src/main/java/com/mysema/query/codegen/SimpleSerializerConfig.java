@@ -30,20 +30,32 @@ public final class SimpleSerializerConfig implements SerializerConfig{
                 annotation.entityAccessors(),
                 annotation.listAccessors(),
                 annotation.mapAccessors(),
-                annotation.createDefaultVariable());
+                annotation.createDefaultVariable(),
+                annotation.lazyInitialization());
     }
 
-    private final boolean entityAccessors, listAccessors, mapAccessors, createDefaultVariable;
+    private final boolean entityAccessors, listAccessors, mapAccessors, createDefaultVariable, 
+        lazyInitialization;
 
     public SimpleSerializerConfig(
             boolean entityAccessors,
             boolean listAccessors,
             boolean mapAccessors,
             boolean createDefaultVariable) {
+        this(entityAccessors, listAccessors, mapAccessors, createDefaultVariable, false);
+    }
+
+    public SimpleSerializerConfig(
+            boolean entityAccessors,
+            boolean listAccessors,
+            boolean mapAccessors,
+            boolean createDefaultVariable,
+            boolean lazyInitialization) {
         this.entityAccessors = entityAccessors;
         this.listAccessors = listAccessors;
         this.mapAccessors = mapAccessors;
         this.createDefaultVariable = createDefaultVariable;
+        this.lazyInitialization = lazyInitialization;
     }
 
     @Override
@@ -66,4 +78,9 @@ public final class SimpleSerializerConfig implements SerializerConfig{
         return createDefaultVariable;
     }
 
+    @Override
+    public boolean useLazyInitialization() {
+        return lazyInitialization;
+    }
+
 }
@@ -13,6 +13,7 @@
  */
 package com.mysema.query.codegen;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -22,6 +23,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -184,4 +186,25 @@ public class EntitySerializerTest {
         assertTrue(writer.toString().contains("return Entity.test(this);"));
     }
 
+    @Test
+    public void Lazy_Initialization() throws IOException {
+        SimpleType type = new SimpleType(TypeCategory.ENTITY, "Entity", "", "Entity",false,false);
+        EntityType entityType = new EntityType(type);
+        entityType.addProperty(new Property(entityType, "s", new ClassType(TypeCategory.STRING, String.class)));
+        entityType.addProperty(new Property(entityType, "parent", entityType));
+        entityType.addProperty(new Property(entityType, "children", new ClassType(TypeCategory.SET, Set.class, entityType)));
+        typeMappings.register(entityType, queryTypeFactory.create(entityType));
+
+        SerializerConfig config = new SimpleSerializerConfig(false, false, false, true, true);
+        serializer.serialize(entityType, config, new JavaWriter(writer));
+        String str = writer.toString();
+        assertTrue(str.contains("StringPath s = createString(\"s\");"));
+        assertTrue(str.contains("private volatile QEntity parent;"));
+        assertTrue(str.contains("public QEntity parent() {"));
+        assertTrue(str.contains("this.parent = rv = new QEntity(forProperty(\"parent\"));"));
+        assertTrue(str.contains("private volatile SetPath<"));
+        assertTrue(str.contains("> children() {"));
+        assertFalse(str.contains("this.parent = inits"));
+    }
+
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.codegen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+
+import org.junit.Test;
+
+import com.mysema.codegen.JavaWriter;
+import com.mysema.codegen.SimpleCompiler;
+import com.mysema.codegen.model.ClassType;
+import com.mysema.codegen.model.SimpleType;
+import com.mysema.codegen.model.TypeCategory;
+
+/**
+ * LargeModelLoadTest generates, compiles and loads eagerly and lazily initialized
+ * query types for a domain model with cyclic references
+ * 
+ * <p>The default model is kept small to keep the build fast, use the largemodel.entities 
+ * system property to run it on a larger model.</p>
+ * 
+ * @author tiwe
+ *
+ */
+public class LargeModelLoadTest {
+
+    private static final int ENTITIES = Integer.getInteger("largemodel.entities", 20);
+
+    private static final int REFERENCES = 3;
+
+    private static final String PACKAGE = "largemodel";
+
+    private final QueryTypeFactory queryTypeFactory = new QueryTypeFactoryImpl("Q", "", "");
+
+    @Test
+    public void Eager_And_Lazy() throws Exception {
+        List<EntityType> model = createModel();
+        File eager = generate(model, SimpleSerializerConfig.DEFAULT, 
+                new File("target/largemodel/eager"));
+        File lazy = generate(model, new SimpleSerializerConfig(false, false, false, true, true), 
+                new File("target/largemodel/lazy"));
+
+        load(eager, false);
+        load(lazy, true);
+    }
+
+    private List<EntityType> createModel() {
+        List<EntityType> types = new ArrayList<EntityType>(ENTITIES);
+        for (int i = 0; i < ENTITIES; i++) {
+            String name = "Entity" + i;
+            types.add(new EntityType(new SimpleType(TypeCategory.ENTITY, PACKAGE + "." + name, 
+                    PACKAGE, name, false, false)));
+        }
+        for (int i = 0; i < ENTITIES; i++) {
+            EntityType type = types.get(i);
+            type.addProperty(new Property(type, "name", new ClassType(TypeCategory.STRING, String.class)));
+            type.addProperty(new Property(type, "code", new ClassType(TypeCategory.NUMERIC, Integer.class)));
+            for (int j = 1; j <= REFERENCES; j++) {
+                EntityType target = types.get((i + j) % ENTITIES);
+                type.addProperty(new Property(type, "ref" + j, target));
+                type.addProperty(new Property(type, "refs" + j, 
+                        new ClassType(TypeCategory.SET, Set.class, target)));
+            }
+        }
+        return types;
+    }
+
+    private File generate(List<EntityType> model, SerializerConfig config, 
+            File targetFolder) throws IOException {
+        TypeMappings typeMappings = new JavaTypeMappings();
+        for (EntityType type : model) {
+            typeMappings.register(type, queryTypeFactory.create(type));
+        }
+        EntitySerializer serializer = new EntitySerializer(typeMappings, Collections.<String>emptySet());
+        File packageFolder = new File(targetFolder, PACKAGE);
+        packageFolder.mkdirs();
+
+        List<String> sources = new ArrayList<String>();
+        for (EntityType type : model) {
+            File domainFile = new File(packageFolder, type.getSimpleName() + ".java");
+            Writer writer = new FileWriter(domainFile);
+            try {
+                writer.write("package " + PACKAGE + ";\npublic class " + type.getSimpleName() + " {}\n");
+            } finally {
+                writer.close();
+            }
+            File queryFile = new File(packageFolder, "Q" + type.getSimpleName() + ".java");
+            writer = new FileWriter(queryFile);
+            try {
+                serializer.serialize(type, config, new JavaWriter(writer));
+            } finally {
+                writer.close();
+            }
+            sources.add(domainFile.getPath());
+            sources.add(queryFile.getPath());
+        }
+
+        JavaCompiler compiler = new SimpleCompiler();
+        int result = compiler.run(null, System.out, System.err, sources.toArray(new String[sources.size()]));
+        assertEquals("Compilation failed", 0, result);
+        return targetFolder;
+    }
+
+    private void load(File folder, boolean lazy) throws Exception {
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{folder.toURI().toURL()}, 
+                getClass().getClassLoader());
+        List<Object> roots = new ArrayList<Object>(ENTITIES);
+        for (int i = 0; i < ENTITIES; i++) {
+            Class<?> cl = Class.forName(PACKAGE + ".QEntity" + i, true, classLoader);
+            Object root = cl.getField("entity" + i).get(null);
+            assertNotNull(root);
+            roots.add(root);
+        }
+
+        if (lazy) {
+            // accessors return the same instance on repeated invocations
+            Object root = roots.get(0);
+            Method ref = root.getClass().getMethod("ref1");
+            assertSame(ref.invoke(root), ref.invoke(root));
+        }
+    }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Objects;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.OrderSpecifier;
+import com.mysema.query.types.ParamExpression;
+import com.mysema.query.types.Predicate;
+
+/**
+ * BoundQueryMetadata is a QueryMetadata implementation for a single execution of a 
+ * {@link PreparedQuery}. 
+ * 
+ * <p>The sources, filters, grouping and ordering are taken from the prepared query and can't be 
+ * modified. The projection, parameter bindings, modifiers and the distinct and unique flags are 
+ * local to the instance. {@link #clone()} returns a modifiable copy, which is no longer bound to 
+ * the prepared query.</p>
+ * 
+ * @author tiwe
+ *
+ */
+public final class BoundQueryMetadata implements QueryMetadata {
+
+    private static final long serialVersionUID = 6815293845412279873L;
+
+    private final PreparedQuery preparedQuery;
+
+    private final QueryMetadata template;
+
+    private List<Expression<?>> projection = Collections.emptyList();
+
+    @Nullable
+    private Map<ParamExpression<?>,Object> params;
+
+    private QueryModifiers modifiers;
+
+    private boolean distinct, unique;
+
+    @Nullable
+    private List<JoinExpression> joins;
+
+    BoundQueryMetadata(PreparedQuery preparedQuery) {
+        this.preparedQuery = preparedQuery;
+        this.template = preparedQuery.getMetadata();
+        this.modifiers = template.getModifiers();
+        this.distinct = template.isDistinct();
+        this.unique = template.isUnique();
+    }
+
+    /**
+     * Get the PreparedQuery this metadata is bound to
+     * 
+     * @return
+     */
+    public PreparedQuery getPreparedQuery() {
+        return preparedQuery;
+    }
+
+    /**
+     * Create a key for the cached forms of the prepared query, which reflects the state local to 
+     * this instance, except the modifiers and parameter bindings.
+     * 
+     * @param context backend specific context of the cached form
+     * @return
+     */
+    public Object getCacheKey(Object... context) {
+        return Arrays.<Object>asList(Arrays.asList(context), new ArrayList<Expression<?>>(projection), 
+                distinct, unique);
+    }
+
+    private UnsupportedOperationException unsupported() {
+        return new UnsupportedOperationException("Only the projection, modifiers and parameters " +
+        "of a prepared query can be modified");
+    }
+
+    @Override
+    public void addGroupBy(Expression<?>... o) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addHaving(Predicate... o) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addJoin(JoinType joinType, Expression<?> expr) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addJoin(JoinExpression... join) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addJoinCondition(Predicate o) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addOrderBy(OrderSpecifier<?>... o) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addProjection(Expression<?>... o) {
+        if (projection.isEmpty()) {
+            projection = new ArrayList<Expression<?>>(o.length);
+        }
+        projection.addAll(Arrays.asList(o));
+    }
+
+    @Override
+    public void addWhere(Predicate... o) {
+        throw unsupported();
+    }
+
+    @Override
+    public void addFlag(QueryFlag flag) {
+        throw unsupported();
+    }
+
+    @Override
+    public void clearOrderBy() {
+        throw unsupported();
+    }
+
+    @Override
+    public void clearProjection() {
+        projection = Collections.emptyList();
+    }
+
+    @Override
+    public void clearWhere() {
+        throw unsupported();
+    }
+
+    /**
+     * Create a modifiable copy of this metadata, which is not bound to the prepared query
+     * 
+     * @return
+     */
+    @Override
+    public QueryMetadata clone() {
+        DefaultQueryMetadata copy = PreparedQuery.copy(this);
+        copy.addProjection(projection.toArray(new Expression[projection.size()]));
+        return copy;
+    }
+
+    @Override
+    public List<? extends Expression<?>> getGroupBy() {
+        return template.getGroupBy();
+    }
+
+    @Override
+    public Predicate getHaving() {
+        return template.getHaving();
+    }
+
+    @Override
+    public List<JoinExpression> getJoins() {
+        // join expressions are mutable, so the shared ones are copied once per instance
+        if (joins == null) {
+            List<JoinExpression> shared = template.getJoins();
+            List<JoinExpression> copies = new ArrayList<JoinExpression>(shared.size());
+            for (JoinExpression join : shared) {
+                copies.add(PreparedQuery.copy(join));
+            }
+            joins = Collections.unmodifiableList(copies);
+        }
+        return joins;
+    }
+
+    @Override
+    public QueryModifiers getModifiers() {
+        return modifiers;
+    }
+
+    @Override
+    public List<OrderSpecifier<?>> getOrderBy() {
+        return template.getOrderBy();
+    }
+
+    @Override
+    public List<? extends Expression<?>> getProjection() {
+        return Collections.unmodifiableList(projection);
+    }
+
+    @Override
+    public Map<ParamExpression<?>, Object> getParams() {
+        if (params != null) {
+            return Collections.unmodifiableMap(params);
+        } else {
+            return template.getParams();
+        }
+    }
+
+    @Override
+    public Predicate getWhere() {
+        return template.getWhere();
+    }
+
+    @Override
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+    @Override
+    public boolean isUnique() {
+        return unique;
+    }
+
+    @Override
+    public void reset() {
+        clearProjection();
+        params = null;
+        modifiers = template.getModifiers();
+    }
+
+    @Override
+    public void setDistinct(boolean distinct) {
+        this.distinct = distinct;
+    }
+
+    @Override
+    public void setLimit(@Nullable Long limit) {
+        if (modifiers == null || modifiers.getOffset() == null) {
+            modifiers = QueryModifiers.limit(limit);
+        } else {
+            modifiers = new QueryModifiers(limit, modifiers.getOffset());
+        }
+    }
+
+    @Override
+    public void setModifiers(QueryModifiers restriction) {
+        this.modifiers = restriction;
+    }
+
+    @Override
+    public void setOffset(@Nullable Long offset) {
+        if (modifiers == null || modifiers.getLimit() == null) {
+            modifiers = QueryModifiers.offset(offset);
+        } else {
+            modifiers = new QueryModifiers(modifiers.getLimit(), offset);
+        }
+    }
+
+    @Override
+    public void setUnique(boolean unique) {
+        this.unique = unique;
+    }
+
+    @Override
+    public <T> void setParam(ParamExpression<T> param, T value) {
+        if (params == null) {
+            params = new HashMap<ParamExpression<?>,Object>(template.getParams());
+        }
+        params.put(param, value);
+    }
+
+    @Override
+    public boolean hasFlag(QueryFlag flag) {
+        return template.hasFlag(flag);
+    }
+
+    @Override
+    public Set<QueryFlag> getFlags() {
+        return Collections.unmodifiableSet(template.getFlags());
+    }
+
+    @Override
+    public void setValidate(boolean v) {
+        // the expressions of the prepared query have already been validated
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof QueryMetadata) {
+            QueryMetadata q = (QueryMetadata)o;
+            return q.getFlags().equals(getFlags())
+                && q.getGroupBy().equals(getGroupBy())
+                && Objects.equal(q.getHaving(), getHaving())
+                && q.isDistinct() == distinct
+                && q.isUnique() == unique
+                && q.getJoins().equals(getJoins())
+                && Objects.equal(q.getModifiers(), modifiers)
+                && q.getOrderBy().equals(getOrderBy())
+                && q.getParams().equals(getParams())
+                && q.getProjection().equals(projection)
+                && Objects.equal(q.getWhere(), getWhere());
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(template.getJoins(), projection, template.getWhere());
+    }
+
+}
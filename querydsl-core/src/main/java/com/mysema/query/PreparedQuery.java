@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.OrderSpecifier;
+import com.mysema.query.types.ParamExpression;
+
+/**
+ * PreparedQuery is an immutable snapshot of the sources, filters, grouping and ordering of a query.
+ * It can be shared between threads and executed multiple times with different parameter bindings.
+ * 
+ * <p>Projection independent parts of the query are copied and validated once at construction time. 
+ * Executions use lightweight {@link BoundQueryMetadata} instances created via {@link #bind()}, which 
+ * don't clone or validate the expressions of the prepared query again.</p>
+ * 
+ * <p>Usage :</p>
+ * 
+ * <pre>
+ * Param&lt;String&gt; name = new Param&lt;String&gt;(String.class, "name");
+ * PreparedQuery prepared = new PreparedQuery(new JPQLSubQuery().from(cat).where(cat.name.eq(name)).getMetadata());
+ * ...
+ * List&lt;Cat&gt; cats = new JPAQuery(entityManager, prepared.bind()).set(name, "Kitty").list(cat);
+ * </pre>
+ * 
+ * <p>Backends can cache the serialized or compiled form of the query in the PreparedQuery
+ * instance via {@link #cacheForm(Object, Object)}.</p>
+ * 
+ * @author tiwe
+ *
+ */
+public final class PreparedQuery implements Serializable {
+    
+    private static final long serialVersionUID = -4592958376434287953L;
+
+    /**
+     * Maximum amount of cached forms per prepared query
+     */
+    public static final int MAX_CACHED_FORMS = 64;
+
+    private final QueryMetadata metadata;
+
+    private final transient ConcurrentMap<Object, Object> cache = new ConcurrentHashMap<Object, Object>();
+
+    /**
+     * Create a new PreparedQuery from the given metadata. The projection of the given metadata 
+     * is not included.
+     * 
+     * @param metadata
+     * @throws IllegalArgumentException if the metadata refers to undeclared paths
+     */
+    public PreparedQuery(QueryMetadata metadata) {
+        this.metadata = copy(metadata);
+    }
+
+    @SuppressWarnings("unchecked")
+    static DefaultQueryMetadata copy(QueryMetadata metadata) {
+        DefaultQueryMetadata copy = new DefaultQueryMetadata();
+        for (JoinExpression join : metadata.getJoins()) {
+            JoinExpression joinCopy = new JoinExpression(join.getType(), join.getTarget());
+            for (JoinFlag flag : join.getFlags()) {
+                joinCopy.addFlag(flag);
+            }
+            copy.addJoin(joinCopy);
+            if (join.getCondition() != null) {
+                copy.addJoinCondition(join.getCondition());
+            }
+        }
+        copy.addWhere(metadata.getWhere());
+        copy.addGroupBy(metadata.getGroupBy().toArray(new Expression[metadata.getGroupBy().size()]));
+        copy.addHaving(metadata.getHaving());
+        copy.addOrderBy(metadata.getOrderBy().toArray(new OrderSpecifier[metadata.getOrderBy().size()]));
+        for (QueryFlag flag : metadata.getFlags()) {
+            copy.addFlag(flag);
+        }
+        for (Map.Entry<ParamExpression<?>, Object> entry : metadata.getParams().entrySet()) {
+            copy.setParam((ParamExpression<Object>)entry.getKey(), entry.getValue());
+        }
+        copy.setModifiers(metadata.getModifiers());
+        copy.setDistinct(metadata.isDistinct());
+        copy.setUnique(metadata.isUnique());
+        return copy;
+    }
+
+    static JoinExpression copy(JoinExpression join) {
+        JoinExpression copy = new JoinExpression(join.getType(), join.getTarget());
+        if (join.getCondition() != null) {
+            copy.addCondition(join.getCondition());
+        }
+        for (JoinFlag flag : join.getFlags()) {
+            copy.addFlag(flag);
+        }
+        return copy;
+    }
+
+    /**
+     * Create a new QueryMetadata instance for a single execution of this query
+     * 
+     * @return
+     */
+    public BoundQueryMetadata bind() {
+        return new BoundQueryMetadata(this);
+    }
+
+    /**
+     * Get the cached form for the given key
+     * 
+     * @param <T>
+     * @param key
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public <T> T getCachedForm(Object key) {
+        return (T) cache.get(key);
+    }
+
+    /**
+     * Cache the given form under the given key, unless a form has already been cached for it.
+     * 
+     * @param <T>
+     * @param key
+     * @param form
+     * @return the form cached for the key
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T cacheForm(Object key, T form) {
+        if (cache.size() < MAX_CACHED_FORMS) {
+            Object existing = cache.putIfAbsent(key, form);
+            if (existing != null) {
+                return (T) existing;
+            }
+        }
+        return form;
+    }
+
+    QueryMetadata getMetadata() {
+        return metadata;
+    }
+    
+    private Object readResolve() {
+        return new PreparedQuery(metadata);
+    }
+
+}
@@ -60,4 +60,11 @@ public @interface Config {
      */
     boolean createDefaultVariable() default true;
 
+    /**
+     * Initialize entity and collection valued paths lazily via accessors
+     *
+     * @return
+     */
+    boolean lazyInitialization() default false;
+
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.group;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.Projectable;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.ResultTransformer;
+import com.mysema.query.types.Expression;
+
+/**
+ * Base class for GroupBy result transformers. Collects the group definitions and the 
+ * projection which is used to iterate the rows to be grouped. 
+ * 
+ * @author tiwe
+ *
+ * @param <K> key type
+ * @param <T> transformation target type
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public abstract class AbstractGroupByTransformer<K, T> implements ResultTransformer<T> {
+
+    protected final List<GroupExpression<?, ?>> groupExpressions = new ArrayList<GroupExpression<?, ?>>();
+    
+    protected final List<QPair<?,?>> maps = new ArrayList<QPair<?,?>>();
+        
+    protected final Expression<?>[] expressions;
+    
+    /**
+     * projection with aggregate functions or null, if not all group expressions can be 
+     * evaluated in the backend  
+     */
+    @Nullable
+    protected final Expression<?>[] aggregations;
+    
+    /**
+     * true, if the grouping is to be executed by the backend, when possible
+     */
+    protected final boolean pushDown;
+    
+    AbstractGroupByTransformer(Expression<K> key, Expression<?>... expressions) {
+        this(false, key, expressions);
+    }
+    
+    AbstractGroupByTransformer(boolean pushDown, Expression<K> key, Expression<?>... expressions) {
+        this.pushDown = pushDown;
+        List<Expression<?>> projection = new ArrayList<Expression<?>>(expressions.length + 1);        
+        groupExpressions.add(new GOne<K>(key));
+        projection.add(key);
+        
+        for (Expression<?> expr : expressions) {
+            if (expr instanceof GroupExpression<?,?>) {
+                GroupExpression<?,?> groupExpr = (GroupExpression<?,?>)expr;
+                groupExpressions.add(groupExpr);
+                projection.add(groupExpr.getExpression());
+                if (groupExpr instanceof GMap) {
+                    maps.add((QPair<?, ?>) groupExpr.getExpression());
+                }                
+            } else {
+                groupExpressions.add(new GOne(expr));
+                projection.add(expr);
+            }
+        }
+        
+        this.expressions = projection.toArray(new Expression[projection.size()]);
+        this.aggregations = createAggregations();
+    }
+    
+    @Nullable
+    private Expression<?>[] createAggregations() {
+        Expression<?> key = expressions[0];
+        Expression<?>[] projection = new Expression[expressions.length];
+        projection[0] = key;
+        boolean aggregates = false;
+        for (int i = 1; i < projection.length; i++) {
+            GroupExpression<?,?> groupExpr = groupExpressions.get(i);
+            if (groupExpr instanceof GAggregate) {
+                projection[i] = ((GAggregate<?,?>)groupExpr).getAggregation();
+                aggregates = true;
+            } else if (groupExpr instanceof GOne && groupExpr.getExpression().equals(key)) {
+                projection[i] = key;
+            } else {
+                return null;
+            }
+        }
+        return aggregates ? projection : null;
+    }
+    
+    /**
+     * Get whether the grouping is to be executed by the backend
+     * 
+     * @param projectable
+     * @return
+     * @throws IllegalArgumentException if push down has been requested for a query with 
+     *         modifiers, ordering or grouping
+     */
+    protected boolean isAggregated(Projectable projectable) {
+        if (pushDown && aggregations != null && projectable instanceof AggregatingProjectable) {
+            QueryMetadata metadata = ((AggregatingProjectable)projectable).getMetadata();
+            if (metadata.getModifiers().isRestricting() || !metadata.getOrderBy().isEmpty()
+                    || !metadata.getGroupBy().isEmpty() || metadata.getHaving() != null) {
+                throw new IllegalArgumentException("Grouping can't be pushed down to queries " +
+                        "with limit, offset, order by, group by or having");
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+    
+    /**
+     * Iterate the rows to be grouped
+     * 
+     * @param projectable
+     * @param aggregated true, if grouping and aggregation is to be executed by the backend 
+     *        on a grouped copy of the query
+     * @return
+     */
+    protected CloseableIterator<Object[]> iterate(Projectable projectable, boolean aggregated) {
+        if (aggregated) {
+            AggregatingProjectable query = ((AggregatingProjectable)projectable).clone();
+            query.getMetadata().addGroupBy(expressions[0]);
+            return query.iterate(aggregations);
+        } else {
+            return projectable.iterate(expressions);
+        }
+    }
+    
+    /**
+     * Create a new empty group for the group definitions of this transformer
+     * 
+     * @param aggregated true, if the rows contain values aggregated by the backend
+     * @return
+     */
+    GroupImpl createGroup(boolean aggregated) {
+        return new GroupImpl(groupExpressions, maps, aggregated);
+    }
+    
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.group;
+
+import com.mysema.query.Projectable;
+import com.mysema.query.QueryMetadata;
+
+/**
+ * AggregatingProjectable is a marker interface for {@link com.mysema.query.Query} implementations 
+ * which evaluate group by clauses and aggregate functions in the backend. 
+ * 
+ * <p>GroupBy transformations created via {@link GroupByBuilder#aggregated()}, which use only 
+ * aggregating group expressions such as {@link GroupBy#sum(com.mysema.query.types.Expression)}, 
+ * are executed as grouped copies of AggregatingProjectable instances, instead of projecting 
+ * and aggregating every row on the client side.</p>
+ * 
+ * @author tiwe
+ *
+ */
+public interface AggregatingProjectable extends Projectable {
+
+    /**
+     * @return the metadata of this query
+     */
+    QueryMetadata getMetadata();
+
+    /**
+     * Create a copy of this query which is executed in the same session
+     * 
+     * @return
+     */
+    AggregatingProjectable clone();
+
+}
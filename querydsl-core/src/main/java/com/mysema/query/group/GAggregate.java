@@ -0,0 +1,47 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.group;
+
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.Operator;
+import com.mysema.query.types.expr.SimpleOperation;
+
+/**
+ * Base class for group expressions which have a native aggregate function counterpart
+ * 
+ * @author tiwe
+ *
+ * @param <T>
+ * @param <R>
+ */
+abstract class GAggregate<T, R> extends AbstractGroupExpression<T, R> {
+
+    private static final long serialVersionUID = -4213447453419735573L;
+    
+    private final Operator<? super R> operator;
+    
+    public GAggregate(Class<? super R> type, Expression<T> expr, Operator<? super R> operator) {
+        super(type, expr);
+        this.operator = operator;
+    }
+    
+    /**
+     * @return aggregate function expression to be evaluated by the backend
+     */
+    @SuppressWarnings("unchecked")
+    public Expression<R> getAggregation() {
+        return SimpleOperation.create((Class<R>)getType(), operator, getExpression());
+    }
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.group;
+
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.Ops;
+
+class GAvg<T extends Number & Comparable<?>> extends GAggregate<T, Double> {
+
+    private static final long serialVersionUID = -1209374536839263456L;
+
+    public GAvg(Expression<T> expr) {
+        super(Double.class, expr, Ops.AggOps.AVG_AGG);
+    }
+
+    @Override
+    public GroupCollector<T,Double> createGroupCollector() {
+        return NumberCollectors.avg();
+    }
+}
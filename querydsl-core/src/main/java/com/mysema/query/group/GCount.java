@@ -0,0 +1,31 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.group;
+
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.Ops;
+
+class GCount<T> extends GAggregate<T, Long> {
+
+    private static final long serialVersionUID = 6215316742195624590L;
+
+    public GCount(Expression<T> expr) {
+        super(Long.class, expr, Ops.AggOps.COUNT_AGG);
+    }
+
+    @Override
+    public GroupCollector<T,Long> createGroupCollector() {
+        return NumberCollectors.count();
+    }
+}
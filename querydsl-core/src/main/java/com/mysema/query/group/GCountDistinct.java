@@ -0,0 +1,48 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.group;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.Ops;
+
+class GCountDistinct<T> extends GAggregate<T, Long> {
+
+    private static final long serialVersionUID = -3714328739214843591L;
+
+    public GCountDistinct(Expression<T> expr) {
+        super(Long.class, expr, Ops.AggOps.COUNT_DISTINCT_AGG);
+    }
+
+    @Override
+    public GroupCollector<T,Long> createGroupCollector() {
+        return new GroupCollector<T,Long>() {
+            private final Set<T> values = new HashSet<T>();
+            
+            @Override
+            public void add(T o) {
+                if (o != null) {
+                    values.add(o);    
+                }                
+            }
+
+            @Override
+            public Long get() {
+                return Long.valueOf(values.size());
+            }            
+        };
+    }
+}
@@ -14,33 +14,19 @@
 package com.mysema.query.group;
 
 import com.mysema.query.types.Expression;
+import com.mysema.query.types.Ops;
 
-class GMin<T extends Comparable<T>> extends AbstractGroupExpression<T, T> {
+class GMin<T extends Comparable<T>> extends GAggregate<T, T> {
 
     private static final long serialVersionUID = 8312168556148122576L;
 
     @SuppressWarnings("unchecked")
     public GMin(Expression<T> expr) {
-        super((Class) expr.getType(), expr);
+        super((Class) expr.getType(), expr, Ops.AggOps.MIN_AGG);
     }
 
     @Override
     public GroupCollector<T,T> createGroupCollector() {
-        return new GroupCollector<T,T>() {
-            private T min;
-            
-            @Override
-            public void add(T o) {
-                if (min != null) {
-                    min = o.compareTo(min) < 0 ? o : min;
-                } else {
-                    min = (T)o;
-                }
-            }
-            @Override
-            public T get() {
-                return min;
-            }                
-        };
+        return NumberCollectors.minMax(getType(), false);
     }        
 }
\ No newline at end of file
@@ -13,7 +13,6 @@
  */
 package com.mysema.query.group;
 
-import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,7 +20,6 @@ import java.util.Set;
 
 import com.mysema.commons.lang.CloseableIterator;
 import com.mysema.query.Projectable;
-import com.mysema.query.ResultTransformer;
 import com.mysema.query.types.Expression;
 import com.mysema.query.types.expr.SimpleExpression;
 
@@ -33,7 +31,7 @@ import com.mysema.query.types.expr.SimpleExpression;
  *
  */
 @SuppressWarnings({"unchecked", "rawtypes"})
-public class GroupBy<K, V> implements ResultTransformer<Map<K,V>> {
+public class GroupBy<K, V> extends AbstractGroupByTransformer<K, Map<K,V>> {
     
     public static <K> GroupByBuilder<K> groupBy(Expression<K> key) {
         return new GroupByBuilder<K>(key);
@@ -47,6 +45,22 @@ public class GroupBy<K, V> implements ResultTransformer<Map<K,V>> {
         return new GMax<E>(expression);
     }
            
+    public static <E extends Number & Comparable<?>> SimpleExpression<E> sum(Expression<E> expression) {
+        return new GSum<E>(expression);
+    }
+    
+    public static <E extends Number & Comparable<?>> SimpleExpression<Double> avg(Expression<E> expression) {
+        return new GAvg<E>(expression);
+    }
+    
+    public static SimpleExpression<Long> count(Expression<?> expression) {
+        return new GCount(expression);
+    }
+           
+    public static SimpleExpression<Long> countDistinct(Expression<?> expression) {
+        return new GCountDistinct(expression);
+    }
+           
     public static <E> SimpleExpression<List<E>> list(Expression<E> expression) {
         return new GList<E>(expression);
     }
@@ -60,33 +74,12 @@ public class GroupBy<K, V> implements ResultTransformer<Map<K,V>> {
         return new GMap<K,V>(qPair);
     }
     
-    protected final List<GroupExpression<?, ?>> groupExpressions = new ArrayList<GroupExpression<?, ?>>();
-    
-    protected final List<QPair<?,?>> maps = new ArrayList<QPair<?,?>>();
-        
-    protected final Expression<?>[] expressions;
-    
     GroupBy(Expression<K> key, Expression<?>... expressions) {
-        
-        List<Expression<?>> projection = new ArrayList<Expression<?>>(expressions.length);        
-        groupExpressions.add(new GOne<K>(key));
-        projection.add(key);
-        
-        for (Expression<?> expr : expressions) {
-            if (expr instanceof GroupExpression<?,?>) {
-                GroupExpression<?,?> groupExpr = (GroupExpression<?,?>)expr;
-                groupExpressions.add(groupExpr);
-                projection.add(groupExpr.getExpression());
-                if (groupExpr instanceof GMap) {
-                    maps.add((QPair<?, ?>) groupExpr.getExpression());
-                }                
-            } else {
-                groupExpressions.add(new GOne(expr));
-                projection.add(expr);
-            }
-        }
-        
-        this.expressions = projection.toArray(new Expression[projection.size()]);
+        super(key, expressions);
+    }
+    
+    GroupBy(boolean pushDown, Expression<K> key, Expression<?>... expressions) {
+        super(pushDown, key, expressions);
     }       
     
     @Override
@@ -94,14 +87,15 @@ public class GroupBy<K, V> implements ResultTransformer<Map<K,V>> {
         Map<K, Group> groups = new LinkedHashMap<K, Group>();
         
         // create groups
-        CloseableIterator<Object[]> iter = projectable.iterate(expressions);
+        boolean aggregated = isAggregated(projectable);
+        CloseableIterator<Object[]> iter = iterate(projectable, aggregated);
         try {
             while (iter.hasNext()) {
                 Object[] row = iter.next();
                 K groupId = (K) row[0];                
                 GroupImpl group = (GroupImpl)groups.get(groupId);                
                 if (group == null) {
-                    group = new GroupImpl(groupExpressions, maps);
+                    group = createGroup(aggregated);
                     groups.put(groupId, group);
                 }
                 group.add(row);
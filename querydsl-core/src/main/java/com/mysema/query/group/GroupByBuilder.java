@@ -13,12 +13,13 @@
  */
 package com.mysema.query.group;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.mysema.commons.lang.Assert;
+import com.mysema.commons.lang.CloseableIterator;
 import com.mysema.query.ResultTransformer;
 import com.mysema.query.types.Expression;
 import com.mysema.query.types.FactoryExpression;
@@ -36,19 +37,38 @@ public class GroupByBuilder<K> {
 
     private final Expression<K> key;
     
+    private final boolean pushDown;
+    
     public GroupByBuilder(Expression<K> key) {
+        this(key, false);
+    }
+    
+    private GroupByBuilder(Expression<K> key, boolean pushDown) {
         this.key = key;
+        this.pushDown = pushDown;
+    }
+    
+    /**
+     * Get a builder for transformers which execute the grouping in the backend. If all group 
+     * expressions are aggregates such as {@link GroupBy#sum(Expression)}, a grouped copy of 
+     * an {@link AggregatingProjectable} query is executed, which returns one row per group. 
+     * The query itself is not modified and may not have limit, offset, ordering or grouping.
+     * 
+     * @return
+     */
+    public GroupByBuilder<K> aggregated() {
+        return new GroupByBuilder<K>(key, true);
     }
         
     public ResultTransformer<Map<K, Group>> as(Expression<?>... expressions) {
-        return new GroupBy<K, Group>(key, expressions);
+        return new GroupBy<K, Group>(pushDown, key, expressions);
     }
     
     @SuppressWarnings("unchecked")
     public <V> ResultTransformer<Map<K, V>> as(Expression<V> expression) {
         final Expression<V> lookup = (Expression<V>)
                 (expression instanceof GroupExpression ? ((GroupExpression<?,?> )expression).getExpression() : expression);
-        return new GroupBy<K, V>(key, expression) {            
+        return new GroupBy<K, V>(pushDown, key, expression) {            
 
             @Override
             protected Map<K, V> transform(Map<K, Group> groups) {
@@ -69,7 +89,7 @@ public class GroupByBuilder<K> {
 
         List<Expression<?>> args = transformation.getArgs();
         
-        return new GroupBy<K, V>(key, args.toArray(new Expression<?>[args.size()])) {
+        return new GroupBy<K, V>(pushDown, key, args.toArray(new Expression<?>[args.size()])) {
 
             @Override
             protected Map<K, V> transform(Map<K, Group> groups) {
@@ -82,16 +102,71 @@ public class GroupByBuilder<K> {
             
             @SuppressWarnings("unchecked")
             protected V transform(Group group) {
-                // XXX Isn't group.toArray() suitable here?
-                List<Object> args = new ArrayList<Object>(groupExpressions.size() - 1);
-                for (int i = 1; i < groupExpressions.size(); i++) {
-                    args.add(group.getGroup(groupExpressions.get(i)));
-                }
-                return (V)transformation.newInstance(args.toArray());
+                Object[] values = group.toArray();
+                return (V)transformation.newInstance(Arrays.copyOfRange(values, 1, values.length));
             }
             
         };
     }
     
+    /**
+     * Get a transformer which streams the groups instead of collecting them into a Map.
+     * The rows of the query need to be ordered by the group key.
+     * 
+     * @param expressions
+     * @return
+     */
+    public ResultTransformer<CloseableIterator<Group>> iterate(Expression<?>... expressions) {
+        return new GroupByIterate<K, Group>(pushDown, key, expressions);
+    }
+    
+    /**
+     * Get a transformer which streams the values of the given expression per group.
+     * The rows of the query need to be ordered by the group key.
+     * 
+     * @param <V>
+     * @param expression
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <V> ResultTransformer<CloseableIterator<V>> iterate(Expression<V> expression) {
+        final Expression<V> lookup = (Expression<V>)
+                (expression instanceof GroupExpression ? ((GroupExpression<?,?> )expression).getExpression() : expression);
+        return new GroupByIterate<K, V>(pushDown, key, expression) {
+            
+            @Override
+            protected V transform(Group group) {
+                return group.getOne(lookup);
+            }
+            
+        };
+    }
     
+    /**
+     * Get a transformer which streams the groups as instances of the given FactoryExpression.
+     * The rows of the query need to be ordered by the group key.
+     * 
+     * @param <V>
+     * @param expression
+     * @return
+     */
+    public <V> ResultTransformer<CloseableIterator<V>> iterate(FactoryExpression<V> expression) {
+        Assert.notNull(expression, "expression");
+        
+        final FactoryExpression<?> transformation = FactoryExpressionUtils.wrap(expression);
+
+        List<Expression<?>> args = transformation.getArgs();
+        
+        return new GroupByIterate<K, V>(pushDown, key, args.toArray(new Expression<?>[args.size()])) {
+            
+            @SuppressWarnings("unchecked")
+            @Override
+            protected V transform(Group group) {
+                Object[] values = group.toArray();
+                return (V)transformation.newInstance(Arrays.copyOfRange(values, 1, values.length));
+            }
+            
+        };
+    }
+        
 }
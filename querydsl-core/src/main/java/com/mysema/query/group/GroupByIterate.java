@@ -0,0 +1,103 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.group;
+
+import java.util.NoSuchElementException;
+
+import com.google.common.base.Objects;
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.Projectable;
+import com.mysema.query.types.Expression;
+
+/**
+ * Groups results by the first expression and streams the groups. 
+ * 
+ * <p>The rows of the underlying query are expected to be ordered by the group key. A group 
+ * is emitted as soon as the key changes, so only the current group is held in memory.</p>
+ * 
+ * @author tiwe
+ *
+ * @param <K> key type
+ * @param <V> group type
+ */
+@SuppressWarnings("unchecked")
+public class GroupByIterate<K, V> extends AbstractGroupByTransformer<K, CloseableIterator<V>> {
+    
+    GroupByIterate(Expression<K> key, Expression<?>... expressions) {
+        super(key, expressions);
+    }
+    
+    GroupByIterate(boolean pushDown, Expression<K> key, Expression<?>... expressions) {
+        super(pushDown, key, expressions);
+    }
+    
+    @Override
+    public CloseableIterator<V> transform(Projectable projectable) {
+        final boolean aggregated = isAggregated(projectable);
+        final CloseableIterator<Object[]> iter = iterate(projectable, aggregated);
+        
+        return new CloseableIterator<V>() {
+            
+            private GroupImpl group;
+            
+            private K groupId;
+
+            @Override
+            public boolean hasNext() {
+                return group != null || iter.hasNext();
+            }
+
+            @Override
+            public V next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                while (iter.hasNext()) {
+                    Object[] row = iter.next();
+                    if (group == null) {
+                        group = createGroup(aggregated);
+                        groupId = (K) row[0];                        
+                    } else if (!Objects.equal(groupId, row[0])) {
+                        GroupImpl current = group;
+                        group = createGroup(aggregated);
+                        groupId = (K) row[0];
+                        group.add(row);
+                        return transform(current);
+                    }
+                    group.add(row);
+                }
+                GroupImpl current = group;
+                group = null;
+                groupId = null;
+                return transform(current);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();                
+            }
+
+            @Override
+            public void close() {
+                iter.close();                
+            }
+            
+        };
+    }
+    
+    protected V transform(Group group) {
+        return (V)group;
+    }
+
+}
@@ -21,6 +21,7 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 
 import com.mysema.query.types.Expression;
+import com.mysema.util.MathUtils;
 
 /**
  * Default implementation of the Group interface
@@ -33,26 +34,61 @@ class GroupImpl implements Group {
     
     private final Map<Expression<?>, GroupCollector<?,?>> groupCollectorMap = new LinkedHashMap<Expression<?>, GroupCollector<?,?>>();
     
-    private final List<GroupExpression<?, ?>> groupExpressions;
+    private final Map<GroupExpression<?,?>, GroupCollector<?,?>> definitionMap = new LinkedHashMap<GroupExpression<?,?>, GroupCollector<?,?>>();
     
     private final List<GroupCollector<?,?>> groupCollectors = new ArrayList<GroupCollector<?,?>>();
     
     private final List<QPair<?, ?>> maps;
     
     public GroupImpl(List<GroupExpression<?, ?>> columnDefinitions,  List<QPair<?, ?>> maps) {
-        this.groupExpressions = columnDefinitions;
+        this(columnDefinitions, maps, false);
+    }
+    
+    /**
+     * @param columnDefinitions
+     * @param maps
+     * @param aggregated true, if the group values are aggregated by the backend
+     */
+    public GroupImpl(List<GroupExpression<?, ?>> columnDefinitions,  List<QPair<?, ?>> maps, boolean aggregated) {
         this.maps = maps;
         for (int i=0; i < columnDefinitions.size(); i++) {
             GroupExpression<?, ?> coldef = columnDefinitions.get(i);
-            GroupCollector<?,?> collector = groupCollectorMap.get(coldef.getExpression());
+            GroupCollector<?,?> collector = definitionMap.get(coldef);
             if (collector == null) {
-                collector = coldef.createGroupCollector();                
-                groupCollectorMap.put(coldef.getExpression(), collector);    
+                collector = aggregated ? createAggregatedCollector(coldef.getType()) : coldef.createGroupCollector();
+                definitionMap.put(coldef, collector);
+                if (!groupCollectorMap.containsKey(coldef.getExpression())) {
+                    groupCollectorMap.put(coldef.getExpression(), collector);    
+                }                
             }            
             groupCollectors.add(collector);
         }
     }
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static GroupCollector<?,?> createAggregatedCollector(final Class<?> type) {
+        return new GroupCollector<Object, Object>() {
+            private Object val;
+            
+            @Override
+            public void add(Object o) {
+                if (o instanceof Number && !type.isInstance(o) && NumberCollectors.isIntegral(type)
+                        && NumberCollectors.isIntegral(o.getClass())) {
+                    val = NumberCollectors.castIntegral(((Number)o).longValue(), type);
+                } else if (o instanceof Number && !type.isInstance(o) && NumberCollectors.isNumeric(type)) {
+                    val = MathUtils.cast((Number)o, (Class)type);
+                } else {
+                    val = o;    
+                }                
+            }
+
+            @Override
+            public Object get() {
+                return val;
+            }            
+        };
+    }
+
     @SuppressWarnings("unchecked")
     void add(Object[] row) {
         int i=0;
@@ -74,10 +110,9 @@ class GroupImpl implements Group {
     @Override
     @SuppressWarnings("unchecked")
     public <T, R> R getGroup(GroupExpression<T, R> definition) {
-        for (GroupExpression<?, ?> def : groupExpressions) {            
-            if (def.equals(definition)) {
-                return (R) groupCollectorMap.get(def.getExpression()).get();
-            }
+        GroupCollector<?,?> col = definitionMap.get(definition);
+        if (col != null) {
+            return (R) col.get();
         }
         throw new NoSuchElementException(definition.toString());
     }
@@ -109,11 +144,11 @@ class GroupImpl implements Group {
 
     @Override
     public Object[] toArray() {
-        List<Object> arr = new ArrayList<Object>(groupCollectors.size());
-        for (GroupCollector<?,?> col : groupCollectors) {
-            arr.add(col.get());
+        Object[] arr = new Object[groupCollectors.size()];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = groupCollectors.get(i).get();
         }
-        return arr.toArray();
+        return arr;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.group;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import com.mysema.util.MathUtils;
+
+/**
+ * Factory for numeric GroupCollectors which accumulate into primitive fields. Values are 
+ * boxed only once per group, when the result is read.
+ * 
+ * @author tiwe
+ *
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+final class NumberCollectors {
+    
+    static boolean isIntegral(Class<?> type) {
+        return type.equals(Long.class) || type.equals(Integer.class) 
+            || type.equals(Short.class) || type.equals(Byte.class);
+    }
+    
+    static boolean isFloating(Class<?> type) {
+        return type.equals(Double.class) || type.equals(Float.class);
+    }
+    
+    static boolean isNumeric(Class<?> type) {
+        return isIntegral(type) || isFloating(type) 
+            || type.equals(BigDecimal.class) || type.equals(BigInteger.class);
+    }
+    
+    static <T> GroupCollector<T, T> sum(final Class<?> type) {
+        if (isIntegral(type)) {
+            return new GroupCollector<T, T>() {
+                private long sum;
+                
+                private boolean empty = true;
+                
+                @Override
+                public void add(T o) {
+                    if (o != null) {
+                        long value = ((Number)o).longValue();
+                        long result = sum + value;
+                        if (((sum ^ result) & (value ^ result)) < 0) {
+                            throw new ArithmeticException("Sum overflows " + type.getSimpleName());
+                        }
+                        sum = result;
+                        empty = false;
+                    }
+                }
+
+                @Override
+                public T get() {
+                    return empty ? null : (T)castIntegral(sum, type);
+                }                
+            };
+        } else if (isFloating(type)) {
+            return new GroupCollector<T, T>() {
+                private double sum;
+                
+                private boolean empty = true;
+                
+                @Override
+                public void add(T o) {
+                    if (o != null) {
+                        sum += ((Number)o).doubleValue();
+                        empty = false;
+                    }
+                }
+
+                @Override
+                public T get() {
+                    return empty ? null : (T)MathUtils.cast(sum, (Class)type);
+                }                
+            };
+        } else {
+            return new GroupCollector<T, T>() {
+                private BigDecimal sum;
+                
+                @Override
+                public void add(T o) {
+                    if (o != null) {
+                        BigDecimal value = toBigDecimal((Number)o);
+                        sum = sum != null ? sum.add(value) : value;
+                    }
+                }
+
+                @Override
+                public T get() {
+                    return sum != null ? (T)MathUtils.cast(sum, (Class)type) : null;
+                }                
+            };
+        }        
+    }
+    
+    static <T> GroupCollector<T, Double> avg() {
+        return new GroupCollector<T, Double>() {
+            private double sum;
+            
+            private long count;
+            
+            @Override
+            public void add(T o) {
+                if (o != null) {
+                    sum += ((Number)o).doubleValue();
+                    count++;
+                }
+            }
+
+            @Override
+            public Double get() {
+                return count > 0 ? Double.valueOf(sum / count) : null;
+            }            
+        };
+    }
+    
+    static <T> GroupCollector<T, Long> count() {
+        return new GroupCollector<T, Long>() {
+            private long count;
+            
+            @Override
+            public void add(T o) {
+                if (o != null) {
+                    count++;
+                }
+            }
+
+            @Override
+            public Long get() {
+                return Long.valueOf(count);
+            }            
+        };
+    }
+    
+    /**
+     * @param type value type
+     * @param max true for maximum, false for minimum
+     * @return
+     */
+    static <T> GroupCollector<T, T> minMax(Class<?> type, final boolean max) {
+        if (isIntegral(type)) {
+            return new GroupCollector<T, T>() {
+                private long current;
+                
+                private T value;
+                
+                @Override
+                public void add(T o) {
+                    if (o != null) {
+                        long l = ((Number)o).longValue();
+                        if (value == null || (max ? l > current : l < current)) {
+                            current = l;
+                            value = o;
+                        }
+                    }
+                }
+
+                @Override
+                public T get() {
+                    return value;
+                }                
+            };
+        } else if (isFloating(type)) {
+            return new GroupCollector<T, T>() {
+                private double current;
+                
+                private T value;
+                
+                @Override
+                public void add(T o) {
+                    if (o != null) {
+                        double d = ((Number)o).doubleValue();
+                        if (value == null || (max ? Double.compare(d, current) > 0 : Double.compare(d, current) < 0)) {
+                            current = d;
+                            value = o;
+                        }
+                    }
+                }
+
+                @Override
+                public T get() {
+                    return value;
+                }                
+            };
+        } else {
+            return new GroupCollector<T, T>() {
+                private Comparable value;
+                
+                @Override
+                public void add(T o) {
+                    if (o != null) {
+                        if (value == null) {
+                            value = (Comparable)o;
+                        } else {
+                            int result = ((Comparable)o).compareTo(value);
+                            if (max ? result > 0 : result < 0) {
+                                value = (Comparable)o;
+                            }
+                        }
+                    }
+                }
+
+                @Override
+                public T get() {
+                    return (T)value;
+                }                
+            };
+        }
+    }
+    
+    /**
+     * Cast the given integral value to the given integral type
+     * 
+     * @throws ArithmeticException if the value is out of the range of the type
+     */
+    static Number castIntegral(long value, Class<?> type) {
+        long min, max;
+        if (type.equals(Integer.class)) {
+            min = Integer.MIN_VALUE;
+            max = Integer.MAX_VALUE;
+        } else if (type.equals(Short.class)) {
+            min = Short.MIN_VALUE;
+            max = Short.MAX_VALUE;
+        } else if (type.equals(Byte.class)) {
+            min = Byte.MIN_VALUE;
+            max = Byte.MAX_VALUE;
+        } else {
+            return Long.valueOf(value);
+        }
+        if (value < min || value > max) {
+            throw new ArithmeticException("Sum " + value + " overflows " + type.getSimpleName());
+        }
+        return MathUtils.cast(value, (Class)type);
+    }
+    
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal)number;
+        } else if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger)number);
+        } else if (isIntegral(number.getClass())) {
+            return BigDecimal.valueOf(number.longValue());
+        } else {
+            return new BigDecimal(number.toString());
+        }
+    }
+    
+    private NumberCollectors() {}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.support;
+
+/**
+ * QueryExecution describes a single query or DML clause execution
+ * 
+ * @author tiwe
+ *
+ */
+public final class QueryExecution {
+
+    private final Class<?> source;
+
+    private final String type;
+
+    private final String queryString;
+
+    private final long serializationTime, executionTime, rows;
+
+    /**
+     * Create a new QueryExecution instance
+     * 
+     * @param source class of the executing query
+     * @param type type of the execution, e.g. list or count
+     * @param queryString serialized query
+     * @param serializationTime serialization time in nanoseconds
+     * @param executionTime execution time in nanoseconds
+     * @param rows amount of returned or affected rows or -1, if unknown
+     */
+    public QueryExecution(Class<?> source, String type, String queryString, long serializationTime, 
+            long executionTime, long rows) {
+        this.source = source;
+        this.type = type;
+        this.queryString = queryString;
+        this.serializationTime = serializationTime;
+        this.executionTime = executionTime;
+        this.rows = rows;
+    }
+
+    public Class<?> getSource() {
+        return source;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getQueryString() {
+        return queryString;
+    }
+
+    /**
+     * Get the fingerprint of the query shape. Constants are serialized as parameters, so 
+     * executions of the same query shape share the fingerprint. The full query string is used 
+     * to avoid collisions between different query shapes.
+     * 
+     * @return
+     */
+    public String getFingerprint() {
+        return type + ":" + queryString;
+    }
+
+    /**
+     * @return serialization time in nanoseconds
+     */
+    public long getSerializationTime() {
+        return serializationTime;
+    }
+
+    /**
+     * @return execution time in nanoseconds
+     */
+    public long getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * @return amount of returned or affected rows or -1, if unknown
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + queryString.replace('\n', ' ') + " (" + executionTime / 1000000 + " ms)";
+    }
+
+}
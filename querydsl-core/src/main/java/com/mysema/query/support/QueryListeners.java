@@ -0,0 +1,169 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.support;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.mysema.commons.lang.CloseableIterator;
+
+/**
+ * QueryListeners is the registry of the {@link QueryListener} instances. 
+ * 
+ * <p>Query implementations take the timestamps via {@link #now()} and report executions via 
+ * {@link #executed(Class, String, String, long, long, long)}. Lazy iterations are wrapped via 
+ * {@link #iterate(Class, String, long, long, CloseableIterator)} and reported when the iteration 
+ * is exhausted or closed. All of them are no-ops when no listener is registered.</p>
+ * 
+ * @author tiwe
+ *
+ */
+public final class QueryListeners {
+
+    private static final List<QueryListener> listeners = new CopyOnWriteArrayList<QueryListener>();
+
+    private static volatile boolean enabled = false;
+
+    public static synchronized void add(QueryListener listener) {
+        listeners.add(listener);
+        enabled = true;
+    }
+
+    public static synchronized void remove(QueryListener listener) {
+        listeners.remove(listener);
+        enabled = !listeners.isEmpty();
+    }
+
+    public static synchronized void clear() {
+        listeners.clear();
+        enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the current value of System.nanoTime() or 0, if no listener is registered
+     */
+    public static long now() {
+        return enabled ? System.nanoTime() : 0l;
+    }
+
+    /**
+     * Notify the listeners of an execution
+     * 
+     * @param source class of the executing query
+     * @param type type of the execution
+     * @param queryString serialized query
+     * @param start timestamp before the serialization
+     * @param serialized timestamp after the serialization
+     * @param rows amount of returned or affected rows or -1, if unknown
+     */
+    public static void executed(Class<?> source, String type, String queryString, 
+            long start, long serialized, long rows) {
+        if (enabled && start != 0l && serialized != 0l) {
+            QueryExecution execution = new QueryExecution(source, type, queryString, 
+                    serialized - start, System.nanoTime() - serialized, rows);
+            for (QueryListener listener : listeners) {
+                listener.executed(execution);
+            }
+        }
+    }
+
+    /**
+     * Wrap the given iterator so that the execution is reported with the amount of consumed rows, 
+     * when the iterator is exhausted or closed
+     * 
+     * @param source class of the executing query
+     * @param queryString serialized query
+     * @param start timestamp before the serialization
+     * @param serialized timestamp after the serialization
+     * @param iterator iterator to wrap
+     * @return
+     */
+    public static <T> CloseableIterator<T> iterate(Class<?> source, String queryString, 
+            long start, long serialized, CloseableIterator<T> iterator) {
+        if (enabled && start != 0l && serialized != 0l) {
+            return new ReportingIterator<T>(source, queryString, start, serialized, iterator);
+        } else {
+            return iterator;
+        }
+    }
+
+    private static final class ReportingIterator<T> implements CloseableIterator<T> {
+
+        private final Class<?> source;
+
+        private final String queryString;
+
+        private final long start, serialized;
+
+        private final CloseableIterator<T> iterator;
+
+        private long rows = 0;
+
+        private boolean reported = false;
+
+        ReportingIterator(Class<?> source, String queryString, long start, long serialized,
+                CloseableIterator<T> iterator) {
+            this.source = source;
+            this.queryString = queryString;
+            this.start = start;
+            this.serialized = serialized;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = iterator.hasNext();
+            if (!hasNext) {
+                report();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            T next = iterator.next();
+            rows++;
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            iterator.remove();
+        }
+
+        @Override
+        public void close() {
+            try {
+                iterator.close();
+            } finally {
+                report();
+            }
+        }
+
+        private void report() {
+            if (!reported) {
+                reported = true;
+                executed(source, "iterate", queryString, start, serialized, rows);
+            }
+        }
+
+    }
+
+    private QueryListeners() {}
+
+}
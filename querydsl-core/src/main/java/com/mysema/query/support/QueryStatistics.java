@@ -0,0 +1,273 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+/**
+ * QueryStatistics is an in-memory {@link QueryListener} which collects execution time histograms 
+ * per query shape and retains the most recent executions above a slow query threshold.
+ * 
+ * <p>The histogram buckets are powers of two in milliseconds, bucket <i>i</i> counts executions 
+ * which took less than 2^i ms.</p>
+ * 
+ * @author tiwe
+ *
+ */
+public class QueryStatistics implements QueryListener {
+
+    public static final int BUCKETS = 20;
+
+    public static final int DEFAULT_MAX_SLOW_QUERIES = 100;
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    private final LinkedList<QueryExecution> slowQueries = new LinkedList<QueryExecution>();
+
+    private final AtomicLong slowQueryCount = new AtomicLong();
+
+    private final long slowQueryThreshold;
+
+    private final int maxSlowQueries, maxEntries;
+
+    /**
+     * Create a new QueryStatistics instance without slow query logging
+     */
+    public QueryStatistics() {
+        this(-1);
+    }
+
+    /**
+     * Create a new QueryStatistics instance
+     * 
+     * @param slowQueryThreshold slow query threshold in milliseconds or -1 to disable
+     */
+    public QueryStatistics(long slowQueryThreshold) {
+        this(slowQueryThreshold, DEFAULT_MAX_SLOW_QUERIES, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create a new QueryStatistics instance
+     * 
+     * @param slowQueryThreshold slow query threshold in milliseconds or -1 to disable
+     * @param maxSlowQueries maximum amount of retained slow queries
+     * @param maxEntries maximum amount of query shapes
+     */
+    public QueryStatistics(long slowQueryThreshold, int maxSlowQueries, int maxEntries) {
+        this.slowQueryThreshold = slowQueryThreshold;
+        this.maxSlowQueries = maxSlowQueries;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public void executed(QueryExecution execution) {
+        String fingerprint = execution.getFingerprint();
+        Entry entry = entries.get(fingerprint);
+        if (entry == null && entries.size() < maxEntries) {
+            entry = new Entry(execution.getType(), execution.getQueryString());
+            Entry existing = entries.putIfAbsent(fingerprint, entry);
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+        if (entry != null) {
+            entry.add(execution);
+        }
+        if (slowQueryThreshold >= 0 && execution.getExecutionTime() / 1000000 >= slowQueryThreshold) {
+            slowQueryCount.incrementAndGet();
+            synchronized (slowQueries) {
+                slowQueries.addLast(execution);
+                if (slowQueries.size() > maxSlowQueries) {
+                    slowQueries.removeFirst();
+                }
+            }
+            slowQuery(execution);
+        }
+    }
+
+    /**
+     * Hook for slow query reporting, e.g. logging. The default implementation does nothing.
+     * 
+     * @param execution
+     */
+    protected void slowQuery(QueryExecution execution) {
+        // do nothing
+    }
+
+    /**
+     * @return the statistics of all query shapes
+     */
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * Get the statistics of the given query shape
+     * 
+     * @param fingerprint
+     * @return
+     * @see QueryExecution#getFingerprint()
+     */
+    @Nullable
+    public Entry getEntry(String fingerprint) {
+        return entries.get(fingerprint);
+    }
+
+    /**
+     * @return the most recent slow query executions, oldest first
+     */
+    public List<QueryExecution> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<QueryExecution>(slowQueries);
+        }
+    }
+
+    /**
+     * @return the amount of slow query executions
+     */
+    public long getSlowQueryCount() {
+        return slowQueryCount.get();
+    }
+
+    public long getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    /**
+     * Remove all collected statistics
+     */
+    public void clear() {
+        entries.clear();
+        slowQueryCount.set(0);
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    /**
+     * Statistics of a single query shape
+     */
+    public static final class Entry {
+
+        private final String type, queryString;
+
+        private final long[] histogram = new long[BUCKETS];
+
+        private long count, rows, executionTime, maxExecutionTime, serializationTime;
+
+        Entry(String type, String queryString) {
+            this.type = type;
+            this.queryString = queryString;
+        }
+
+        synchronized void add(QueryExecution execution) {
+            count++;
+            if (execution.getRows() > 0) {
+                rows += execution.getRows();
+            }
+            executionTime += execution.getExecutionTime();
+            maxExecutionTime = Math.max(maxExecutionTime, execution.getExecutionTime());
+            serializationTime += execution.getSerializationTime();
+            long millis = execution.getExecutionTime() / 1000000;
+            int bucket = 0;
+            while (bucket < BUCKETS - 1 && millis >= (1l << bucket)) {
+                bucket++;
+            }
+            histogram[bucket]++;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getQueryString() {
+            return queryString;
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        /**
+         * @return total amount of returned or affected rows
+         */
+        public synchronized long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return total execution time in nanoseconds
+         */
+        public synchronized long getExecutionTime() {
+            return executionTime;
+        }
+
+        /**
+         * @return maximum execution time in nanoseconds
+         */
+        public synchronized long getMaxExecutionTime() {
+            return maxExecutionTime;
+        }
+
+        /**
+         * @return total serialization time in nanoseconds
+         */
+        public synchronized long getSerializationTime() {
+            return serializationTime;
+        }
+
+        /**
+         * @return the histogram bucket counts
+         */
+        public synchronized long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        /**
+         * Get the upper bound in milliseconds of the bucket containing the given percentile
+         * 
+         * @param percentile percentile between 0 and 1
+         * @return
+         */
+        public synchronized long getPercentile(double percentile) {
+            long threshold = (long)Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram[i];
+                if (seen >= threshold && seen > 0) {
+                    return 1l << i;
+                }
+            }
+            return 1l << (BUCKETS - 1);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return type + " " + queryString.replace('\n', ' ') + " : " + count + " executions, " 
+                + (executionTime / 1000000) + " ms";
+        }
+
+    }
+
+}
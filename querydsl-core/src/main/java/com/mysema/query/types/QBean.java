@@ -15,11 +15,12 @@ package com.mysema.query.types;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.mysema.util.BeanMap;
 import com.mysema.util.ReflectionUtils;
@@ -35,7 +36,7 @@ public class QBean<T> extends ExpressionBase<T> implements FactoryExpression<T>
 
     private static final long serialVersionUID = -8210214512730989778L;
 
-    private static final Map<Path<?>, String> pathToProperty = Collections.synchronizedMap(new HashMap<Path<?>, String>());
+    private static final ConcurrentMap<Path<?>, String> pathToProperty = new ConcurrentHashMap<Path<?>, String>();
 
     private static Class<?> RelationalPathClass = null;
 
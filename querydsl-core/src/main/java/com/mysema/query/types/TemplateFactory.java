@@ -14,10 +14,10 @@
 package com.mysema.query.types;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,7 +36,7 @@ public class TemplateFactory {
 
     public static final TemplateFactory DEFAULT = new TemplateFactory('\\');
 
-    private final Map<String,Template> cache = new HashMap<String,Template>();
+    private final ConcurrentMap<String,Template> cache = new ConcurrentHashMap<String,Template>();
 
     private final Converters converters;
     
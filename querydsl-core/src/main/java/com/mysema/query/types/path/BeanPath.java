@@ -15,8 +15,8 @@ package com.mysema.query.types.path;
 
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 
@@ -45,7 +45,7 @@ public class BeanPath<T> extends SimpleExpression<T> implements Path<T> {
 
     private static final long serialVersionUID = -1845524024957822731L;
 
-    private final Map<Class<?>, Object> casts = new HashMap<Class<?>, Object>();
+    private final ConcurrentMap<Class<?>, Object> casts = new ConcurrentHashMap<Class<?>, Object>();
 
     @Nullable
     private final PathInits inits;
@@ -85,18 +85,19 @@ public class BeanPath<T> extends SimpleExpression<T> implements Path<T> {
     @SuppressWarnings("unchecked")
     public <U extends BeanPath<? extends T>> U as(Class<U> clazz) {
         try {
-            if (!casts.containsKey(clazz)) {
-                U rv;
+            U rv = (U) casts.get(clazz);
+            if (rv == null) {
                 if (inits != null) {
                     rv = clazz.getConstructor(PathMetadata.class, PathInits.class).newInstance(this.getMetadata(), inits);
                 } else {
                     rv = clazz.getConstructor(PathMetadata.class).newInstance(this.getMetadata());
                 }
-                casts.put(clazz, rv);
-                return rv;
-            } else {
-                return (U) casts.get(clazz);
+                U existing = (U) casts.putIfAbsent(clazz, rv);
+                if (existing != null) {
+                    rv = existing;
+                }
             }
+            return rv;
 
         } catch (InstantiationException e) {
             throw new ExpressionException(e.getMessage(), e);
@@ -14,9 +14,9 @@
 package com.mysema.query.types.path;
 
 import java.lang.reflect.AnnotatedElement;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 
@@ -42,7 +42,7 @@ public class ListPath<E, Q extends SimpleExpression<? super E>> extends Collecti
 
     private static final long serialVersionUID = 3302301599074388860L;
 
-    private final Map<Integer,Q> cache = new HashMap<Integer,Q>();
+    private final ConcurrentMap<Integer,Q> cache = new ConcurrentHashMap<Integer,Q>();
 
     private final Class<E> elementType;
 
@@ -109,13 +109,15 @@ public class ListPath<E, Q extends SimpleExpression<? super E>> extends Collecti
 
     @Override
     public Q get(int index) {
-        if (cache.containsKey(index)) {
-            return cache.get(index);
-        } else {
-            Q rv = create(index);
-            cache.put(index, rv);
-            return rv;
+        Q rv = cache.get(index);
+        if (rv == null) {
+            rv = create(index);
+            Q existing = cache.putIfAbsent(index, rv);
+            if (existing != null) {
+                rv = existing;
+            }
         }
+        return rv;
     }
 
     public Class<E> getElementType() {
@@ -13,8 +13,8 @@
  */
 package com.mysema.query.types.path;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.mysema.query.types.Path;
 import com.mysema.query.types.PathMetadata;
@@ -32,7 +32,7 @@ public final class PathBuilder<T> extends EntityPathBase<T> {
 
     private static final long serialVersionUID = -1666357914232685088L;
 
-    private final Map<String, PathBuilder<?>> properties = new HashMap<String, PathBuilder<?>>();
+    private final ConcurrentMap<String, PathBuilder<?>> properties = new ConcurrentHashMap<String, PathBuilder<?>>();
 
     /**
      * Creates a new PathBuilder instance
@@ -75,7 +75,10 @@ public final class PathBuilder<T> extends EntityPathBase<T> {
         if (path == null){
             validate(property);
             path = new PathBuilder<Object>(Object.class, forProperty(property));
-            properties.put(property, path);
+            PathBuilder<Object> existing = (PathBuilder) properties.putIfAbsent(property, path);
+            if (existing != null) {
+                path = existing;
+            }
         }
         return path;
     }
@@ -90,13 +93,23 @@ public final class PathBuilder<T> extends EntityPathBase<T> {
      */
     @SuppressWarnings("unchecked")
     public <A> PathBuilder<A> get(String property, Class<A> type) {
-        PathBuilder<A> path = (PathBuilder<A>) properties.get(property);
-        if (path == null || !type.isAssignableFrom(path.getType())) {
+        PathBuilder<?> path = properties.get(property);
+        while (path == null || !type.isAssignableFrom(path.getType())) {
             validate(property);
-            path = new PathBuilder<A>(type, forProperty(property));
-            properties.put(property, path);
+            PathBuilder<A> newPath = new PathBuilder<A>(type, forProperty(property));
+            if (path == null) {
+                path = properties.putIfAbsent(property, newPath);
+                if (path == null) {
+                    return newPath;
+                }
+            } else if (properties.replace(property, path, newPath)) {
+                return newPath;
+            } else {
+                // replaced concurrently, check the current value again
+                path = properties.get(property);
+            }
         }
-        return path;
+        return (PathBuilder<A>) path;
     }
 
     /**
@@ -13,8 +13,9 @@
  */
 package com.mysema.query.types.path;
 
-import java.util.HashMap;
-import java.util.Map;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.base.CaseFormat;
 
@@ -26,14 +27,17 @@ import com.google.common.base.CaseFormat;
  */
 public final class PathBuilderFactory {
 
-    private final Map<Class<?>, PathBuilder<?>> paths = new HashMap<Class<?>, PathBuilder<?>>();
+    private final ConcurrentMap<Class<?>, PathBuilder<?>> paths = new ConcurrentHashMap<Class<?>, PathBuilder<?>>();
 
     @SuppressWarnings("unchecked")
     public <T> PathBuilder<T> create(Class<T> clazz) {
         PathBuilder<T> rv = (PathBuilder<T>) paths.get(clazz);
         if (rv == null) {
             rv = new PathBuilder<T>(clazz, CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_CAMEL, clazz.getSimpleName()));
-            paths.put(clazz, rv);
+            PathBuilder<T> existing = (PathBuilder<T>) paths.putIfAbsent(clazz, rv);
+            if (existing != null) {
+                rv = existing;
+            }
         }
         return rv;
     }
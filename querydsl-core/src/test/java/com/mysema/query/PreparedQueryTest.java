@@ -0,0 +1,189 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.mysema.query.types.expr.Param;
+import com.mysema.query.types.path.StringPath;
+
+public class PreparedQueryTest {
+
+    private final StringPath str = new StringPath("str");
+
+    private final StringPath str2 = new StringPath("str2");
+
+    private final Param<String> param = new Param<String>(String.class, "param");
+
+    private PreparedQuery createPreparedQuery() {
+        QueryMetadata metadata = new DefaultQueryMetadata();
+        metadata.addJoin(JoinType.DEFAULT, str);
+        metadata.addWhere(str.eq(param));
+        metadata.addOrderBy(str.asc());
+        metadata.addProjection(str);
+        return new PreparedQuery(metadata);
+    }
+
+    @Test
+    public void Bind() {
+        PreparedQuery query = createPreparedQuery();
+        QueryMetadata md = query.bind();
+        assertEquals(Arrays.asList(new JoinExpression(JoinType.DEFAULT, str)), md.getJoins());
+        assertEquals(str.eq(param), md.getWhere());
+        assertEquals(Arrays.asList(str.asc()), md.getOrderBy());
+        assertTrue(md.getProjection().isEmpty());
+        assertTrue(md.getParams().isEmpty());
+    }
+
+    @Test
+    public void Source_Is_Copied() {
+        QueryMetadata metadata = new DefaultQueryMetadata();
+        metadata.addJoin(JoinType.DEFAULT, str);
+        PreparedQuery query = new PreparedQuery(metadata);
+        metadata.addWhere(str.isNotNull());
+        metadata.getJoins().get(0).addFlag(new JoinFlag("fetch"));
+        assertNull(query.bind().getWhere());
+        assertTrue(query.bind().getJoins().get(0).getFlags().isEmpty());
+    }
+
+    @Test
+    public void Joins_Are_Not_Shared() {
+        PreparedQuery query = createPreparedQuery();
+        query.bind().getJoins().get(0).addFlag(new JoinFlag("fetch"));
+        query.bind().getJoins().get(0).addCondition(str.isNotNull());
+        assertTrue(query.bind().getJoins().get(0).getFlags().isEmpty());
+        assertNull(query.bind().getJoins().get(0).getCondition());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void Undeclared_Path() {
+        QueryMetadata metadata = new DefaultQueryMetadata(false);
+        metadata.addJoin(JoinType.DEFAULT, str);
+        metadata.addWhere(str2.isNotNull());
+        new PreparedQuery(metadata);
+    }
+
+    @Test
+    public void Bindings_Are_Local() {
+        PreparedQuery query = createPreparedQuery();
+        QueryMetadata md1 = query.bind();
+        QueryMetadata md2 = query.bind();
+        md1.setParam(param, "a");
+        md1.addProjection(str);
+        md1.setLimit(5l);
+        md2.setParam(param, "b");
+        assertEquals(Collections.singletonMap(param, "a"), md1.getParams());
+        assertEquals(Collections.singletonMap(param, "b"), md2.getParams());
+        assertEquals(Arrays.asList(str), md1.getProjection());
+        assertTrue(md2.getProjection().isEmpty());
+        assertEquals(Long.valueOf(5l), md1.getModifiers().getLimit());
+        assertNull(md2.getModifiers().getLimit());
+    }
+
+    @Test
+    public void Reset() {
+        QueryMetadata md = createPreparedQuery().bind();
+        md.setParam(param, "a");
+        md.addProjection(str);
+        md.setOffset(10l);
+        md.reset();
+        assertTrue(md.getParams().isEmpty());
+        assertTrue(md.getProjection().isEmpty());
+        assertEquals(QueryModifiers.EMPTY, md.getModifiers());
+        assertEquals(str.eq(param), md.getWhere());
+    }
+
+    @Test
+    public void Clone() {
+        QueryMetadata md = createPreparedQuery().bind();
+        md.setParam(param, "a");
+        md.addProjection(str);
+        QueryMetadata clone = md.clone();
+        assertEquals(md, clone);
+        clone.setParam(param, "b");
+        assertEquals("a", md.getParams().get(param));
+    }
+
+    @Test
+    public void Clone_Is_Modifiable() {
+        QueryMetadata md = createPreparedQuery().bind();
+        md.addProjection(str);
+        QueryMetadata clone = md.clone();
+        assertTrue(clone instanceof DefaultQueryMetadata);
+        clone.addGroupBy(str);
+        clone.addJoin(JoinType.LEFTJOIN, str2);
+        assertEquals(Arrays.asList(str), clone.getGroupBy());
+        assertEquals(2, clone.getJoins().size());
+        assertTrue(md.getGroupBy().isEmpty());
+        assertEquals(1, md.getJoins().size());
+    }
+
+    @Test
+    public void Joins_Are_Copied_Once() {
+        QueryMetadata md = createPreparedQuery().bind();
+        assertSame(md.getJoins(), md.getJoins());
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void AddWhere() {
+        createPreparedQuery().bind().addWhere(str.isNull());
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void AddJoin() {
+        createPreparedQuery().bind().addJoin(JoinType.DEFAULT, str2);
+    }
+
+    @Test
+    public void CacheKey() {
+        PreparedQuery query = createPreparedQuery();
+        BoundQueryMetadata md1 = query.bind();
+        BoundQueryMetadata md2 = query.bind();
+        md1.addProjection(str);
+        md2.addProjection(str);
+        assertEquals(md1.getCacheKey("a", true), md2.getCacheKey("a", true));
+        assertFalse(md1.getCacheKey("a", true).equals(md2.getCacheKey("a", false)));
+        md2.setDistinct(true);
+        assertFalse(md1.getCacheKey("a", true).equals(md2.getCacheKey("a", true)));
+    }
+
+    @Test
+    public void CacheForm() {
+        PreparedQuery query = createPreparedQuery();
+        assertNull(query.getCachedForm("key"));
+        assertEquals("a", query.cacheForm("key", "a"));
+        assertEquals("a", query.cacheForm("key", "b"));
+        assertEquals("a", query.getCachedForm("key"));
+    }
+
+    @Test
+    public void CacheForm_Is_Bounded() {
+        PreparedQuery query = createPreparedQuery();
+        for (int i = 0; i < PreparedQuery.MAX_CACHED_FORMS * 2; i++) {
+            Object form = new Object();
+            assertSame(form, query.cacheForm(i, form));
+        }
+        assertNull(query.getCachedForm(PreparedQuery.MAX_CACHED_FORMS));
+    }
+
+}
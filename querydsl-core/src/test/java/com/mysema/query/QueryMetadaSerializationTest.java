@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentMap;
 
 import org.junit.Test;
 
@@ -85,7 +86,7 @@ public class QueryMetadaSerializationTest {
     @Test
     public void FullySerizable(){
         Set<Class<?>> checked = new HashSet<Class<?>>();
-        checked.addAll(Arrays.<Class<?>>asList(Collection.class, List.class, Set.class, Map.class, Object.class, String.class, Class.class));
+        checked.addAll(Arrays.<Class<?>>asList(Collection.class, List.class, Set.class, Map.class, ConcurrentMap.class, Object.class, String.class, Class.class));
         Stack<Class<?>> classes = new Stack<Class<?>>();
         classes.addAll(Arrays.<Class<?>>asList(NumberPath.class, NumberOperation.class, NumberTemplate.class, BeanPath.class, DefaultQueryMetadata.class));
         while (!classes.isEmpty()){            
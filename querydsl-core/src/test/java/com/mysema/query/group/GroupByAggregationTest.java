@@ -0,0 +1,242 @@
+/*
+ * Copyright 2011, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.group;
+
+import static com.mysema.query.group.GroupBy.count;
+import static com.mysema.query.group.GroupBy.countDistinct;
+import static com.mysema.query.group.GroupBy.groupBy;
+import static com.mysema.query.group.GroupBy.list;
+import static com.mysema.query.group.GroupBy.sum;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.commons.lang.IteratorAdapter;
+import com.mysema.query.DefaultQueryMetadata;
+import com.mysema.query.JoinType;
+import com.mysema.query.PreparedQuery;
+import com.mysema.query.Query;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.SearchResults;
+import com.mysema.query.support.ProjectableQuery;
+import com.mysema.query.support.QueryMixin;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.Operation;
+import com.mysema.query.types.Ops;
+import com.mysema.query.types.path.NumberPath;
+import com.mysema.query.types.path.SimplePath;
+import com.mysema.query.types.path.StringPath;
+
+public class GroupByAggregationTest {
+    
+    private static final SimplePath<Comment> comment = new SimplePath<Comment>(Comment.class, "comment");
+    
+    private static final NumberPath<Integer> postId = new NumberPath<Integer>(Integer.class, comment, "postId");
+    
+    private static final NumberPath<Integer> commentId = new NumberPath<Integer>(Integer.class, comment, "id");
+    
+    private static final StringPath commentText = new StringPath(comment, "text");
+    
+    public static class AggregatingQuery extends ProjectableQuery<AggregatingQuery> 
+        implements Query<AggregatingQuery>, AggregatingProjectable {
+        
+        private final List<Object[]> rows;
+        
+        private Expression<?>[] projection;
+        
+        private AggregatingQuery copy;
+        
+        public AggregatingQuery(Object[]... rows) {
+            super(new QueryMixin<AggregatingQuery>());
+            this.rows = Arrays.asList(rows);
+            queryMixin.from(comment);
+        }
+        
+        private AggregatingQuery(List<Object[]> rows, QueryMetadata metadata) {
+            super(new QueryMixin<AggregatingQuery>(metadata));
+            this.rows = rows;
+        }
+        
+        @Override
+        public AggregatingQuery clone() {
+            copy = new AggregatingQuery(rows, getMetadata().clone());
+            return copy;
+        }
+        
+        @Override
+        public QueryMetadata getMetadata() {
+            return queryMixin.getMetadata();
+        }
+
+        @Override
+        public CloseableIterator<Object[]> iterate(Expression<?>[] args) {
+            projection = args;
+            return new IteratorAdapter<Object[]>(rows.iterator());
+        }
+
+        @Override
+        public <RT> CloseableIterator<RT> iterate(Expression<RT> projection) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <RT> SearchResults<RT> listResults(Expression<RT> projection) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long count() {
+            return rows.size();
+        }
+
+        @Override
+        public boolean exists() {
+            return !rows.isEmpty();
+        }
+
+        @Override
+        public Object[] uniqueResult(Expression<?>[] args) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <RT> RT uniqueResult(Expression<RT> projection) {
+            throw new UnsupportedOperationException();
+        }
+        
+        public List<? extends Expression<?>> getGroupBy() {
+            return queryMixin.getMetadata().getGroupBy();
+        }
+        
+    }
+    
+    @Test
+    public void Pushed_Down() {
+        // the backend returns sums and counts as Long values
+        AggregatingQuery query = new AggregatingQuery(
+                new Object[]{1, 6l, 3l}, 
+                new Object[]{2, 9l, 2l});
+        Map<Integer, Group> results = query.transform(
+                groupBy(postId).aggregated().as(sum(commentId), count(commentId)));
+        
+        // the grouping is applied to a copy
+        assertTrue(query.getGroupBy().isEmpty());
+        assertEquals(Arrays.asList(postId), query.copy.getGroupBy());
+        assertEquals(postId, query.copy.projection[0]);
+        assertEquals(Ops.AggOps.SUM_AGG, ((Operation<?>)query.copy.projection[1]).getOperator());
+        assertEquals(Ops.AggOps.COUNT_AGG, ((Operation<?>)query.copy.projection[2]).getOperator());
+        
+        Object[] group = results.get(1).toArray();
+        assertEquals(Integer.valueOf(6), group[1]);
+        assertEquals(Long.valueOf(3), group[2]);
+        assertEquals(Integer.valueOf(9), results.get(2).toArray()[1]);
+    }
+    
+    @Test
+    public void Pushed_Down_Prepared() {
+        QueryMetadata metadata = new DefaultQueryMetadata();
+        metadata.addJoin(JoinType.DEFAULT, comment);
+        PreparedQuery prepared = new PreparedQuery(metadata);
+        List<Object[]> rows = Arrays.<Object[]>asList(new Object[]{1, 6l}, new Object[]{2, 9l});
+        AggregatingQuery query = new AggregatingQuery(rows, prepared.bind());
+        Map<Integer, Integer> results = query.transform(groupBy(postId).aggregated().as(sum(commentId)));
+        
+        assertTrue(query.getGroupBy().isEmpty());
+        assertEquals(Arrays.asList(postId), query.copy.getGroupBy());
+        assertEquals(Integer.valueOf(6), results.get(1));
+    }
+    
+    @Test
+    public void Pushed_Down_Iterate() {
+        AggregatingQuery query = new AggregatingQuery(
+                new Object[]{1, 2l}, 
+                new Object[]{2, 1l});
+        CloseableIterator<Long> counts = query.transform(groupBy(postId).aggregated().iterate(countDistinct(commentId)));
+        
+        assertEquals(Ops.AggOps.COUNT_DISTINCT_AGG, ((Operation<?>)query.copy.projection[1]).getOperator());
+        assertEquals(Long.valueOf(2), counts.next());
+        assertEquals(Long.valueOf(1), counts.next());
+        assertFalse(counts.hasNext());
+    }
+    
+    @Test
+    public void Not_Pushed_Down() {
+        AggregatingQuery query = new AggregatingQuery(
+                new Object[]{1, 1, "comment 1"}, 
+                new Object[]{1, 2, "comment 2"});
+        Map<Integer, Group> results = query.transform(
+                groupBy(postId).aggregated().as(sum(commentId), list(commentText)));
+        
+        assertTrue(query.getGroupBy().isEmpty());
+        assertNull(query.copy);
+        assertEquals(commentId, query.projection[1]);
+        
+        Object[] group = results.get(1).toArray();
+        assertEquals(Integer.valueOf(3), group[1]);
+        assertEquals(Arrays.asList("comment 1", "comment 2"), group[2]);
+    }
+    
+    @Test
+    public void Not_Pushed_Down_By_Default() {
+        AggregatingQuery query = new AggregatingQuery(
+                new Object[]{1, 1}, 
+                new Object[]{1, 2});
+        Map<Integer, Integer> results = query.transform(groupBy(postId).as(sum(commentId)));
+        
+        assertNull(query.copy);
+        assertEquals(commentId, query.projection[1]);
+        assertEquals(Integer.valueOf(3), results.get(1));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void Pushed_Down_With_Limit() {
+        AggregatingQuery query = new AggregatingQuery();
+        query.limit(10);
+        query.transform(groupBy(postId).aggregated().as(sum(commentId)));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void Pushed_Down_With_Order() {
+        AggregatingQuery query = new AggregatingQuery();
+        query.orderBy(commentId.asc());
+        query.transform(groupBy(postId).aggregated().as(sum(commentId)));
+    }
+    
+    @Test(expected=ArithmeticException.class)
+    public void Pushed_Down_Overflow() {
+        new AggregatingQuery(new Object[]{1, Long.valueOf(Integer.MAX_VALUE) + 1})
+            .transform(groupBy(postId).aggregated().as(sum(commentId)));
+    }
+    
+    @Test
+    public void CountDistinct() {
+        AggregatingQuery query = new AggregatingQuery(
+                new Object[]{1, 1, "comment 1"}, 
+                new Object[]{1, 1, "comment 1"},
+                new Object[]{1, 2, "comment 2"});
+        Map<Integer, Group> results = query.transform(
+                groupBy(postId).as(countDistinct(commentId), list(commentText)));
+        
+        assertEquals(Long.valueOf(2), results.get(1).toArray()[1]);
+    }
+
+}
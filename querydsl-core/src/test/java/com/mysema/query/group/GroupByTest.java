@@ -14,13 +14,20 @@
 package com.mysema.query.group;
 
 
+import static com.mysema.query.group.GroupBy.avg;
+import static com.mysema.query.group.GroupBy.count;
 import static com.mysema.query.group.GroupBy.groupBy;
 import static com.mysema.query.group.GroupBy.list;
 import static com.mysema.query.group.GroupBy.map;
+import static com.mysema.query.group.GroupBy.max;
+import static com.mysema.query.group.GroupBy.min;
 import static com.mysema.query.group.GroupBy.set;
+import static com.mysema.query.group.GroupBy.sum;
 import static junit.framework.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.HashSet;
@@ -109,6 +116,25 @@ public class GroupByTest {
             row(1, 1, "post 1", comment(3))
     );
 
+    private static final Projectable ORDERED_RESULTS = projectable(
+            row(1, "post 1", 1, "comment 1"),
+            row(1, "post 1", 2, "comment 2"),
+            row(1, "post 1", 3, "comment 3"),
+            row(2, "post 2", 4, "comment 4"),
+            row(2, "post 2", 5, "comment 5"),
+            row(3, "post 3", 6, "comment 6"),
+            row(null, "null post", 7, "comment 7"),
+            row(null, "null post", 8, "comment 8")
+        );
+    
+    private static final Projectable POST_W_COMMENTS_ORDERED = projectable(
+            row(1, 1, "post 1", comment(1)),
+            row(1, 1, "post 1", comment(2)),
+            row(1, 1, "post 1", comment(3)),
+            row(2, 2, "post 2", comment(5)),
+            row(3, 3, "post 3", comment(6))
+    );
+
     // [ user.name, latestPost(post.id, post.name), latestPost.comments() ]
     private static final Projectable USERS_W_LATEST_POST_AND_COMMENTS = projectable(
             row("John", "John", 1, "post 1", comment(1)),
@@ -281,6 +307,116 @@ public class GroupByTest {
         assertEquals(toSet(comment(4), comment(5)), post.getComments());
     }
     
+    @Test
+    public void Iterate() {
+        CloseableIterator<Group> groups = ORDERED_RESULTS.transform(
+            groupBy(postId).iterate(postName, set(commentId), list(commentText)));
+        try {
+            assertTrue(groups.hasNext());
+            Group group = groups.next();
+            assertEquals(toInt(1), group.getOne(postId));
+            assertEquals("post 1", group.getOne(postName));
+            assertEquals(toSet(1, 2, 3), group.getSet(commentId));
+            
+            group = groups.next();
+            assertEquals(toInt(2), group.getOne(postId));
+            assertEquals(Arrays.asList("comment 4", "comment 5"), group.getList(commentText));
+            
+            group = groups.next();
+            assertEquals(toInt(3), group.getOne(postId));
+            
+            group = groups.next();
+            assertNull(group.getOne(postId));
+            assertEquals(toSet(7, 8), group.getSet(commentId));
+            assertFalse(groups.hasNext());
+        } finally {
+            groups.close();
+        }
+    }
+    
+    @Test
+    public void Iterate_Unordered() {
+        CloseableIterator<Group> groups = BASIC_RESULTS.transform(
+            groupBy(postId).iterate(postName, set(commentId)));
+        int count = 0;
+        while (groups.hasNext()) {
+            groups.next();
+            count++;
+        }
+        groups.close();
+        // groups are emitted on every key change
+        assertEquals(7, count);
+    }
+    
+    @Test
+    public void Iterate_Empty() {
+        CloseableIterator<String> groups = projectable().transform(groupBy(postId).iterate(postName));
+        assertFalse(groups.hasNext());
+    }
+    
+    @Test
+    public void Iterate_Transform_Results() {
+        CloseableIterator<Post> posts = POST_W_COMMENTS_ORDERED.transform(
+                groupBy(postId).iterate(Projections.constructor(Post.class, postId, postName, set(qComment))));
+        
+        Post post = posts.next();
+        assertEquals(toInt(1), post.getId());
+        assertEquals("post 1", post.getName());
+        assertEquals(toSet(comment(1), comment(2), comment(3)), post.getComments());
+        assertEquals(toInt(2), posts.next().getId());
+        assertEquals(toInt(3), posts.next().getId());
+        assertFalse(posts.hasNext());
+    }
+    
+    @Test
+    public void Iterate_Single_Expression() {
+        CloseableIterator<Set<Integer>> sets = projectable(row(1, 1), row(1, 2), row(1, 3), row(2, 4), row(2, 5)).transform(
+                groupBy(postId).iterate(set(commentId)));
+        assertEquals(toSet(1, 2, 3), sets.next());
+        assertEquals(toSet(4, 5), sets.next());
+    }
+    
+    @Test
+    public void Aggregates() {
+        Map<Integer, Group> results = projectable(
+                row(1, 1, 1, 1, 1, 1), 
+                row(2, 4, 4, 4, 4, 4), 
+                row(1, 2, 2, 2, 2, 2), 
+                row(1, 3, 3, 3, 3, 3)).transform(
+            groupBy(postId).as(sum(commentId), avg(commentId), count(commentId), min(commentId), max(commentId)));
+        
+        Object[] array = results.get(1).toArray();
+        assertEquals(toInt(6), array[1]);
+        assertEquals(Double.valueOf(2.0), array[2]);
+        assertEquals(Long.valueOf(3), array[3]);
+        assertEquals(toInt(1), array[4]);
+        assertEquals(toInt(3), array[5]);
+    }
+    
+    @Test
+    public void Aggregates_Of_Nulls() {
+        Map<Integer, Group> results = projectable(row(1, null, null, null, null), row(1, null, null, null, null)).transform(
+            groupBy(postId).as(sum(commentId), avg(commentId), count(commentId), min(commentId)));
+        
+        Object[] array = results.get(1).toArray();
+        assertNull(array[1]);
+        assertNull(array[2]);
+        assertEquals(Long.valueOf(0), array[3]);
+        assertNull(array[4]);
+    }
+    
+    @Test(expected=ArithmeticException.class)
+    public void Sum_Overflow() {
+        projectable(row(1, Integer.MAX_VALUE), row(1, 1)).transform(groupBy(postId).as(sum(commentId)));
+    }
+    
+    @Test
+    public void Sum_Negative() {
+        Map<Integer, Integer> results = projectable(row(1, Integer.MIN_VALUE), row(1, Integer.MAX_VALUE)).transform(
+            groupBy(postId).as(sum(commentId)));
+        assertEquals(toInt(-1), results.get(1));
+    }
+    
     private Integer toInt(int i) {
         return Integer.valueOf(i);
     }
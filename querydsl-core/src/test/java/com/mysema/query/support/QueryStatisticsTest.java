@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.commons.lang.IteratorAdapter;
+
+public class QueryStatisticsTest {
+
+    private static QueryExecution execution(String queryString, long millis, long rows) {
+        return new QueryExecution(Object.class, "list", queryString, 1000, millis * 1000000, rows);
+    }
+
+    @After
+    public void tearDown() {
+        QueryListeners.clear();
+    }
+
+    @Test
+    public void Histogram() {
+        QueryStatistics statistics = new QueryStatistics();
+        statistics.executed(execution("select a", 0, 1));
+        statistics.executed(execution("select a", 3, 2));
+        statistics.executed(execution("select a", 3, 2));
+        statistics.executed(execution("select a", 100, 5));
+        statistics.executed(execution("select b", 1, 0));
+        assertEquals(2, statistics.getEntries().size());
+
+        QueryStatistics.Entry entry = statistics.getEntry(execution("select a", 0, 0).getFingerprint());
+        assertEquals(4, entry.getCount());
+        assertEquals(10, entry.getRows());
+        assertEquals(100000000, entry.getMaxExecutionTime());
+        assertEquals(4000, entry.getSerializationTime());
+        long[] histogram = entry.getHistogram();
+        assertEquals(1, histogram[0]);
+        assertEquals(2, histogram[2]);
+        assertEquals(1, histogram[7]);
+        assertEquals(4, entry.getPercentile(0.5));
+        assertEquals(128, entry.getPercentile(1.0));
+    }
+
+    @Test
+    public void Slow_Queries() {
+        QueryStatistics statistics = new QueryStatistics(50, 2, 10);
+        statistics.executed(execution("select a", 10, 1));
+        statistics.executed(execution("select b", 60, 1));
+        statistics.executed(execution("select c", 70, 1));
+        statistics.executed(execution("select d", 80, 1));
+        assertEquals(3, statistics.getSlowQueryCount());
+        assertEquals(2, statistics.getSlowQueries().size());
+        assertEquals("select c", statistics.getSlowQueries().get(0).getQueryString());
+    }
+
+    @Test
+    public void Listeners() {
+        assertFalse(QueryListeners.isEnabled());
+        assertEquals(0l, QueryListeners.now());
+
+        QueryStatistics statistics = new QueryStatistics();
+        QueryListeners.add(statistics);
+        assertTrue(QueryListeners.isEnabled());
+        long start = QueryListeners.now();
+        long serialized = QueryListeners.now();
+        QueryListeners.executed(Object.class, "count", "select count(a)", start, serialized, 1);
+        assertEquals(1, statistics.getEntries().size());
+
+        QueryListeners.remove(statistics);
+        assertFalse(QueryListeners.isEnabled());
+        QueryListeners.executed(Object.class, "count", "select count(a)", start, serialized, 1);
+        assertEquals(1, statistics.getEntries().iterator().next().getCount());
+    }
+
+    @Test
+    public void Iterate_Is_Reported_On_Close() {
+        QueryStatistics statistics = new QueryStatistics();
+        QueryListeners.add(statistics);
+        long start = QueryListeners.now();
+        long serialized = QueryListeners.now();
+        CloseableIterator<String> iterator = QueryListeners.iterate(Object.class, "select a", 
+                start, serialized, new IteratorAdapter<String>(Arrays.asList("a", "b", "c").iterator()));
+        iterator.next();
+        iterator.next();
+        assertTrue(statistics.getEntries().isEmpty());
+
+        iterator.close();
+        iterator.close();
+        QueryStatistics.Entry entry = statistics.getEntries().iterator().next();
+        assertEquals(1, entry.getCount());
+        assertEquals(2, entry.getRows());
+    }
+
+    @Test
+    public void Iterate_Is_Reported_When_Exhausted() {
+        QueryStatistics statistics = new QueryStatistics();
+        QueryListeners.add(statistics);
+        long start = QueryListeners.now();
+        long serialized = QueryListeners.now();
+        CloseableIterator<String> iterator = QueryListeners.iterate(Object.class, "select a", 
+                start, serialized, new IteratorAdapter<String>(Arrays.asList("a", "b").iterator()));
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+        iterator.close();
+        QueryStatistics.Entry entry = statistics.getEntries().iterator().next();
+        assertEquals(1, entry.getCount());
+        assertEquals(2, entry.getRows());
+    }
+
+}
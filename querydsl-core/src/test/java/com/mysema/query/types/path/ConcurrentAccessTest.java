@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.types.path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.mysema.query.types.Template;
+import com.mysema.query.types.TemplateFactory;
+import com.mysema.query.types.path.BeanPathTest.MyBeanPath;
+
+public class ConcurrentAccessTest {
+    
+    private static final int THREADS = 32;
+    
+    private static final int ITERATIONS = 10000;
+    
+    private static final int PROPERTIES = 100;
+    
+    /**
+     * Run the given task concurrently in THREADS threads and collect the results
+     */
+    private static <T> List<T> run(final Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<Future<T>>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        start.await();
+                        return task.call();
+                    }                    
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<T>();
+            for (Future<T> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static <T> Set<T> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+    }
+    
+    @Test
+    public void PathBuilder_Get() throws Exception {
+        final PathBuilder<Object> entity = new PathBuilder<Object>(Object.class, "entity");
+        List<List<PathBuilder<Object>>> results = run(new Callable<List<PathBuilder<Object>>>() {
+            @Override
+            public List<PathBuilder<Object>> call() {
+                List<PathBuilder<Object>> paths = new ArrayList<PathBuilder<Object>>(PROPERTIES);
+                for (int i = 0; i < ITERATIONS; i++) {
+                    PathBuilder<Object> path = entity.get("property" + (i % PROPERTIES));
+                    if (i < PROPERTIES) {
+                        paths.add(path);    
+                    }                    
+                }
+                return paths;
+            }            
+        });
+        
+        // all threads see the same instance per property
+        for (int i = 0; i < PROPERTIES; i++) {
+            Set<PathBuilder<Object>> paths = identitySet();
+            for (List<PathBuilder<Object>> result : results) {
+                paths.add(result.get(i));
+            }
+            assertEquals(1, paths.size());
+            assertTrue(paths.iterator().next() == entity.get("property" + i));
+        }
+    }
+    
+    @Test
+    public void PathBuilder_Get_Typed() throws Exception {
+        final PathBuilder<Object> entity = new PathBuilder<Object>(Object.class, "entity");
+        List<PathBuilder<String>> results = run(new Callable<PathBuilder<String>>() {
+            @Override
+            public PathBuilder<String> call() {
+                PathBuilder<String> path = null;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    // untyped lookups are replaced by the typed ones
+                    entity.get("property" + (i % PROPERTIES));
+                    path = entity.get("property", String.class);
+                }
+                return path;
+            }
+        });
+
+        // the typed path is replaced only once
+        Set<PathBuilder<String>> paths = identitySet();
+        paths.addAll(results);
+        assertEquals(1, paths.size());
+        assertTrue(paths.iterator().next() == entity.get("property", String.class));
+    }
+
+    @Test
+    public void BeanPath_As() throws Exception {
+        final BeanPath<BeanPathTest> beanPath = new BeanPath<BeanPathTest>(BeanPathTest.class, "p");
+        List<MyBeanPath> results = run(new Callable<MyBeanPath>() {
+            @Override
+            public MyBeanPath call() {
+                MyBeanPath path = null;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    path = beanPath.as(MyBeanPath.class);
+                }
+                return path;
+            }            
+        });
+        Set<MyBeanPath> paths = identitySet();
+        paths.addAll(results);
+        assertEquals(1, paths.size());
+    }
+    
+    @Test
+    public void PathBuilderFactory_Create() throws Exception {
+        final PathBuilderFactory factory = new PathBuilderFactory();
+        List<PathBuilder<BeanPathTest>> results = run(new Callable<PathBuilder<BeanPathTest>>() {
+            @Override
+            public PathBuilder<BeanPathTest> call() {
+                return factory.create(BeanPathTest.class);
+            }            
+        });
+        Set<PathBuilder<BeanPathTest>> paths = identitySet();
+        paths.addAll(results);
+        assertEquals(1, paths.size());
+    }
+    
+    @Test
+    public void Contention() throws Exception {
+        final PathBuilder<Object> entity = new PathBuilder<Object>(Object.class, "entity");
+        final TemplateFactory templateFactory = new TemplateFactory('\\');
+        List<List<Object>> results = run(new Callable<List<Object>>() {
+            @Override
+            public List<Object> call() {
+                List<Object> created = new ArrayList<Object>(2 * PROPERTIES);
+                for (int j = 0; j < ITERATIONS; j++) {
+                    StringPath path = entity.get("property" + (j % PROPERTIES)).getString("name");
+                    Template template = templateFactory.create("{0} = {" + (j % PROPERTIES) + "}");
+                    if (j < PROPERTIES) {
+                        created.add(path);
+                        created.add(template);
+                    }
+                }
+                return created;
+            }
+        });
+
+        // all threads created equal paths and templates
+        for (List<Object> result : results) {
+            assertEquals(results.get(0), result);
+        }
+    }
+
+}
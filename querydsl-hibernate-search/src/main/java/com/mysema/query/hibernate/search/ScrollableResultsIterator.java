@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.hibernate.search;
+
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+import org.hibernate.ScrollableResults;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.types.FactoryExpression;
+
+/**
+ * ScrollableResultsIterator is a CloseableIterator adapter for ScrollableResults of
+ * full text queries
+ *
+ * @author tiwe
+ *
+ * @param <T>
+ */
+class ScrollableResultsIterator<T> implements CloseableIterator<T> {
+
+    private final ScrollableResults results;
+
+    @Nullable
+    private final FactoryExpression<T> factory;
+
+    @Nullable
+    private Boolean hasNext;
+
+    public ScrollableResultsIterator(ScrollableResults results, @Nullable FactoryExpression<T> factory) {
+        this.results = results;
+        this.factory = factory;
+    }
+
+    @Override
+    public void close() {
+        results.close();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (hasNext == null) {
+            hasNext = results.next();
+        }
+        return hasNext;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (hasNext()) {
+            hasNext = null;
+            if (factory != null) {
+                return factory.newInstance(results.get());
+            } else {
+                return (T) results.get(0);
+            }
+        } else {
+            throw new NoSuchElementException();
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+}
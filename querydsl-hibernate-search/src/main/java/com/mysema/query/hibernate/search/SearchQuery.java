@@ -13,12 +13,17 @@
  */
 package com.mysema.query.hibernate.search;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.hibernate.Session;
 import org.hibernate.search.FullTextQuery;
 import org.hibernate.search.FullTextSession;
+import org.hibernate.search.ProjectionConstants;
 import org.hibernate.search.Search;
+import org.hibernate.search.annotations.DocumentId;
 
 import com.mysema.commons.lang.Assert;
 import com.mysema.commons.lang.CloseableIterator;
@@ -29,11 +34,13 @@ import com.mysema.query.QueryModifiers;
 import com.mysema.query.SearchResults;
 import com.mysema.query.SimpleProjectable;
 import com.mysema.query.SimpleQuery;
-import com.mysema.query.lucene.LuceneSerializer;
 import com.mysema.query.support.QueryMixin;
 import com.mysema.query.types.EntityPath;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.FactoryExpression;
 import com.mysema.query.types.OrderSpecifier;
 import com.mysema.query.types.ParamExpression;
+import com.mysema.query.types.Path;
 import com.mysema.query.types.Predicate;
 
 /**
@@ -49,10 +56,12 @@ public class SearchQuery<T> implements SimpleQuery<SearchQuery<T>>, SimpleProjec
 
     private final QueryMixin<SearchQuery<T>> queryMixin;
 
-    private final LuceneSerializer serializer;
+    private final SearchSerializer serializer;
 
     private final FullTextSession session;
 
+    private int fetchSize = 0;
+
     public SearchQuery(FullTextSession session, EntityPath<T> path) {
         this.queryMixin = new QueryMixin<SearchQuery<T>>(this);
         this.session = Assert.notNull(session,"session");
@@ -87,12 +96,26 @@ public class SearchQuery<T> implements SimpleQuery<SearchQuery<T>>, SimpleProjec
     }
 
     private FullTextQuery createQuery(boolean forCount){
+        return createQuery(forCount, null);
+    }
+
+    private FullTextQuery createQuery(boolean forCount, @Nullable Expression<?> projection){
         QueryMetadata metadata = queryMixin.getMetadata();
         Assert.notNull(metadata.getWhere(), "where needs to be set");
         org.apache.lucene.search.Query query = serializer.toQuery(metadata.getWhere(), metadata);
 
         FullTextQuery fullTextQuery = session.createFullTextQuery(query, path.getType());
 
+        // projection
+        if (projection != null) {
+            fullTextQuery.setProjection(toFields(projection));
+        }
+
+        // batch size for entity loading in scroll
+        if (fetchSize > 0) {
+            fullTextQuery.setFetchSize(fetchSize);
+        }
+
         // order
         if (!metadata.getOrderBy().isEmpty() && !forCount) {
             fullTextQuery.setSort(serializer.toSort(metadata.getOrderBy()));
@@ -111,6 +134,64 @@ public class SearchQuery<T> implements SimpleQuery<SearchQuery<T>>, SimpleProjec
         return fullTextQuery;
     }
 
+    private String[] toFields(Expression<?> projection) {
+        if (projection instanceof FactoryExpression<?>) {
+            List<Expression<?>> args = ((FactoryExpression<?>)projection).getArgs();
+            String[] fields = new String[args.size()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = toField(args.get(i));
+            }
+            return fields;
+        } else {
+            return new String[]{toField(projection)};
+        }
+    }
+
+    private String toField(Expression<?> expr) {
+        if (!(expr instanceof Path<?>)) {
+            throw new IllegalArgumentException("Unsupported projection " + expr);
+        }
+        Path<?> p = (Path<?>)expr;
+        if (p.equals(path)) {
+            return ProjectionConstants.THIS;
+        } else if (p.getAnnotatedElement() != null
+                && p.getAnnotatedElement().isAnnotationPresent(DocumentId.class)) {
+            return ProjectionConstants.ID;
+        } else {
+            return serializer.toField(p);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private static <RT> RT project(Expression<RT> projection, @Nullable Object row) {
+        if (row == null) {
+            return null;
+        } else if (projection instanceof FactoryExpression<?>) {
+            return ((FactoryExpression<RT>)projection).newInstance((Object[])row);
+        } else {
+            return (RT) ((Object[])row)[0];
+        }
+    }
+
+    private static <RT> List<RT> project(Expression<RT> projection, List<?> rows) {
+        List<RT> rv = new ArrayList<RT>(rows.size());
+        for (Object row : rows) {
+            rv.add(project(projection, row));
+        }
+        return rv;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private static <RT> FactoryExpression<RT> factory(Expression<RT> projection) {
+        if (projection instanceof FactoryExpression<?>) {
+            return (FactoryExpression<RT>)projection;
+        } else {
+            return null;
+        }
+    }
+
 
     @Override
     public SearchQuery<T> distinct() {
@@ -119,9 +200,38 @@ public class SearchQuery<T> implements SimpleQuery<SearchQuery<T>>, SimpleProjec
     }
 
 
+    /**
+     * Return the query results as an <tt>Iterator</tt>. If a fetch size has been set, the 
+     * results are scrolled and the entities are loaded in batches of the fetch size. The 
+     * scrolled results hold index resources until the iterator is closed.
+     * 
+     * @see #setFetchSize(int)
+     */
     @SuppressWarnings("unchecked")
     public CloseableIterator<T> iterate(){
-        return new IteratorAdapter<T>(createQuery(false).iterate());
+        FullTextQuery query = createQuery(false);
+        if (fetchSize > 0) {
+            return new ScrollableResultsIterator<T>(query.scroll(), null);
+        } else {
+            return new IteratorAdapter<T>(query.iterate());
+        }
+    }
+
+    /**
+     * Return the projection of stored index fields as an <tt>Iterator</tt>. If a fetch size 
+     * has been set, the results are scrolled and the iterator needs to be closed after usage.
+     * 
+     * @param <RT>
+     * @param projection path of a stored field or factory expression of such paths
+     * @return
+     */
+    public <RT> CloseableIterator<RT> iterate(Expression<RT> projection){
+        FullTextQuery query = createQuery(false, projection);
+        if (fetchSize > 0) {
+            return new ScrollableResultsIterator<RT>(query.scroll(), factory(projection));
+        } else {
+            return new IteratorAdapter<RT>(project(projection, query.list()).iterator());
+        }
     }
 
     public CloseableIterator<T> iterateDistinct(){
@@ -139,6 +249,18 @@ public class SearchQuery<T> implements SimpleQuery<SearchQuery<T>>, SimpleProjec
         return createQuery(false).list();
     }
 
+    /**
+     * Return the projection of stored index fields. The projected values are read 
+     * directly from the index without loading the entities.
+     * 
+     * @param <RT>
+     * @param projection path of a stored field or factory expression of such paths
+     * @return
+     */
+    public <RT> List<RT> list(Expression<RT> projection) {
+        return project(projection, createQuery(false, projection).list());
+    }
+
     @Override
     public List<T> listDistinct() {
         return list();
@@ -153,9 +275,24 @@ public class SearchQuery<T> implements SimpleQuery<SearchQuery<T>>, SimpleProjec
     @Override
     public SearchResults<T> listResults() {
         FullTextQuery query = createQuery(false);
+        // the result size is taken from the hits of the list call
         return new SearchResults<T>(query.list(), queryMixin.getMetadata().getModifiers(), query.getResultSize());
     }
 
+    /**
+     * Return the projection of stored index fields of the current page and the total 
+     * amount of hits
+     * 
+     * @param <RT>
+     * @param projection path of a stored field or factory expression of such paths
+     * @return
+     */
+    public <RT> SearchResults<RT> listResults(Expression<RT> projection) {
+        FullTextQuery query = createQuery(false, projection);
+        List<RT> results = project(projection, query.list());
+        return new SearchResults<RT>(results, queryMixin.getMetadata().getModifiers(), query.getResultSize());
+    }
+
     @Override
     public SearchQuery<T> offset(long offset) {
         return queryMixin.offset(offset);
@@ -171,6 +308,18 @@ public class SearchQuery<T> implements SimpleQuery<SearchQuery<T>>, SimpleProjec
         return queryMixin.restrict(modifiers);
     }
 
+    /**
+     * Set the batch size for entity loading in {@link #iterate()}. Iterations with a fetch 
+     * size scroll the results and need to be closed after usage.
+     * 
+     * @param fetchSize
+     * @return
+     */
+    public SearchQuery<T> setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
     @Override
     public <P> SearchQuery<T> set(ParamExpression<P> param, P value) {
         return queryMixin.set(param, value);
@@ -181,6 +330,10 @@ public class SearchQuery<T> implements SimpleQuery<SearchQuery<T>>, SimpleProjec
         return limit(1).uniqueResult();
     }
 
+    public <RT> RT singleResult(Expression<RT> projection) {
+        return limit(1).uniqueResult(projection);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public T uniqueResult() {
@@ -191,6 +344,14 @@ public class SearchQuery<T> implements SimpleQuery<SearchQuery<T>>, SimpleProjec
         }
     }
 
+    public <RT> RT uniqueResult(Expression<RT> projection) {
+        try {
+            return project(projection, createQuery(false, projection).uniqueResult());
+        } catch (org.hibernate.NonUniqueResultException e) {
+            throw new NonUniqueResultException();
+        }
+    }
+
     @Override
     public SearchQuery<T> where(Predicate... e) {
         return queryMixin.where(e);
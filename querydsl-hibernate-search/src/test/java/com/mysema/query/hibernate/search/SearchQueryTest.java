@@ -25,10 +25,14 @@ import java.util.List;
 import org.hibernate.Session;
 import org.junit.Test;
 
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.commons.lang.IteratorAdapter;
 import com.mysema.query.NonUniqueResultException;
 import com.mysema.query.SearchResults;
+import com.mysema.query.Tuple;
 import com.mysema.query.hibernate.search.SearchQuery;
 import com.mysema.query.types.OrderSpecifier;
+import com.mysema.query.types.QTuple;
 import com.mysema.query.types.expr.BooleanExpression;
 
 public class SearchQueryTest extends AbstractQueryTest {
@@ -141,6 +145,61 @@ public class SearchQueryTest extends AbstractQueryTest {
         assertEquals(4, users.getTotal());
     }
 
+    @Test
+    public void Iterate() {
+        CloseableIterator<User> users = query().where(user.middleName.eq("X"))
+                .orderBy(user.firstName.asc()).iterate();
+        assertEquals(Arrays.asList("Anton", "Barbara", "John", "Robert"),
+                getFirstNames(IteratorAdapter.asList(users)));
+    }
+
+    @Test
+    public void Iterate_Scroll() {
+        CloseableIterator<User> users = query().where(user.middleName.eq("X"))
+                .orderBy(user.firstName.asc()).setFetchSize(2).iterate();
+        try {
+            assertEquals(Arrays.asList("Anton", "Barbara", "John", "Robert"),
+                    getFirstNames(IteratorAdapter.asList(users)));
+        } finally {
+            users.close();
+        }
+    }
+
+    @Test
+    public void Iterate_Projection() {
+        CloseableIterator<String> names = query().where(user.middleName.eq("X"))
+                .orderBy(user.firstName.asc()).iterate(user.firstName);
+        try {
+            assertEquals(Arrays.asList("Anton", "Barbara", "John", "Robert"),
+                    IteratorAdapter.asList(names));
+        } finally {
+            names.close();
+        }
+    }
+
+    @Test
+    public void List_Projection() {
+        List<String> names = query().where(user.middleName.eq("X"))
+                .orderBy(user.firstName.desc()).list(user.firstName);
+        assertEquals(Arrays.asList("Robert", "John", "Barbara", "Anton"), names);
+    }
+
+    @Test
+    public void UniqueResult_Tuple_Projection() {
+        Tuple tuple = query().where(user.emailAddress.eq("bob@example.com"))
+                .uniqueResult(new QTuple(user.firstName, user.emailAddress));
+        assertEquals("Bob", tuple.get(user.firstName));
+        assertEquals("bob@example.com", tuple.get(user.emailAddress));
+    }
+
+    @Test
+    public void ListResults_Projection() {
+        SearchResults<String> names = query().where(user.middleName.eq("X"))
+                .orderBy(user.firstName.asc()).limit(2).offset(1).listResults(user.lastName);
+        assertEquals(Arrays.asList("Lock", "Stewart"), names.getResults());
+        assertEquals(4, names.getTotal());
+    }
+
     private List<String> getFirstNames(List<User> users) {
         List<String> rv = new ArrayList<String>(users.size());
         for (User user : users) {
@@ -13,16 +13,18 @@
  */
 package com.mysema.query.jdo;
 
-import java.io.Closeable;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import javax.annotation.Nullable;
+import javax.jdo.JDOHelper;
 import javax.jdo.PersistenceManager;
 import javax.jdo.Query;
 
@@ -30,7 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.mysema.commons.lang.CloseableIterator;
-import com.mysema.commons.lang.IteratorAdapter;
+import com.mysema.query.BoundQueryMetadata;
 import com.mysema.query.DefaultQueryMetadata;
 import com.mysema.query.NonUniqueResultException;
 import com.mysema.query.QueryException;
@@ -38,10 +40,14 @@ import com.mysema.query.QueryMetadata;
 import com.mysema.query.QueryModifiers;
 import com.mysema.query.SearchResults;
 import com.mysema.query.support.ProjectableQuery;
+import com.mysema.query.support.QueryListeners;
 import com.mysema.query.types.EntityPath;
 import com.mysema.query.types.Expression;
 import com.mysema.query.types.FactoryExpression;
+import com.mysema.query.types.ParamExpression;
+import com.mysema.query.types.ParamNotSetException;
 import com.mysema.query.types.QTuple;
+import com.mysema.query.types.expr.Param;
 
 /**
  * Abstract base class for custom implementations of the JDOQLQuery interface.
@@ -54,13 +60,6 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
 
     private static final Logger logger = LoggerFactory.getLogger(JDOQLQueryImpl.class);
 
-    private final Closeable closeable = new Closeable() {
-        @Override
-        public void close() throws IOException {
-            AbstractJDOQLQuery.this.close();
-        }
-    };
-
     private final boolean detach;
 
     private List<Object> orderedConstants = new ArrayList<Object>();
@@ -70,6 +69,13 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
 
     private final List<Query> queries = new ArrayList<Query>(2);
 
+    private boolean queriesClosed = false;
+
+    @Nullable
+    private String queryString;
+
+    private long queryStart, querySerialized;
+
     private final JDOQLTemplates templates;
 
     protected final Set<String> fetchGroups = new HashSet<String>();
@@ -77,6 +83,12 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
     @Nullable
     protected Integer maxFetchDepth;
 
+    @Nullable
+    protected Integer fetchSize;
+
+    @Nullable
+    protected CompiledQueryCache compiledQueryCache;
+
     public AbstractJDOQLQuery(@Nullable PersistenceManager persistenceManager) {
         this(persistenceManager, JDOQLTemplates.DEFAULT, new DefaultQueryMetadata(), false);
     }
@@ -99,10 +111,24 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
         return (Q)this;
     }
 
+    /**
+     * Close the results of all executions of this query which are still open. 
+     * 
+     * <p>Results of count, unique and iterate executions and of detached list executions are 
+     * closed already after the execution or iteration, so only non-detached list results stay 
+     * open until this call, since closing them would invalidate the returned lists.</p>
+     */
     public void close() {
         for (Query query : queries) {
             query.closeAll();
         }
+        // the closed queries are released on the next execution
+        queriesClosed = true;
+    }
+
+    private void close(Query query) {
+        query.closeAll();
+        queries.remove(query);
     }
 
     @Override
@@ -111,6 +137,8 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
         query.setUnique(true);
         reset();
         Long rv = (Long) execute(query);
+        executed("count", 1);
+        close(query);
         if (rv != null) {
             return rv.longValue();
         } else {
@@ -120,9 +148,7 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
 
     @Override
     public boolean exists() {
-        boolean rv = limit(1).uniqueResult(getSource()) != null;
-        close();
-        return rv;
+        return limit(1).uniqueResult(getSource()) != null;
     }
 
     private Expression<?> getSource() {
@@ -130,39 +156,82 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
     }
 
     private Query createQuery(boolean forCount) {
+        queryStart = QueryListeners.now();
         Expression<?> source = getSource();
 
         // serialize
-        JDOQLSerializer serializer = new JDOQLSerializer(getTemplates(), source);
-        serializer.serialize(queryMixin.getMetadata(), forCount, false);
+        String queryString = null;
+        QueryMetadata metadata = queryMixin.getMetadata();
+        if (metadata instanceof BoundQueryMetadata) {
+            BoundQueryMetadata bound = (BoundQueryMetadata)metadata;
+            Object cacheKey = bound.getCacheKey(templates, forCount, metadata.getModifiers());
+            SerializedQuery cached = bound.getPreparedQuery().getCachedForm(cacheKey);
+            if (cached == null) {
+                JDOQLSerializer serializer = new JDOQLSerializer(getTemplates(), source);
+                serializer.serialize(metadata, forCount, false);
+                cached = bound.getPreparedQuery().cacheForm(cacheKey, 
+                        new SerializedQuery(serializer.toString(), serializer.getConstantKeys()));
+            }
+            queryString = cached.queryString;
+            orderedConstants = cached.getConstants(metadata.getParams());
+        } else {
+            JDOQLSerializer serializer = new JDOQLSerializer(getTemplates(), source);
+            serializer.serialize(metadata, forCount, false);
+            queryString = serializer.toString();
+            orderedConstants = serializer.getConstants();
+        }
 
-        logQuery(serializer.toString());
-
-        // create Query
-        Query query = persistenceManager.newQuery(serializer.toString());
-        orderedConstants = serializer.getConstants();
-        queries.add(query);
+        logQuery(queryString);
 
+        Class<?> resultClass = null;
         if (!forCount) {
             List<? extends Expression<?>> projection = queryMixin.getMetadata().getProjection();
             Class<?> exprType = projection.get(0).getClass();
             if (exprType.equals(QTuple.class)) {
-                query.setResultClass(JDOTuple.class);
+                resultClass = JDOTuple.class;
             } else if (FactoryExpression.class.isAssignableFrom(exprType)) {
-                query.setResultClass(projection.get(0).getType());
+                resultClass = projection.get(0).getType();
             }
+        }
+
+        if (queriesClosed) {
+            queries.clear();
+            queriesClosed = false;
+        }
 
+        // create Query
+        Query query;
+        if (compiledQueryCache != null) {
+            query = compiledQueryCache.newQuery(persistenceManager, queryString, resultClass);
+        } else {
+            query = persistenceManager.newQuery(queryString);
+            if (resultClass != null) {
+                query.setResultClass(resultClass);
+            }
+        }
+        queries.add(query);
+        this.queryString = queryString;
+
+        if (!forCount) {
             if (!fetchGroups.isEmpty()) {
                 query.getFetchPlan().setGroups(fetchGroups);
             }
             if (maxFetchDepth != null) {
                 query.getFetchPlan().setMaxFetchDepth(maxFetchDepth);
             }
+            if (fetchSize != null) {
+                query.getFetchPlan().setFetchSize(fetchSize);
+            }
         }
 
+        querySerialized = QueryListeners.now();
         return query;
     }
 
+    private void executed(String type, long rows) {
+        QueryListeners.executed(getClass(), type, queryString, queryStart, querySerialized, rows);
+    }
+
     protected void logQuery(String queryString) {
         if (logger.isDebugEnabled()) {
             logger.debug(queryString.replace('\n', ' '));
@@ -179,19 +248,42 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
     }
 
     @Nullable
-    private Object execute(Query query) {
-        Object rv;
-        if (!orderedConstants.isEmpty()) {
-            rv = query.executeWithArray(orderedConstants.toArray());
+    private Object detachElement(@Nullable Object result) {
+        if (result instanceof Object[]) {
+            Object[] row = (Object[])result;
+            for (int i = 0; i < row.length; i++) {
+                if (JDOHelper.isPersistent(row[i])) {
+                    row[i] = persistenceManager.detachCopy(row[i]);
+                }
+            }
+            return row;
+        } else if (JDOHelper.isPersistent(result)) {
+            return persistenceManager.detachCopy(result);
         } else {
-            rv = query.execute();
+            return result;
         }
+    }
+
+    @Nullable
+    private Object execute(Query query) {
+        Object rv = executeQuery(query);
         if (isDetach()) {
+            // the detached copies don't depend on the query results
             rv = detach(rv);
+            close(query);
         }
         return rv;
     }
 
+    @Nullable
+    private Object executeQuery(Query query) {
+        if (!orderedConstants.isEmpty()) {
+            return query.executeWithArray(orderedConstants.toArray());
+        } else {
+            return query.execute();
+        }
+    }
+
     public Q from(EntityPath<?>... args) {
         return queryMixin.from(args);
     }
@@ -204,16 +296,33 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
         return templates;
     }
 
+    protected PersistenceManager getPersistenceManager() {
+        return persistenceManager;
+    }
+
     public boolean isDetach() {
         return detach;
     }
 
     public CloseableIterator<Object[]> iterate(Expression<?>[] args) {
-        return new IteratorAdapter<Object[]>(list(args).iterator(), closeable);
+        queryMixin.addToProjection(args);
+        return iterate();
     }
 
     public <RT> CloseableIterator<RT> iterate(Expression<RT> projection) {
-        return new IteratorAdapter<RT>(list(projection).iterator(), closeable);
+        queryMixin.addToProjection(projection);
+        return iterate();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <RT> CloseableIterator<RT> iterate() {
+        Query query = createQuery(false);
+        reset();
+        // results are detached lazily during the iteration
+        Object rv = executeQuery(query);
+        Collection<RT> results = rv instanceof Collection ? (Collection<RT>)rv : Collections.singletonList((RT)rv);
+        return QueryListeners.iterate(getClass(), queryString, queryStart, querySerialized, 
+                new ResultIterator<RT>(query, results.iterator(), isDetach()));
     }
 
     @Override
@@ -221,6 +330,7 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
     public List<Object[]> list(Expression<?>[] args) {
         queryMixin.addToProjection(args);
         Object rv = execute(createQuery(false));
+        executed("list", rv instanceof Collection ? ((Collection<?>)rv).size() : 1);
         reset();
         return (rv instanceof List) ? ((List<Object[]>)rv) : Collections.singletonList((Object[])rv);
     }
@@ -230,6 +340,7 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
     public <RT> List<RT> list(Expression<RT> expr) {
         queryMixin.addToProjection(expr);
         Object rv = execute(createQuery(false));
+        executed("list", rv instanceof Collection ? ((Collection<?>)rv).size() : 1);
         reset();
         return rv instanceof List ? (List<RT>)rv : Collections.singletonList((RT)rv);
     }
@@ -241,11 +352,15 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
         countQuery.setUnique(true);
         countQuery.setResult("count(this)");
         long total = (Long) execute(countQuery);
+        executed("count", 1);
+        close(countQuery);
         if (total > 0) {
             QueryModifiers modifiers = queryMixin.getMetadata().getModifiers();
             Query query = createQuery(false);
             reset();
-            return new SearchResults<RT>((List<RT>) execute(query), modifiers, total);
+            List<RT> list = (List<RT>) execute(query);
+            executed("list", list.size());
+            return new SearchResults<RT>(list, modifiers, total);
         } else {
             reset();
             return SearchResults.emptyResults();
@@ -256,6 +371,33 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
         queryMixin.getMetadata().reset();
     }
 
+    /**
+     * Set the cache for the compilations of the JDOQL queries (default: none)
+     * 
+     * @param compiledQueryCache cache of the PersistenceManagerFactory of this query or null
+     * @return
+     * @see CompiledQueryCache
+     */
+    @SuppressWarnings("unchecked")
+    public Q setCompiledQueryCache(@Nullable CompiledQueryCache compiledQueryCache) {
+        this.compiledQueryCache = compiledQueryCache;
+        return (Q)this;
+    }
+
+    /**
+     * Set the fetch size of the fetch plan, which controls how many results and fetch group 
+     * members are loaded at a time. Combined with iterate large results can be read in 
+     * bounded memory.
+     * 
+     * @param fetchSize fetch size or one of FetchPlan.FETCH_SIZE_OPTIMAL and FetchPlan.FETCH_SIZE_GREEDY
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return (Q)this;
+    }
+
     @SuppressWarnings("unchecked")
     public Q setMaxFetchDepth(int depth) {
         maxFetchDepth = depth;
@@ -302,20 +444,111 @@ public abstract class AbstractJDOQLQuery<Q extends AbstractJDOQLQuery<Q>> extend
         }
         Query query = createQuery(false);
         reset();
-        Object rv = execute(query);
-        if (rv instanceof List) {
-            List<?> list = (List)rv;
-            if (!list.isEmpty()) {
-                if (list.size() > 1) {
-                    throw new NonUniqueResultException();
+        try {
+            Object rv = execute(query);
+            executed("unique", rv instanceof Collection ? ((Collection<?>)rv).size() : (rv != null ? 1 : 0));
+            if (rv instanceof List) {
+                List<?> list = (List)rv;
+                if (!list.isEmpty()) {
+                    if (list.size() > 1) {
+                        throw new NonUniqueResultException();
+                    }
+                    return list.get(0);
+                } else {
+                    return null;
                 }
-                return list.get(0);
             } else {
-                return null;
+                return rv;
+            }
+        } finally {
+            close(query);
+        }
+    }
+
+    /**
+     * Iterator over the results of a query execution, which detaches the results one at a time 
+     * and closes the results when the iteration is finished
+     */
+    private final class ResultIterator<T> implements CloseableIterator<T> {
+
+        private final Query query;
+
+        private final Iterator<T> iterator;
+
+        private final boolean detach;
+
+        private boolean closed;
+
+        ResultIterator(Query query, Iterator<T> iterator, boolean detach) {
+            this.query = query;
+            this.iterator = iterator;
+            this.detach = detach;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            } else if (iterator.hasNext()) {
+                return true;
+            } else {
+                close();
+                return false;
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = iterator.next();
+            return detach ? (T)detachElement(result) : result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                AbstractJDOQLQuery.this.close(query);
             }
-        } else {
-            return rv;
         }
+
+    }
+
+    private static final class SerializedQuery {
+
+        private final String queryString;
+
+        private final List<Object> constantKeys;
+
+        SerializedQuery(String queryString, List<Object> constantKeys) {
+            this.queryString = queryString;
+            this.constantKeys = constantKeys;
+        }
+
+        List<Object> getConstants(Map<ParamExpression<?>, Object> params) {
+            List<Object> constants = new ArrayList<Object>(constantKeys.size());
+            for (Object key : constantKeys) {
+                if (key instanceof Param) {
+                    Object value = params.get(key);
+                    if (value == null) {
+                        throw new ParamNotSetException((Param<?>) key);
+                    }
+                    constants.add(value);
+                } else {
+                    constants.add(key);
+                }
+            }
+            return constants;
+        }
+
     }
 
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jdo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.jdo.PersistenceManager;
+import javax.jdo.Query;
+
+/**
+ * CompiledQueryCache caches compiled JDOQL queries of a single PersistenceManagerFactory.
+ * 
+ * <p>Entries are keyed by the JDOQL string and the result class. The cached queries are compiled
+ * templates, which are copied into the PersistenceManager of the execution via 
+ * {@link PersistenceManager#newQuery(Object)}, so that the JDO implementation can reuse the 
+ * compilation. Templates are compiled in a dedicated PersistenceManager, which is closed right 
+ * after the compilation, so that they don't depend on the PersistenceManagers of the callers.</p>
+ * 
+ * <p>The cache is owned by the application and used by the queries it is set to via 
+ * {@link JDOQLQuery#setCompiledQueryCache(CompiledQueryCache)} or by the queries of a 
+ * {@link JDOQueryFactory}. Since the templates refer to their PersistenceManagerFactory, the 
+ * cache should be shared only by queries of the same factory and be discarded together 
+ * with it.</p>
+ * 
+ * @author tiwe
+ *
+ */
+public final class CompiledQueryCache {
+
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private final Map<List<Object>, Query> entries;
+
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), 
+        evictions = new AtomicLong();
+
+    private final int maxSize;
+
+    public CompiledQueryCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    @SuppressWarnings("serial")
+    public CompiledQueryCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<List<Object>, Query>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Query> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Create a new query for the given JDOQL string and result class 
+     * 
+     * @param persistenceManager persistence manager of the execution
+     * @param queryString JDOQL string
+     * @param resultClass result class or null
+     * @return
+     */
+    public Query newQuery(PersistenceManager persistenceManager, String queryString, 
+            @Nullable Class<?> resultClass) {
+        List<Object> key = Arrays.<Object>asList(queryString, resultClass);
+        Query template = entries.get(key);
+        if (template != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            PersistenceManager templateManager = persistenceManager.getPersistenceManagerFactory()
+                .getPersistenceManager();
+            try {
+                template = templateManager.newQuery(queryString);
+                if (resultClass != null) {
+                    template.setResultClass(resultClass);
+                }
+                template.compile();
+            } finally {
+                templateManager.close();
+            }
+            entries.put(key, template);
+        }
+        return persistenceManager.newQuery(template);
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return amount of queries created from cached compilations
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return amount of queries compiled
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return amount of entries evicted because of the size limit
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+}
@@ -15,6 +15,7 @@ package com.mysema.query.jdo;
 
 import java.io.Closeable;
 
+import javax.annotation.Nullable;
 import javax.jdo.PersistenceManager;
 
 import com.mysema.query.Projectable;
@@ -54,6 +55,23 @@ public interface JDOQLQuery extends JDOQLCommonQuery<JDOQLQuery>, Projectable, C
      * @return
      */
     JDOQLQuery setMaxFetchDepth(int maxFetchDepth);
+
+    /**
+     * Set the fetch size of the fetch plan. This is the amount of results and fetch group 
+     * members loaded at a time.
+     * 
+     * @param fetchSize fetch size or one of FetchPlan.FETCH_SIZE_OPTIMAL and FetchPlan.FETCH_SIZE_GREEDY
+     * @return
+     */
+    JDOQLQuery setFetchSize(int fetchSize);
+
+    /**
+     * Set the cache for the compilations of the JDOQL queries (default: none)
+     * 
+     * @param compiledQueryCache cache of the PersistenceManagerFactory of this query or null
+     * @return
+     */
+    JDOQLQuery setCompiledQueryCache(@Nullable CompiledQueryCache compiledQueryCache);
     
     /**
      * Close the query and related resources
@@ -17,6 +17,7 @@ import javax.jdo.PersistenceManager;
 
 import com.mysema.query.DefaultQueryMetadata;
 import com.mysema.query.QueryMetadata;
+import com.mysema.query.group.AggregatingProjectable;
 
 /**
  * Default implementation of the JDOQLQuery interface
@@ -25,7 +26,7 @@ import com.mysema.query.QueryMetadata;
  *
  * @param <A>
  */
-public final class JDOQLQueryImpl extends AbstractJDOQLQuery<JDOQLQueryImpl> implements JDOQLQuery{
+public final class JDOQLQueryImpl extends AbstractJDOQLQuery<JDOQLQueryImpl> implements JDOQLQuery, AggregatingProjectable{
 
     /**
      * Create a detached JDOQLQueryImpl instance
@@ -91,7 +92,16 @@ public final class JDOQLQueryImpl extends AbstractJDOQLQuery<JDOQLQueryImpl> imp
                 getMetadata().clone(), isDetach());
         query.fetchGroups.addAll(fetchGroups);
         query.maxFetchDepth = maxFetchDepth;
+        query.compiledQueryCache = compiledQueryCache;
         return query;
     }
 
+    /**
+     * Clone the state of this query to a new JDOQLQueryImpl instance with the same PersistenceManager
+     */
+    @Override
+    public JDOQLQueryImpl clone() {
+        return clone(getPersistenceManager());
+    }
+
 }
@@ -95,6 +95,8 @@ public final class JDOQLSerializer extends SerializerBase<JDOQLSerializer> {
 
     private final List<Object> constants = new ArrayList<Object>();
 
+    private final List<Object> constantKeys = new ArrayList<Object>();
+
     private final Stack<Map<Object,String>> constantToLabel = new Stack<Map<Object,String>>();
     
     public JDOQLSerializer(JDOQLTemplates templates, Expression<?> candidate) {
@@ -110,6 +112,15 @@ public final class JDOQLSerializer extends SerializerBase<JDOQLSerializer> {
     public List<Object> getConstants() {
         return constants;
     }
+
+    /**
+     * Get the constants and parameter expressions in the order of the declared parameters
+     * 
+     * @return
+     */
+    public List<Object> getConstantKeys() {
+        return constantKeys;
+    }
     
     @Override
     public Map<Object,String> getConstantToLabel() {
@@ -268,6 +279,7 @@ public final class JDOQLSerializer extends SerializerBase<JDOQLSerializer> {
             if (!first) {
                 append(COMMA);
             }
+            constantKeys.add(entry.getKey());
             if (Param.class.isInstance(entry.getKey())) {
                 Object constant = params.get(entry.getKey());
                 if (constant == null) {
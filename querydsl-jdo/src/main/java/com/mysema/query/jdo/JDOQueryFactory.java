@@ -13,6 +13,7 @@
  */
 package com.mysema.query.jdo;
 
+import javax.annotation.Nullable;
 import javax.inject.Provider;
 import javax.jdo.PersistenceManager;
 
@@ -30,8 +31,24 @@ public class JDOQueryFactory implements QueryFactory<JDOQLQuery, JDOQLSubQuery>{
 
     private final Provider<PersistenceManager> persistenceManager;
 
+    @Nullable
+    private final CompiledQueryCache compiledQueryCache;
+
     public JDOQueryFactory(Provider<PersistenceManager> persistenceManager) {
+        this(persistenceManager, null);
+    }
+
+    /**
+     * Create a new JDOQueryFactory instance, whose queries use the given compiled query cache
+     * 
+     * @param persistenceManager
+     * @param compiledQueryCache cache of the PersistenceManagerFactory of the provided 
+     *        PersistenceManagers or null
+     */
+    public JDOQueryFactory(Provider<PersistenceManager> persistenceManager, 
+            @Nullable CompiledQueryCache compiledQueryCache) {
         this.persistenceManager = persistenceManager;
+        this.compiledQueryCache = compiledQueryCache;
     }
 
     public JDOQLDeleteClause delete(EntityPath<?> path) {
@@ -43,7 +60,7 @@ public class JDOQueryFactory implements QueryFactory<JDOQLQuery, JDOQLSubQuery>{
     }
 
     public JDOQLQuery query() {
-        return new JDOQLQueryImpl(persistenceManager.get());
+        return new JDOQLQueryImpl(persistenceManager.get()).setCompiledQueryCache(compiledQueryCache);
     }
 
     public JDOQLSubQuery subQuery() {
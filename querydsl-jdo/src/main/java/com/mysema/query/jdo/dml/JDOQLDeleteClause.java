@@ -26,6 +26,7 @@ import com.mysema.query.QueryMetadata;
 import com.mysema.query.dml.DeleteClause;
 import com.mysema.query.jdo.JDOQLSerializer;
 import com.mysema.query.jdo.JDOQLTemplates;
+import com.mysema.query.support.QueryListeners;
 import com.mysema.query.types.EntityPath;
 import com.mysema.query.types.Predicate;
 
@@ -59,40 +60,39 @@ public class JDOQLDeleteClause implements DeleteClause<JDOQLDeleteClause>{
 
     @Override
     public long execute() {
+        long start = QueryListeners.now();
         Query query = persistenceManager.newQuery(entity.getType());
+        String queryString = "delete from " + entity.getType().getName();
+        Object[] constants = null;
         if (metadata.getWhere() != null) {
             JDOQLSerializer serializer = new JDOQLSerializer(templates, entity);
             serializer.handle(metadata.getWhere());
             query.setFilter(serializer.toString());
+            queryString += " where " + serializer.toString();
             Map<Object,String> constToLabel = serializer.getConstantToLabel();
-
-            try{
-                if (!constToLabel.isEmpty()) {
-                    List<Object> constants = new ArrayList<Object>(constToLabel.size());
-                    StringBuilder builder = new StringBuilder();
-                    for (Map.Entry<Object, String> entry : constToLabel.entrySet()) {
-                        if (builder.length() > 0) {
-                            builder.append(", ");
-                        }
-                        builder.append(entry.getKey().getClass().getName()).append(" ");
-                        builder.append(entry.getValue());
-                        constants.add(entry.getKey());
+            if (!constToLabel.isEmpty()) {
+                List<Object> constantList = new ArrayList<Object>(constToLabel.size());
+                StringBuilder builder = new StringBuilder();
+                for (Map.Entry<Object, String> entry : constToLabel.entrySet()) {
+                    if (builder.length() > 0) {
+                        builder.append(", ");
                     }
-                    query.declareParameters(builder.toString());
-                    return query.deletePersistentAll(constants.toArray());
-                } else {
-                    return query.deletePersistentAll();
+                    builder.append(entry.getKey().getClass().getName()).append(" ");
+                    builder.append(entry.getValue());
+                    constantList.add(entry.getKey());
                 }
-            }finally{
-                query.closeAll();
-            }
-        } else {
-            try{
-                return query.deletePersistentAll();
-            }finally{
-                query.closeAll();
+                query.declareParameters(builder.toString());
+                constants = constantList.toArray();
             }
         }
+        try{
+            long serialized = QueryListeners.now();
+            long rows = constants != null ? query.deletePersistentAll(constants) : query.deletePersistentAll();
+            QueryListeners.executed(getClass(), "delete", queryString, start, serialized, rows);
+            return rows;
+        }finally{
+            query.closeAll();
+        }
     }
     
     @Override
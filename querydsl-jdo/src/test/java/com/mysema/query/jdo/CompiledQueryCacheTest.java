@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jdo;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import javax.inject.Provider;
+import javax.jdo.PersistenceManager;
+
+import org.junit.Test;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.jdo.test.domain.QProduct;
+
+public class CompiledQueryCacheTest extends AbstractJDOTest {
+
+    private final QProduct product = QProduct.product;
+
+    @SuppressWarnings("unchecked")
+    private int openQueries(JDOQLQuery query) throws Exception {
+        Field queriesField = AbstractJDOQLQuery.class.getDeclaredField("queries");
+        queriesField.setAccessible(true);
+        return ((List<Object>)queriesField.get(query)).size();
+    }
+
+    @Test
+    public void Compiled_Queries_Are_Reused() {
+        CompiledQueryCache cache = new CompiledQueryCache();
+        query().setCompiledQueryCache(cache).from(product).where(product.name.eq("A")).list(product);
+        query().setCompiledQueryCache(cache).from(product).where(product.name.eq("B")).list(product);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void Templates_Are_Independent_Of_Callers() {
+        CompiledQueryCache cache = new CompiledQueryCache();
+        PersistenceManager other = pmf.getPersistenceManager();
+        try {
+            new JDOQLQueryImpl(other).setCompiledQueryCache(cache)
+                .from(product).where(product.name.eq("A")).list(product);
+        } finally {
+            other.close();
+        }
+        query().setCompiledQueryCache(cache).from(product).where(product.name.eq("B")).list(product);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void Compiled_Query_Cache_Disabled() {
+        CompiledQueryCache cache = new CompiledQueryCache();
+        JDOQLQuery query = query().setCompiledQueryCache(cache).setCompiledQueryCache(null);
+        query.from(product).list(product);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void Factory_Queries_Use_Cache() {
+        CompiledQueryCache cache = new CompiledQueryCache();
+        JDOQueryFactory factory = new JDOQueryFactory(new Provider<PersistenceManager>() {
+            public PersistenceManager get() {
+                return pm;
+            }
+        }, cache);
+        factory.from(product).list(product);
+        factory.from(product).list(product);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void Results_Are_Closed_Incrementally() throws Exception {
+        JDOQLQuery query = query().from(product);
+        query.count();
+        assertEquals(0, openQueries(query));
+        query.uniqueResult(product.name.max());
+        assertEquals(0, openQueries(query));
+
+        CloseableIterator<String> names = query.iterate(product.name);
+        assertEquals(1, openQueries(query));
+        while (names.hasNext()) {
+            names.next();
+        }
+        assertEquals(0, openQueries(query));
+
+        query.list(product.name);
+        assertEquals(1, openQueries(query));
+        query.close();
+        query.list(product.name);
+        assertEquals(1, openQueries(query));
+        query.close();
+    }
+
+    @Test
+    public void Detached_Results_Are_Closed_After_Execution() throws Exception {
+        JDOQLQuery query = detachedQuery().from(product);
+        query.list(product.name);
+        assertEquals(0, openQueries(query));
+        query.list(product);
+        assertEquals(0, openQueries(query));
+    }
+
+}
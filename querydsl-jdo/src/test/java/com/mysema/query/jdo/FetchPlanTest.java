@@ -14,12 +14,14 @@
 package com.mysema.query.jdo;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 
+import javax.jdo.JDOHelper;
 import javax.jdo.PersistenceManager;
 import javax.jdo.Query;
 import javax.jdo.Transaction;
@@ -28,6 +30,7 @@ import org.junit.After;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.mysema.query.jdo.test.domain.Product;
 import com.mysema.query.jdo.test.domain.QProduct;
 import com.mysema.query.jdo.test.domain.QStore;
@@ -82,6 +85,38 @@ public class FetchPlanTest extends AbstractJDOTest{
         assertEquals(1, jdoQuery.getFetchPlan().getMaxFetchDepth());
     }
     
+    @SuppressWarnings("unchecked")
+    @Test
+    public void FetchSize() throws Exception{
+        QProduct product = QProduct.product;
+        query = query();
+        query.from(product)
+            .setFetchSize(50)
+            .list(product);
+
+        Field queriesField = AbstractJDOQLQuery.class.getDeclaredField("queries");
+        queriesField.setAccessible(true);
+        List<Query> queries = (List<Query>)queriesField.get(query);
+        assertEquals(50, queries.get(0).getFetchPlan().getFetchSize());
+    }
+
+    @Test
+    public void Iterate_Detached() {
+        QProduct product = QProduct.product;
+        query = detachedQuery();
+        CloseableIterator<Product> products = query.from(product).setFetchSize(10).iterate(product);
+        int count = 0;
+        try {
+            while (products.hasNext()) {
+                assertTrue(JDOHelper.isDetached(products.next()));
+                count++;
+            }
+        } finally {
+            products.close();
+        }
+        assertEquals(30, count);
+    }
+
     @BeforeClass
     public static void doPersist() {
         PersistenceManager pm = pmf.getPersistenceManager();
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jdo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.jdo.test.domain.Product;
+import com.mysema.query.jdo.test.domain.QProduct;
+import com.mysema.query.support.QueryExecution;
+import com.mysema.query.support.QueryListener;
+import com.mysema.query.support.QueryListeners;
+
+public class QueryListenersTest extends AbstractJDOTest {
+
+    private final QProduct product = QProduct.product;
+
+    private final List<QueryExecution> executions = new ArrayList<QueryExecution>();
+
+    private final QueryListener listener = new QueryListener() {
+        @Override
+        public void executed(QueryExecution execution) {
+            executions.add(execution);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        pm.makePersistent(new Product("A", "A", 100.00, 1));
+        pm.makePersistent(new Product("B", "B", 200.00, 2));
+        QueryListeners.add(listener);
+    }
+
+    @After
+    public void tearDown() {
+        QueryListeners.remove(listener);
+        super.tearDown();
+    }
+
+    @Test
+    public void List() {
+        query().from(product).list(product.name);
+        assertEquals(1, executions.size());
+        assertEquals("list", executions.get(0).getType());
+        assertEquals(2, executions.get(0).getRows());
+    }
+
+    @Test
+    public void Count() {
+        query().from(product).count();
+        assertEquals(1, executions.size());
+        assertEquals("count", executions.get(0).getType());
+    }
+
+    @Test
+    public void Iterate() {
+        CloseableIterator<String> names = query().from(product).iterate(product.name);
+        assertTrue(executions.isEmpty());
+        names.next();
+        names.close();
+        assertEquals(1, executions.size());
+        assertEquals("iterate", executions.get(0).getType());
+        assertEquals(1, executions.get(0).getRows());
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.mysema.query.DefaultQueryMetadata;
+import com.mysema.query.JoinExpression;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.types.Constant;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.ExpressionUtils;
+import com.mysema.query.types.Operation;
+import com.mysema.query.types.Ops;
+import com.mysema.query.types.ParamExpression;
+import com.mysema.query.types.Path;
+import com.mysema.query.types.Predicate;
+
+/**
+ * BatchUtils provides support for batched JPQL DML clauses
+ * 
+ * @author tiwe
+ *
+ */
+public final class BatchUtils {
+
+    /**
+     * Maximum amount of keys in a merged in condition
+     */
+    public static final int DEFAULT_MAX_KEYS = 500;
+
+    /**
+     * Merge consecutive batch items, which differ only in the constant of a key condition
+     * <code>path = constant</code>, into items with a <code>path in (constants)</code> condition. 
+     * Items which can't be merged are returned as such, and the order of the items is retained.
+     * 
+     * @param batches batch items
+     * @param maxKeys maximum amount of keys per merged item
+     * @return merged batch items
+     */
+    public static List<QueryMetadata> merge(List<QueryMetadata> batches, int maxKeys) {
+        List<QueryMetadata> rv = new ArrayList<QueryMetadata>(batches.size());
+        KeyedItem current = null;
+        Set<Object> keys = new LinkedHashSet<Object>();
+        for (QueryMetadata metadata : batches) {
+            KeyedItem item = KeyedItem.create(metadata);
+            if (item != null && current != null && item.group.equals(current.group) && keys.size() < maxKeys) {
+                keys.add(item.key);
+            } else {
+                if (current != null) {
+                    rv.add(current.merge(keys));
+                }
+                keys = new LinkedHashSet<Object>();
+                if (item != null) {
+                    keys.add(item.key);
+                } else {
+                    rv.add(metadata);
+                }
+                current = item;
+            }
+        }
+        if (current != null) {
+            rv.add(current.merge(keys));
+        }
+        return rv;
+    }
+
+    private static void flatten(Predicate predicate, List<Predicate> conjuncts) {
+        if (predicate instanceof Operation<?> && ((Operation<?>)predicate).getOperator() == Ops.AND) {
+            for (Expression<?> arg : ((Operation<?>)predicate).getArgs()) {
+                flatten((Predicate)arg, conjuncts);
+            }
+        } else {
+            conjuncts.add(predicate);
+        }
+    }
+
+    private static final class KeyedItem {
+
+        @Nullable
+        static KeyedItem create(QueryMetadata metadata) {
+            if (metadata.getWhere() == null) {
+                return null;
+            }
+            List<Predicate> conjuncts = new ArrayList<Predicate>();
+            flatten(metadata.getWhere(), conjuncts);
+            for (int i = conjuncts.size() - 1; i >= 0; i--) {
+                Predicate conjunct = conjuncts.get(i);
+                if (conjunct instanceof Operation<?> 
+                    && Ops.equalsOps.contains(((Operation<?>)conjunct).getOperator())) {
+                    Operation<?> operation = (Operation<?>)conjunct;
+                    if (operation.getArg(0) instanceof Path<?> && operation.getArg(1) instanceof Constant<?>) {
+                        conjuncts.remove(i);
+                        return new KeyedItem(metadata, conjuncts, (Path<?>)operation.getArg(0), 
+                                ((Constant<?>)operation.getArg(1)).getConstant());
+                    }
+                }
+            }
+            return null;
+        }
+
+        private final QueryMetadata metadata;
+
+        private final List<Predicate> conditions;
+
+        private final Path<?> path;
+
+        private final Object key;
+
+        private final List<Object> group;
+
+        private KeyedItem(QueryMetadata metadata, List<Predicate> conditions, Path<?> path, Object key) {
+            this.metadata = metadata;
+            this.conditions = conditions;
+            this.path = path;
+            this.key = key;
+            this.group = Arrays.<Object>asList(metadata.getJoins(), metadata.getProjection(), 
+                    metadata.getParams(), conditions, path);
+        }
+
+        @SuppressWarnings("unchecked")
+        QueryMetadata merge(Set<Object> keys) {
+            if (keys.size() == 1) {
+                return metadata;
+            }
+            QueryMetadata merged = new DefaultQueryMetadata();
+            for (JoinExpression join : metadata.getJoins()) {
+                merged.addJoin(join.getType(), join.getTarget());
+            }
+            for (Expression<?> expr : metadata.getProjection()) {
+                merged.addProjection(expr);
+            }
+            for (Map.Entry<ParamExpression<?>, Object> entry : metadata.getParams().entrySet()) {
+                merged.setParam((ParamExpression)entry.getKey(), entry.getValue());
+            }
+            merged.addWhere(conditions.toArray(new Predicate[conditions.size()]));
+            merged.addWhere(ExpressionUtils.in((Expression)path, keys));
+            return merged;
+        }
+
+    }
+
+    private BatchUtils() {}
+
+}
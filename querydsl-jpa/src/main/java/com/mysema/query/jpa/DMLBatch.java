@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mysema.query.DefaultQueryMetadata;
+import com.mysema.query.JoinType;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.types.EntityPath;
+
+/**
+ * DMLBatch holds the state of a batched JPQL DML clause. Batch items which differ only in a key 
+ * constant are merged via {@link BatchUtils} and statements with the same query string are 
+ * reused within an execution.
+ * 
+ * @author tiwe
+ *
+ * @param <Q> query type
+ */
+public abstract class DMLBatch<Q> {
+
+    private final List<QueryMetadata> batches = new ArrayList<QueryMetadata>();
+
+    private final Map<String, Q> queries = new HashMap<String, Q>();
+
+    private final EntityPath<?> entity;
+
+    private QueryMetadata metadata;
+
+    private int maxBatchKeys = BatchUtils.DEFAULT_MAX_KEYS;
+
+    public DMLBatch(EntityPath<?> entity) {
+        this.entity = entity;
+        this.metadata = createMetadata();
+    }
+
+    private QueryMetadata createMetadata() {
+        QueryMetadata md = new DefaultQueryMetadata();
+        md.addJoin(JoinType.DEFAULT, entity);
+        return md;
+    }
+
+    /**
+     * Add the current item to the batch and start a new one
+     */
+    public void addBatch() {
+        batches.add(metadata);
+        metadata = createMetadata();
+    }
+
+    /**
+     * Execute the batch items, or the current item if no items have been added. The batch 
+     * is cleared after a successful execution.
+     * 
+     * @return affected rows
+     */
+    public long execute() {
+        try {
+            if (batches.isEmpty()) {
+                return execute(metadata);
+            } else {
+                long rv = 0;
+                for (QueryMetadata batch : BatchUtils.merge(batches, maxBatchKeys)) {
+                    rv += execute(batch);
+                }
+                batches.clear();
+                return rv;
+            }
+        } finally {
+            queries.clear();
+        }
+    }
+
+    /**
+     * Execute the given item
+     * 
+     * @param item
+     * @return affected rows
+     */
+    protected abstract long execute(QueryMetadata item);
+
+    /**
+     * Create a query for the given query string
+     * 
+     * @param queryString
+     * @param flushed true, if the persistence context has been flushed by an earlier 
+     *        statement of the execution already
+     * @return
+     */
+    protected abstract Q createQuery(String queryString, boolean flushed);
+
+    /**
+     * Get the query for the given query string, reusing the queries created in the current 
+     * execution
+     * 
+     * @param queryString
+     * @return
+     */
+    protected Q getQuery(String queryString) {
+        Q query = queries.get(queryString);
+        if (query == null) {
+            query = createQuery(queryString, !queries.isEmpty());
+            queries.put(queryString, query);
+        }
+        return query;
+    }
+
+    /**
+     * @return the metadata of the current item
+     */
+    public QueryMetadata getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Set the maximum amount of keys in a single merged batch statement
+     * 
+     * @param maxBatchKeys
+     */
+    public void setMaxBatchKeys(int maxBatchKeys) {
+        this.maxBatchKeys = maxBatchKeys;
+    }
+
+}
@@ -13,6 +13,11 @@
  */
 package com.mysema.query.jpa;
 
+import java.util.Collections;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
 import com.mysema.query.types.Ops;
 
 /**
@@ -68,4 +73,10 @@ public class EclipseLinkTemplates extends JPQLTemplates {
         return true;
     }
 
+    @Override
+    public Map<String, Object> getQueryCacheHints(@Nullable String cacheRegion) {
+        // EclipseLink caches query results per named query, regions are not supported
+        return Collections.<String, Object>singletonMap("eclipselink.query-results-cache", "True");
+    }
+
 }
@@ -15,7 +15,11 @@ package com.mysema.query.jpa;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
 
 import com.mysema.query.types.Constant;
 import com.mysema.query.types.Operator;
@@ -111,5 +115,15 @@ public class HQLTemplates extends JPQLTemplates {
         Class<?> type = expr.getType();
         return type.isArray() || Collection.class.isAssignableFrom(type);
     }
+
+    @Override
+    public Map<String, Object> getQueryCacheHints(@Nullable String cacheRegion) {
+        Map<String, Object> hints = new HashMap<String, Object>();
+        hints.put("org.hibernate.cacheable", Boolean.TRUE);
+        if (cacheRegion != null) {
+            hints.put("org.hibernate.cacheRegion", cacheRegion);
+        }
+        return hints;
+    }
     
 }
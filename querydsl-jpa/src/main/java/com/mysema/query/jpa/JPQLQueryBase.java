@@ -13,12 +13,16 @@
  */
 package com.mysema.query.jpa;
 
+import java.util.HashMap;
 import java.util.Map;
 
+import com.mysema.query.BoundQueryMetadata;
+import com.mysema.query.PreparedQuery;
 import com.mysema.query.QueryMetadata;
 import com.mysema.query.support.ProjectableQuery;
 import com.mysema.query.types.CollectionExpression;
 import com.mysema.query.types.EntityPath;
+import com.mysema.query.types.Expression;
 import com.mysema.query.types.MapExpression;
 import com.mysema.query.types.Path;
 import com.mysema.query.types.Predicate;
@@ -54,13 +58,36 @@ public abstract class JPQLQueryBase<Q extends JPQLQueryBase<Q>> extends Projecta
     }
 
     protected String buildQueryString(boolean forCountRow) {
-        if (queryMixin.getMetadata().getJoins().isEmpty()) {
+        QueryMetadata metadata = queryMixin.getMetadata();
+        if (metadata.getJoins().isEmpty()) {
             throw new IllegalArgumentException("No joins given");
         }
-        JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serialize(queryMixin.getMetadata(), forCountRow, null);
-        constants = serializer.getConstantToLabel();
-        return serializer.toString();
+        PreparedQuery preparedQuery = null;
+        Object cacheKey = null;
+        if (metadata instanceof BoundQueryMetadata) {
+            BoundQueryMetadata bound = (BoundQueryMetadata)metadata;
+            preparedQuery = bound.getPreparedQuery();
+            cacheKey = bound.getCacheKey(templates, forCountRow);
+            SerializedQuery cached = preparedQuery.getCachedForm(cacheKey);
+            if (cached != null) {
+                constants = cached.constants;
+                return cached.queryString;
+            }
+        }
+        String queryString;
+        if (templates.isQueryStringCacheEnabled()) {
+            constants = new HashMap<Object,String>();
+            queryString = templates.getQueryStringCache().serialize(templates, metadata, forCountRow, constants);
+        } else {
+            JPQLSerializer serializer = new JPQLSerializer(templates);
+            serializer.serialize(metadata, forCountRow, null);
+            constants = serializer.getConstantToLabel();
+            queryString = serializer.toString();
+        }
+        if (preparedQuery != null) {
+            preparedQuery.cacheForm(cacheKey, new SerializedQuery(queryString, constants));
+        }
+        return queryString;
     }
 
     protected void reset() {
@@ -85,6 +112,36 @@ public abstract class JPQLQueryBase<Q extends JPQLQueryBase<Q>> extends Projecta
         return queryMixin.fetchAll();
     }
 
+    /**
+     * Add left fetch joins for the associations navigated by the given paths. 
+     * Intermediate associations and collection valued paths are fetched as well, 
+     * existing joins of the associations are reused.
+     * 
+     * <p>e.g. fetchJoins(order.customer.address.city) adds fetch joins for 
+     * order.customer and order.customer.address</p>
+     * 
+     * @param paths navigated paths
+     * @return
+     */
+    public Q fetchJoins(Expression<?>... paths) {
+        return queryMixin.fetchJoins(paths);
+    }
+
+    /**
+     * Add left joins for the associations navigated by the given projection and return the 
+     * projection rebased onto the join aliases. 
+     * 
+     * <p>Unlike implicit joins via path navigation the left joins retain rows 
+     * with null associations, so the projection is populated like it would be 
+     * from the loaded entities, but without loading them.</p>
+     * 
+     * @param projection projection to be rebased
+     * @return rebased projection
+     */
+    public <RT> Expression<RT> joinPaths(Expression<RT> projection) {
+        return queryMixin.joinPaths(projection);
+    }
+
     public Q from(EntityPath<?>... args) {
         return queryMixin.from(args);
     }
@@ -238,4 +295,17 @@ public abstract class JPQLQueryBase<Q extends JPQLQueryBase<Q>> extends Projecta
         return queryMixin.getMetadata();
     }
 
+    private static final class SerializedQuery {
+
+        private final String queryString;
+
+        private final Map<Object,String> constants;
+
+        SerializedQuery(String queryString, Map<Object,String> constants) {
+            this.queryString = queryString;
+            this.constants = constants;
+        }
+
+    }
+
 }
@@ -18,6 +18,7 @@ import java.util.List;
 import java.util.Set;
 
 import com.mysema.query.BooleanBuilder;
+import com.mysema.query.BoundQueryMetadata;
 import com.mysema.query.JoinExpression;
 import com.mysema.query.JoinFlag;
 import com.mysema.query.QueryMetadata;
@@ -69,6 +70,29 @@ public class JPQLQueryMixin<T> extends QueryMixin<T> {
         return getSelf();
     }
 
+    public T fetchJoins(Expression<?>... paths){
+        assertNotPrepared("fetchJoins");
+        JoinPlanner planner = new JoinPlanner(getMetadata(), true);
+        for (Expression<?> path : paths){
+            path.accept(planner, null);
+        }
+        return getSelf();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <RT> Expression<RT> joinPaths(Expression<RT> projection){
+        assertNotPrepared("joinPaths");
+        JoinPlanner planner = new JoinPlanner(getMetadata(), false);
+        return (Expression<RT>) projection.accept(planner, null);
+    }
+
+    private void assertNotPrepared(String method) {
+        if (getMetadata() instanceof BoundQueryMetadata) {
+            throw new UnsupportedOperationException(method + " can't be used with prepared queries, " +
+                    "the joins need to be planned before the query is prepared");
+        }
+    }
+
     public T with(Predicate... conditions){
         for (Predicate condition : normalize(conditions, false)){
             getMetadata().addJoinCondition(condition);
@@ -13,6 +13,9 @@
  */
 package com.mysema.query.jpa;
 
+import java.util.Collections;
+import java.util.Map;
+
 import javax.annotation.Nullable;
 
 import com.mysema.query.types.Constant;
@@ -41,6 +44,10 @@ public class JPQLTemplates extends Templates {
     public static final Operator<Boolean> MEMBER_OF = new OperatorImpl<Boolean>("MEMBER_OF",Object.class, Object.class);
 
     public static final JPQLTemplates DEFAULT = new JPQLTemplates();
+
+    private final QueryStringCache queryStringCache = new QueryStringCache();
+
+    private volatile boolean queryStringCacheEnabled = false;
     
     protected JPQLTemplates() {
         this(DEFAULT_ESCAPE);
@@ -148,4 +155,41 @@ public class JPQLTemplates extends Templates {
         return false;
     }
 
+    /**
+     * Get the provider specific query hints which enable the caching of query results
+     * 
+     * @param cacheRegion name of the cache region or null for the default region
+     * @return
+     */
+    public Map<String, Object> getQueryCacheHints(@Nullable String cacheRegion) {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Get the cache of serialized query strings used with these templates
+     * 
+     * @return
+     */
+    public QueryStringCache getQueryStringCache() {
+        return queryStringCache;
+    }
+
+    public boolean isQueryStringCacheEnabled() {
+        return queryStringCacheEnabled;
+    }
+
+    /**
+     * Enable or disable the caching of serialized query strings for these templates. The cache 
+     * is disabled by default. Since the DEFAULT instances are shared by all their users, the 
+     * cache should preferably be enabled on a dedicated templates instance.
+     * 
+     * @param queryStringCacheEnabled
+     */
+    public void setQueryStringCacheEnabled(boolean queryStringCacheEnabled) {
+        this.queryStringCacheEnabled = queryStringCacheEnabled;
+        if (!queryStringCacheEnabled) {
+            queryStringCache.clear();
+        }
+    }
+
 }
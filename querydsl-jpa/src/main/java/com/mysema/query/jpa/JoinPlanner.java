@@ -0,0 +1,271 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.mysema.query.JoinExpression;
+import com.mysema.query.JoinType;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.types.CollectionExpression;
+import com.mysema.query.types.Constant;
+import com.mysema.query.types.EntityPath;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.ExpressionBase;
+import com.mysema.query.types.FactoryExpression;
+import com.mysema.query.types.Operation;
+import com.mysema.query.types.OperationImpl;
+import com.mysema.query.types.Operator;
+import com.mysema.query.types.Ops;
+import com.mysema.query.types.ParamExpression;
+import com.mysema.query.types.Path;
+import com.mysema.query.types.PathImpl;
+import com.mysema.query.types.PathMetadata;
+import com.mysema.query.types.PathType;
+import com.mysema.query.types.PredicateOperation;
+import com.mysema.query.types.SubQueryExpression;
+import com.mysema.query.types.TemplateExpression;
+import com.mysema.query.types.TemplateExpressionImpl;
+import com.mysema.query.types.Visitor;
+import com.mysema.query.types.path.EntityPathBase;
+import com.mysema.query.types.template.BooleanTemplate;
+
+/**
+ * JoinPlanner adds left joins for the associations navigated by paths and rebases the paths 
+ * onto the join aliases
+ * 
+ * <p>Associations which are already joined with an alias are reused. In fetch mode the joins of 
+ * the navigated associations are marked as fetch joins and collection valued paths are 
+ * joined as well. Joins declared explicitly are not modified.</p>
+ *
+ * @author tiwe
+ *
+ */
+final class JoinPlanner implements Visitor<Expression<?>, Void> {
+
+    private final QueryMetadata metadata;
+
+    private final boolean fetch;
+
+    private final Map<Path<?>, Path<?>> aliases = new HashMap<Path<?>, Path<?>>();
+
+    private final Map<Path<?>, JoinExpression> joins = new HashMap<Path<?>, JoinExpression>();
+
+    private final Set<String> variables = new HashSet<String>();
+
+    public JoinPlanner(QueryMetadata metadata, boolean fetch) {
+        this.metadata = metadata;
+        this.fetch = fetch;
+        for (JoinExpression join : metadata.getJoins()) {
+            if (join.getTarget() instanceof Operation<?>) {
+                Operation<?> target = (Operation<?>)join.getTarget();
+                if (target.getOperator() == Ops.ALIAS) {
+                    variables.add(target.getArg(1).toString());
+                    if (target.getArg(0) instanceof Path<?>) {
+                        register((Path<?>)target.getArg(0), (Path<?>)target.getArg(1), join);
+                    }
+                }
+            } else {
+                variables.add(join.getTarget().toString());
+            }
+        }
+    }
+
+    private void register(Path<?> path, Path<?> alias, JoinExpression join) {
+        aliases.put(path, alias);
+        joins.put(path, join);
+    }
+
+    private Path<?> reuse(Path<?> path) {
+        Path<?> alias = aliases.get(path);
+        if (fetch && alias instanceof JoinAlias) {
+            joins.get(path).addFlag(JPQLQueryMixin.FETCH);
+        }
+        return alias;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Path<?> join(Path<?> path, Path<?> target) {
+        Class<?> type = path.getType();
+        if (path instanceof CollectionExpression<?,?>) {
+            type = ((CollectionExpression<?,?>)path).getParameter(0);
+        }
+        String variable = path.toString().replace('.', '_');
+        String unique = variable;
+        for (int i = 1; !variables.add(unique); i++) {
+            unique = variable + "_" + i;
+        }
+        Path<?> alias = new JoinAlias(type, unique);
+        metadata.addJoin(JoinType.LEFTJOIN, OperationImpl.create((Class)type, Ops.ALIAS, target, alias));
+        List<JoinExpression> joinList = metadata.getJoins();
+        JoinExpression join = joinList.get(joinList.size() - 1);
+        if (fetch) {
+            join.addFlag(JPQLQueryMixin.FETCH);
+        }
+        register(path, alias, join);
+        if (target != path) {
+            register(target, alias, join);
+        }
+        return alias;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Path<?> replaceParent(Path<?> path, Path<?> parent) {
+        PathMetadata<?> metadata = new PathMetadata(parent, path.getMetadata().getExpression(),
+                path.getMetadata().getPathType());
+        return new PathImpl(path.getType(), metadata);
+    }
+
+    private Expression<?>[] visit(List<Expression<?>> exprs) {
+        Expression<?>[] args = new Expression<?>[exprs.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = exprs.get(i).accept(this, null);
+        }
+        return args;
+    }
+
+    private static boolean changed(List<Expression<?>> exprs, Expression<?>[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] != exprs.get(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Expression<?> visit(Constant<?> expr, Void context) {
+        return expr;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Expression<?> visit(FactoryExpression<?> expr, Void context) {
+        Expression<?>[] args = visit(expr.getArgs());
+        if (changed(expr.getArgs(), args)) {
+            return new RebasedFactoryExpression(expr, args);
+        } else {
+            return expr;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Expression<?> visit(Operation<?> expr, Void context) {
+        Expression<?>[] args = visit(expr.getArgs());
+        if (!changed(expr.getArgs(), args)) {
+            return expr;
+        } else if (expr.getType().equals(Boolean.class)) {
+            return new PredicateOperation((Operator)expr.getOperator(), args);
+        } else {
+            return new OperationImpl(expr.getType(), expr.getOperator(), args);
+        }
+    }
+
+    @Override
+    public Expression<?> visit(ParamExpression<?> expr, Void context) {
+        return expr;
+    }
+
+    @Override
+    public Expression<?> visit(Path<?> expr, Void context) {
+        Path<?> parent = expr.getMetadata().getParent();
+        if (parent == null || expr.getMetadata().getPathType() != PathType.PROPERTY) {
+            return expr;
+        } else if (aliases.containsKey(expr)) {
+            return reuse(expr);
+        }
+        Path<?> rebasedParent = (Path<?>) parent.accept(this, null);
+        Path<?> rebased = rebasedParent != parent ? replaceParent(expr, rebasedParent) : expr;
+        if (aliases.containsKey(rebased)) {
+            return reuse(rebased);
+        } else if (expr instanceof EntityPath<?> || (fetch && expr instanceof CollectionExpression<?,?>)) {
+            return join(expr, rebased);
+        } else {
+            return rebased;
+        }
+    }
+
+    @Override
+    public Expression<?> visit(SubQueryExpression<?> expr, Void context) {
+        return expr;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Expression<?> visit(TemplateExpression<?> expr, Void context) {
+        Expression<?>[] args = visit(expr.getArgs());
+        if (!changed(expr.getArgs(), args)) {
+            return expr;
+        } else if (expr.getType().equals(Boolean.class)) {
+            return BooleanTemplate.create(expr.getTemplate(), args);
+        } else {
+            return new TemplateExpressionImpl(expr.getType(), expr.getTemplate(), args);
+        }
+    }
+
+    /**
+     * Alias of a join added by the planner
+     */
+    private static final class JoinAlias<T> extends EntityPathBase<T> {
+
+        private static final long serialVersionUID = -3457634950318575683L;
+
+        JoinAlias(Class<? extends T> type, String variable) {
+            super(type, variable);
+        }
+
+    }
+
+    /**
+     * FactoryExpression with rebased arguments, which delegates the instance creation to
+     * the original expression
+     */
+    private static final class RebasedFactoryExpression<T> extends ExpressionBase<T> implements FactoryExpression<T> {
+
+        private static final long serialVersionUID = 2436387234125633651L;
+
+        private final FactoryExpression<T> inner;
+
+        private final List<Expression<?>> args;
+
+        RebasedFactoryExpression(FactoryExpression<T> inner, Expression<?>[] args) {
+            super(inner.getType());
+            this.inner = inner;
+            this.args = Arrays.asList(args);
+        }
+
+        @Override
+        public List<Expression<?>> getArgs() {
+            return args;
+        }
+
+        @Override
+        public T newInstance(Object... a) {
+            return inner.newInstance(a);
+        }
+
+        @Override
+        public <R, C> R accept(Visitor<R, C> v, C context) {
+            return v.visit(this, context);
+        }
+
+    }
+
+}
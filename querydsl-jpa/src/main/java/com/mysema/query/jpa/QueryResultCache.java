@@ -0,0 +1,362 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import com.mysema.query.JoinExpression;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.types.CollectionExpression;
+import com.mysema.query.types.Constant;
+import com.mysema.query.types.EntityPath;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.FactoryExpression;
+import com.mysema.query.types.Operation;
+import com.mysema.query.types.OrderSpecifier;
+import com.mysema.query.types.ParamExpression;
+import com.mysema.query.types.Path;
+import com.mysema.query.types.SubQueryExpression;
+import com.mysema.query.types.TemplateExpression;
+import com.mysema.query.types.Visitor;
+
+/**
+ * QueryResultCache is a provider independent cache for query results.
+ * 
+ * <p>Entries are keyed by the serialized query and its bound constants and they are invalidated 
+ * by the entity types the query refers to. The cache is bounded in size with least recently used 
+ * eviction, and entries can optionally expire after a time to live.</p>
+ * 
+ * <p>Cached results are shared between sessions, so the cache is meant for read-mostly data. 
+ * Only projections of immutable values are cached, since managed entities can't be shared 
+ * between persistence contexts and mutable objects such as DTOs could be modified by any of 
+ * the callers, see {@link #isCacheable(List)}. The lists and <code>Object[]</code> rows are 
+ * copied for each caller. Changes which are not done via DML clauses of a cache aware factory 
+ * need to be invalidated explicitly via {@link #invalidate(Class)} or {@link #clear()}.</p>
+ * 
+ * @author tiwe
+ *
+ */
+public final class QueryResultCache {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, 
+            Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class));
+
+    private final Map<List<Object>, CacheEntry> entries;
+
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), 
+        evictions = new AtomicLong(), invalidations = new AtomicLong();
+
+    private final int maxSize;
+
+    private final long timeToLive;
+
+    public QueryResultCache() {
+        this(DEFAULT_MAX_SIZE, 0);
+    }
+
+    /**
+     * Create a new QueryResultCache instance
+     * 
+     * @param maxSize maximum amount of entries
+     * @param timeToLive time to live of entries in milliseconds or 0 for no expiration
+     */
+    @SuppressWarnings("serial")
+    public QueryResultCache(final int maxSize, long timeToLive) {
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<List<Object>, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, CacheEntry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the cached results for the given key
+     * 
+     * @param key cache key
+     * @return copy of the results or null, if no valid entry is cached
+     */
+    @Nullable
+    public List<?> get(List<Object> key) {
+        CacheEntry entry = entries.get(key);
+        if (entry != null && timeToLive > 0 && System.currentTimeMillis() - entry.created > timeToLive) {
+            if (entries.remove(key) != null) {
+                evictions.incrementAndGet();
+            }
+            entry = null;
+        }
+        if (entry != null) {
+            hits.incrementAndGet();
+            List<Object> rv = new ArrayList<Object>(entry.results.size());
+            for (Object row : entry.results) {
+                rv.add(row instanceof Object[] ? ((Object[])row).clone() : row);
+            }
+            return rv;
+        } else {
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Cache the given results. The results should contain only immutable values or 
+     * <code>Object[]</code> rows of them.
+     * 
+     * @param key cache key
+     * @param results results to be cached
+     * @param entityTypes entity types the results depend on
+     */
+    public void put(List<Object> key, List<?> results, Set<Class<?>> entityTypes) {
+        List<Object> copy = new ArrayList<Object>(results.size());
+        for (Object row : results) {
+            copy.add(row instanceof Object[] ? ((Object[])row).clone() : row);
+        }
+        entries.put(key, new CacheEntry(copy, entityTypes, System.currentTimeMillis()));
+    }
+
+    /**
+     * Remove all entries which depend on the given entity type, its supertypes or its subtypes
+     * 
+     * @param entityType entity type
+     * @return amount of removed entries
+     */
+    public int invalidate(Class<?> entityType) {
+        int removed = 0;
+        synchronized (entries) {
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                for (Class<?> type : iterator.next().entityTypes) {
+                    if (type.isAssignableFrom(entityType) || entityType.isAssignableFrom(type)) {
+                        iterator.remove();
+                        removed++;
+                        break;
+                    }
+                }
+            }
+        }
+        invalidations.addAndGet(removed);
+        return removed;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return amount of lookups served from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return amount of lookups not served from the cache
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return amount of entries evicted because of the size limit or expiration
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return amount of entries removed via {@link #invalidate(Class)}
+     */
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get whether the results of the given projection can be cached. Only projections of 
+     * immutable values, such as Strings, numbers and enums, are cacheable. Entities, collections 
+     * and factory expressions are not cacheable, since their results could be modified by the 
+     * callers. Counts are always cacheable, since they don't return the projection.
+     * 
+     * @param projection projection of a query
+     * @return true, if the results can be cached
+     */
+    public static boolean isCacheable(List<? extends Expression<?>> projection) {
+        for (Expression<?> expr : projection) {
+            if (!isCacheable(expr)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isCacheable(Expression<?> expr) {
+        Class<?> type = expr.getType();
+        return !(expr instanceof FactoryExpression<?>)
+            && !(expr instanceof EntityPath<?>) 
+            && !(expr instanceof CollectionExpression<?,?>)
+            && (type.isPrimitive() || type.isEnum() || IMMUTABLE_TYPES.contains(type));
+    }
+
+    /**
+     * Get the entity types the given query refers to
+     * 
+     * @param metadata query metadata
+     * @return entity types
+     */
+    public static Set<Class<?>> getEntityTypes(QueryMetadata metadata) {
+        EntityTypeCollector collector = new EntityTypeCollector();
+        collector.collect(metadata);
+        return collector.types;
+    }
+
+    private static final class CacheEntry {
+
+        private final List<?> results;
+
+        private final Set<Class<?>> entityTypes;
+
+        private final long created;
+
+        CacheEntry(List<?> results, Set<Class<?>> entityTypes, long created) {
+            this.results = results;
+            this.entityTypes = entityTypes;
+            this.created = created;
+        }
+
+    }
+
+    /**
+     * Collects the types of the entity paths of a query including its subqueries
+     */
+    private static final class EntityTypeCollector implements Visitor<Void, Void> {
+
+        private final Set<Class<?>> types = new HashSet<Class<?>>();
+
+        void collect(QueryMetadata md) {
+            for (JoinExpression join : md.getJoins()) {
+                join.getTarget().accept(this, null);
+                if (join.getCondition() != null) {
+                    join.getCondition().accept(this, null);
+                }
+            }
+            for (Expression<?> expr : md.getProjection()) {
+                expr.accept(this, null);
+            }
+            if (md.getWhere() != null) {
+                md.getWhere().accept(this, null);
+            }
+            for (Expression<?> expr : md.getGroupBy()) {
+                expr.accept(this, null);
+            }
+            if (md.getHaving() != null) {
+                md.getHaving().accept(this, null);
+            }
+            for (OrderSpecifier<?> order : md.getOrderBy()) {
+                order.getTarget().accept(this, null);
+            }
+        }
+
+        @Override
+        public Void visit(Constant<?> expr, Void context) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Void context) {
+            for (Expression<?> arg : expr.getArgs()) {
+                arg.accept(this, null);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Void context) {
+            for (Expression<?> arg : expr.getArgs()) {
+                arg.accept(this, null);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Void context) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Void context) {
+            if (expr instanceof EntityPath<?>) {
+                types.add(expr.getType());
+            } else if (expr instanceof CollectionExpression<?,?>) {
+                types.add(((CollectionExpression<?,?>)expr).getParameter(0));
+            }
+            if (expr.getMetadata().getParent() != null) {
+                expr.getMetadata().getParent().accept(this, null);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Void context) {
+            collect(expr.getMetadata());
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Void context) {
+            for (Expression<?> arg : expr.getArgs()) {
+                arg.accept(this, null);
+            }
+            return null;
+        }
+
+    }
+
+}
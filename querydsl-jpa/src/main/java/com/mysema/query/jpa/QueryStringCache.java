@@ -0,0 +1,340 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import com.mysema.query.JoinExpression;
+import com.mysema.query.JoinFlag;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.types.Constant;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.FactoryExpression;
+import com.mysema.query.types.Operation;
+import com.mysema.query.types.OrderSpecifier;
+import com.mysema.query.types.ParamExpression;
+import com.mysema.query.types.Path;
+import com.mysema.query.types.SubQueryExpression;
+import com.mysema.query.types.TemplateExpression;
+import com.mysema.query.types.Visitor;
+
+/**
+ * QueryStringCache caches JPQL serializations by the structural shape of the query metadata.
+ * 
+ * <p>The shape ignores constant values, but retains their types and which constants are equal,
+ * since equal constants share a label. A cache entry stores the JPQL string and the labels of the 
+ * constants and parameters, so that repeated queries skip the serialization.</p>
+ * 
+ * <p>Queries whose serialization rewrites or inlines constant values, such as matches or instanceOf 
+ * expressions, are not cached.</p>
+ * 
+ * @author tiwe
+ *
+ */
+public final class QueryStringCache {
+
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private static final Object CONSTANT = "constant", FACTORY = "factory", OPERATION = "operation",
+        PARAM = "param", PATH = "path", SUBQUERY = "subQuery", TEMPLATE = "template";
+
+    private static final Object UNCACHEABLE = new Object();
+
+    private final Map<List<Object>, Object> entries;
+
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), 
+        uncacheable = new AtomicLong(), evictions = new AtomicLong();
+
+    private final int maxSize;
+
+    public QueryStringCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    @SuppressWarnings("serial")
+    public QueryStringCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<List<Object>, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Object> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Serialize the given metadata and populate the given constant to label mapping
+     * 
+     * @param templates templates to be used for serialization
+     * @param metadata query metadata
+     * @param forCountRow true, for count queries
+     * @param constantToLabel mapping to be populated
+     * @return JPQL query string
+     */
+    public String serialize(JPQLTemplates templates, QueryMetadata metadata, boolean forCountRow, 
+            Map<Object, String> constantToLabel) {
+        Shape shape = new Shape();
+        List<Object> key = shape.key(metadata, forCountRow);
+        Object cached = entries.get(key);
+        if (cached instanceof Entry) {
+            hits.incrementAndGet();
+            Entry entry = (Entry)cached;
+            for (int i = 0; i < entry.constantLabels.length; i++) {
+                constantToLabel.put(shape.constants.get(i).getConstant(), entry.constantLabels[i]);
+            }
+            constantToLabel.putAll(entry.paramLabels);
+            return entry.queryString;
+        }
+
+        TrackingSerializer serializer = new TrackingSerializer(templates);
+        serializer.serialize(metadata, forCountRow, null);
+        String queryString = serializer.toString();
+        constantToLabel.putAll(serializer.getConstantToLabel());
+        if (cached == null) {
+            Entry entry = createEntry(queryString, shape.constants, serializer);
+            if (entry != null) {
+                misses.incrementAndGet();
+                entries.put(key, entry);
+            } else {
+                uncacheable.incrementAndGet();
+                entries.put(key, UNCACHEABLE);
+            }
+        } else {
+            uncacheable.incrementAndGet();
+        }
+        return queryString;
+    }
+
+    @Nullable
+    private Entry createEntry(String queryString, List<Constant<?>> constants, TrackingSerializer serializer) {
+        // all constants need to be serialized as such
+        Map<Constant<?>, Boolean> original = new IdentityHashMap<Constant<?>, Boolean>();
+        for (Constant<?> constant : constants) {
+            original.put(constant, Boolean.TRUE);
+        }
+        if (!original.equals(serializer.visited)) {
+            return null;
+        }
+        String[] constantLabels = new String[constants.size()];
+        for (int i = 0; i < constantLabels.length; i++) {
+            constantLabels[i] = serializer.getConstantToLabel().get(constants.get(i).getConstant());
+        }
+        Map<Object, String> paramLabels = new HashMap<Object, String>();
+        for (Map.Entry<Object, String> entry : serializer.getConstantToLabel().entrySet()) {
+            if (entry.getKey() instanceof ParamExpression) {
+                paramLabels.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new Entry(queryString, constantLabels, paramLabels);
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return amount of serializations served from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return amount of serializations added to the cache
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return amount of serializations which couldn't be cached
+     */
+    public long getUncacheableCount() {
+        return uncacheable.get();
+    }
+
+    /**
+     * @return amount of entries evicted because of the size limit
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+
+        private final String queryString;
+
+        private final String[] constantLabels;
+
+        private final Map<Object, String> paramLabels;
+
+        Entry(String queryString, String[] constantLabels, Map<Object, String> paramLabels) {
+            this.queryString = queryString;
+            this.constantLabels = constantLabels;
+            this.paramLabels = paramLabels;
+        }
+
+    }
+
+    /**
+     * JPQLSerializer which records the serialized Constant instances
+     */
+    private static final class TrackingSerializer extends JPQLSerializer {
+
+        private final Map<Constant<?>, Boolean> visited = new IdentityHashMap<Constant<?>, Boolean>();
+
+        TrackingSerializer(JPQLTemplates templates) {
+            super(templates);
+        }
+
+        @Override
+        public Void visit(Constant<?> expr, Void context) {
+            visited.put(expr, Boolean.TRUE);
+            return super.visit(expr, context);
+        }
+
+    }
+
+    /**
+     * Shape creates the structural key of query metadata and collects the constants in 
+     * serialization order
+     */
+    private static final class Shape implements Visitor<Object, Void> {
+
+        private final List<Constant<?>> constants = new ArrayList<Constant<?>>();
+
+        private final Map<Object, Integer> slots = new HashMap<Object, Integer>();
+
+        public List<Object> key(QueryMetadata metadata, boolean forCountRow) {
+            List<? extends Expression<?>> projection = metadata.getProjection();
+            List<Object> key = new ArrayList<Object>();
+            key.add(forCountRow);
+            key.add(metadata.isDistinct());
+            if (!forCountRow || (!projection.isEmpty() && !(projection.get(0) instanceof FactoryExpression))) {
+                key.add(keys(projection));
+            }
+            for (JoinExpression join : metadata.getJoins()) {
+                key.add(join.getType());
+                key.add(new HashSet<JoinFlag>(join.getFlags()));
+                key.add(join.getTarget().accept(this, null));
+                key.add(key(join.getCondition()));
+            }
+            key.add(key(metadata.getWhere()));
+            key.add(keys(metadata.getGroupBy()));
+            key.add(key(metadata.getHaving()));
+            if (!forCountRow) {
+                for (OrderSpecifier<?> order : metadata.getOrderBy()) {
+                    key.add(order.getOrder());
+                    key.add(order.getTarget().accept(this, null));
+                }
+            }
+            return key;
+        }
+
+        @Nullable
+        private Object key(@Nullable Expression<?> expr) {
+            return expr != null ? expr.accept(this, null) : null;
+        }
+
+        private List<Object> keys(List<? extends Expression<?>> exprs) {
+            List<Object> keys = new ArrayList<Object>(exprs.size());
+            for (Expression<?> expr : exprs) {
+                keys.add(expr.accept(this, null));
+            }
+            return keys;
+        }
+
+        @Override
+        public Object visit(Constant<?> expr, Void context) {
+            Object value = expr.getConstant();
+            Integer slot = slots.get(value);
+            if (slot == null) {
+                slot = slots.size();
+                slots.put(value, slot);
+            }
+            constants.add(expr);
+            return Arrays.asList(CONSTANT, expr.getClass(), expr.getType(), value.getClass(), slot);
+        }
+
+        @Override
+        public Object visit(FactoryExpression<?> expr, Void context) {
+            return Arrays.asList(FACTORY, expr.getClass(), expr.getType(), keys(expr.getArgs()));
+        }
+
+        @Override
+        public Object visit(Operation<?> expr, Void context) {
+            return Arrays.asList(OPERATION, expr.getClass(), expr.getType(), expr.getOperator(), 
+                    keys(expr.getArgs()));
+        }
+
+        @Override
+        public Object visit(ParamExpression<?> expr, Void context) {
+            return Arrays.asList(PARAM, expr);
+        }
+
+        @Override
+        public Object visit(Path<?> expr, Void context) {
+            List<Object> key = new ArrayList<Object>();
+            key.add(PATH);
+            key.add(expr);
+            Path<?> path = expr;
+            while (path != null) {
+                key.add(path.getClass());
+                key.add(path.getType());
+                path = path.getMetadata().getParent();
+            }
+            return key;
+        }
+
+        @Override
+        public Object visit(SubQueryExpression<?> expr, Void context) {
+            return Arrays.asList(SUBQUERY, expr.getType(), key(expr.getMetadata(), false));
+        }
+
+        @Override
+        public Object visit(TemplateExpression<?> expr, Void context) {
+            return Arrays.asList(TEMPLATE, expr.getClass(), expr.getType(), expr.getTemplate(), 
+                    keys(expr.getArgs()));
+        }
+
+    }
+
+}
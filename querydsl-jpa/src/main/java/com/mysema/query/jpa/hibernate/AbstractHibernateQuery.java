@@ -39,6 +39,7 @@ import com.mysema.query.SearchResults;
 import com.mysema.query.jpa.HQLTemplates;
 import com.mysema.query.jpa.JPQLQueryBase;
 import com.mysema.query.jpa.JPQLTemplates;
+import com.mysema.query.support.QueryListeners;
 import com.mysema.query.types.ArrayConstructorExpression;
 import com.mysema.query.types.Expression;
 import com.mysema.query.types.FactoryExpression;
@@ -64,6 +65,10 @@ public abstract class AbstractHibernateQuery<Q extends AbstractHibernateQuery<Q>
 
     protected int fetchSize = 0;
 
+    protected int clearInterval = 0;
+
+    protected boolean useQueryIterate = false;
+
     protected final Map<Path<?>,LockMode> lockModes = new HashMap<Path<?>,LockMode>();
     
     @Nullable
@@ -84,12 +89,15 @@ public abstract class AbstractHibernateQuery<Q extends AbstractHibernateQuery<Q>
 
     @Override
     public long count() {
+        long start = QueryListeners.now();
         QueryModifiers modifiers = getMetadata().getModifiers();
         String queryString = toCountRowsString();
         logQuery(queryString);
+        long serialized = QueryListeners.now();
         Query query = createQuery(queryString, modifiers, true);
         reset();
         Long rv = (Long)query.uniqueResult();
+        QueryListeners.executed(getClass(), "count", queryString, start, serialized, 1);
         if (rv != null) {
             return rv.longValue();
         } else {
@@ -196,14 +204,16 @@ public abstract class AbstractHibernateQuery<Q extends AbstractHibernateQuery<Q>
      * contains multiple results pre row, the results are returned in
      * an instance of <tt>Object[]</tt>.<br>
      * <br>
-     * Entities returned as results are initialized on demand. The first
-     * SQL query returns identifiers only.<br>
+     * The results are streamed via forward-only <tt>ScrollableResults</tt> using 
+     * the configured fetch size. The iterator should be closed after usage.<br>
+     * 
+     * @see #setFetchSize(int)
+     * @see #setClearInterval(int)
+     * @see #setUseQueryIterate(boolean)
      */
-    @SuppressWarnings("unchecked")
     public CloseableIterator<Object[]> iterate(Expression<?>[] args) {
-        Query query = createQuery(args);
-        reset();
-        return new IteratorAdapter<Object[]>(query.iterate());
+        getQueryMixin().addToProjection(args);
+        return iterate(isArrayProjection());
     }
 
     /**
@@ -211,42 +221,89 @@ public abstract class AbstractHibernateQuery<Q extends AbstractHibernateQuery<Q>
      * contains multiple results pre row, the results are returned in
      * an instance of <tt>Object[]</tt>.<br>
      * <br>
-     * Entities returned as results are initialized on demand. The first
-     * SQL query returns identifiers only.<br>
+     * The results are streamed via forward-only <tt>ScrollableResults</tt> using 
+     * the configured fetch size. The iterator should be closed after usage.<br>
+     * 
+     * @see #setFetchSize(int)
+     * @see #setClearInterval(int)
+     * @see #setUseQueryIterate(boolean)
      */
-    @SuppressWarnings("unchecked")
     public <RT> CloseableIterator<RT> iterate(Expression<RT> projection) {
-        Query query = createQuery(projection);
+        getQueryMixin().addToProjection(projection);
+        return iterate(false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <RT> CloseableIterator<RT> iterate(boolean asArray) {
+        long start = QueryListeners.now();
+        String queryString = toQueryString();
+        logQuery(queryString);
+        long serialized = QueryListeners.now();
+        Query query = createQuery(queryString, getMetadata().getModifiers(), false);
         reset();
-        return new IteratorAdapter<RT>(query.iterate());
+        CloseableIterator<RT> iterator;
+        if (useQueryIterate) {
+            iterator = new IteratorAdapter<RT>(query.iterate());
+        } else {
+            iterator = new ScrollableResultsIterator<RT>(query.scroll(ScrollMode.FORWARD_ONLY), asArray);
+        }
+        if (clearInterval > 0) {
+            iterator = new ClearingIterator<RT>(iterator, session, clearInterval);
+        }
+        return QueryListeners.iterate(getClass(), queryString, start, serialized, iterator);
+    }
+
+    /**
+     * Rows are returned as arrays by ScrollableResults only if no ResultTransformer is used
+     */
+    private boolean isArrayProjection() {
+        List<? extends Expression<?>> projection = getMetadata().getProjection();
+        return projection.size() > 1 && FactoryExpressionUtils.wrap(projection) == null;
     }
 
     @SuppressWarnings("unchecked")
     public List<Object[]> list(Expression<?>[] args) {
-        Query query = createQuery(args);
-        reset();
-        return query.list();
+        getQueryMixin().addToProjection(args);
+        return (List<Object[]>) list();
     }
 
     @SuppressWarnings("unchecked")
     public <RT> List<RT> list(Expression<RT> expr) {
-        Query query = createQuery(expr);
+        getQueryMixin().addToProjection(expr);
+        return (List<RT>) list();
+    }
+
+    private List<?> list() {
+        long start = QueryListeners.now();
+        String queryString = toQueryString();
+        logQuery(queryString);
+        long serialized = QueryListeners.now();
+        Query query = createQuery(queryString, getMetadata().getModifiers(), false);
         reset();
-        return query.list();
+        List<?> results = query.list();
+        QueryListeners.executed(getClass(), "list", queryString, start, serialized, results.size());
+        return results;
     }
 
     public <RT> SearchResults<RT> listResults(Expression<RT> expr) {        
         getQueryMixin().addToProjection(expr);
-        Query countQuery = createQuery(toCountRowsString(), null, true);
+        long start = QueryListeners.now();
+        String countString = toCountRowsString();
+        long serialized = QueryListeners.now();
+        Query countQuery = createQuery(countString, null, true);
         long total = (Long) countQuery.uniqueResult();
+        QueryListeners.executed(getClass(), "count", countString, start, serialized, 1);
         try{
             if (total > 0) {
                 QueryModifiers modifiers = getMetadata().getModifiers();
+                start = QueryListeners.now();
                 String queryString = toQueryString();
                 logQuery(queryString);
+                serialized = QueryListeners.now();
                 Query query = createQuery(queryString, modifiers, false);
                 @SuppressWarnings("unchecked")
                 List<RT> list = query.list();
+                QueryListeners.executed(getClass(), "list", queryString, start, serialized, list.size());
                 return new SearchResults<RT>(list, modifiers, total);
             } else {
                 return SearchResults.emptyResults();
@@ -351,6 +408,33 @@ public abstract class AbstractHibernateQuery<Q extends AbstractHibernateQuery<Q>
         return (Q)this;
     }
 
+    /**
+     * Clear the session after the given amount of rows in iterate to keep the memory
+     * consumption constant. Entities returned before a clear become detached.
+     * 
+     * @param clearInterval amount of rows or 0 to disable clearing
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setClearInterval(int clearInterval) {
+        this.clearInterval = clearInterval;
+        return (Q)this;
+    }
+
+    /**
+     * Use <tt>Query.iterate()</tt> instead of forward-only scrolling in iterate. 
+     * The first SQL query returns identifiers only and entities are initialized 
+     * on demand, which results in one additional select per uninitialized entity.
+     * 
+     * @param useQueryIterate
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setUseQueryIterate(boolean useQueryIterate) {
+        this.useQueryIterate = useQueryIterate;
+        return (Q)this;
+    }
+
     /**
      * Set the lock mode for the given path.
      */
@@ -403,16 +487,24 @@ public abstract class AbstractHibernateQuery<Q extends AbstractHibernateQuery<Q>
     }
     
     private Object uniqueResult() {
+        long start = QueryListeners.now();
         QueryModifiers modifiers = getMetadata().getModifiers();
         String queryString = toQueryString();
         logQuery(queryString);
+        long serialized = QueryListeners.now();
         Query query = createQuery(queryString, modifiers, false);
         reset();        
         try{
-            return query.uniqueResult();    
+            Object result = query.uniqueResult();
+            QueryListeners.executed(getClass(), "unique", queryString, start, serialized, result != null ? 1 : 0);
+            return result;
         } catch (org.hibernate.NonUniqueResultException e) {
             throw new NonUniqueResultException();
         }  
     }
 
+    protected SessionHolder getSessionHolder() {
+        return session;
+    }
+
 }
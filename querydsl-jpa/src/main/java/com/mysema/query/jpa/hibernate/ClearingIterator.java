@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa.hibernate;
+
+import java.util.NoSuchElementException;
+
+import com.mysema.commons.lang.CloseableIterator;
+
+/**
+ * ClearingIterator clears the session periodically while iterating over query results
+ *
+ * @author tiwe
+ *
+ * @param <T>
+ */
+class ClearingIterator<T> implements CloseableIterator<T> {
+
+    private final CloseableIterator<T> iterator;
+
+    private final SessionHolder session;
+
+    private final int clearInterval;
+
+    private int rows = 0;
+
+    public ClearingIterator(CloseableIterator<T> iterator, SessionHolder session, int clearInterval) {
+        this.iterator = iterator;
+        this.session = session;
+        this.clearInterval = clearInterval;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (rows >= clearInterval) {
+            session.clear();
+            rows = 0;
+        }
+        return iterator.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (hasNext()) {
+            rows++;
+            return iterator.next();
+        } else {
+            throw new NoSuchElementException();
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        iterator.close();
+    }
+
+}
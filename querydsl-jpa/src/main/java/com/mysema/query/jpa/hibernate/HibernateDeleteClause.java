@@ -15,17 +15,18 @@ package com.mysema.query.jpa.hibernate;
 
 import java.util.Map;
 
+import org.hibernate.FlushMode;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.StatelessSession;
 
-import com.mysema.query.DefaultQueryMetadata;
-import com.mysema.query.JoinType;
 import com.mysema.query.QueryMetadata;
 import com.mysema.query.dml.DeleteClause;
 import com.mysema.query.jpa.JPQLSerializer;
+import com.mysema.query.jpa.DMLBatch;
 import com.mysema.query.jpa.HQLTemplates;
 import com.mysema.query.jpa.JPQLTemplates;
+import com.mysema.query.support.QueryListeners;
 import com.mysema.query.types.EntityPath;
 import com.mysema.query.types.Predicate;
 
@@ -37,7 +38,7 @@ import com.mysema.query.types.Predicate;
  */
 public class HibernateDeleteClause implements DeleteClause<HibernateDeleteClause>{
 
-    private final QueryMetadata md = new DefaultQueryMetadata();
+    private final DMLBatch<Query> batch;
 
     private final SessionHolder session;
 
@@ -55,33 +56,74 @@ public class HibernateDeleteClause implements DeleteClause<HibernateDeleteClause
         this(new DefaultSessionHolder(session), entity, templates);
     }
     
-    public HibernateDeleteClause(SessionHolder session, EntityPath<?> entity, JPQLTemplates templates) {
+    public HibernateDeleteClause(final SessionHolder session, EntityPath<?> entity, final JPQLTemplates templates) {
         this.session = session;
         this.templates = templates;
-        md.addJoin(JoinType.DEFAULT, entity);
+        this.batch = new DMLBatch<Query>(entity) {
+            @Override
+            protected Query createQuery(String queryString, boolean flushed) {
+                Query query = session.createQuery(queryString);
+                if (flushed) {
+                    // the persistence context has been flushed by the first statement already
+                    query.setFlushMode(FlushMode.MANUAL);
+                }
+                return query;
+            }
+
+            @Override
+            protected long execute(QueryMetadata item) {
+                long start = QueryListeners.now();
+                JPQLSerializer serializer = new JPQLSerializer(templates);
+                serializer.serializeForDelete(item);
+                Map<Object,String> constants = serializer.getConstantToLabel();
+
+                String queryString = serializer.toString();
+                long serialized = QueryListeners.now();
+                Query query = getQuery(queryString);
+                HibernateUtil.setConstants(query, constants, item.getParams());
+                int rows = query.executeUpdate();
+                QueryListeners.executed(HibernateDeleteClause.this.getClass(), "delete", queryString, start, serialized, rows);
+                return rows;
+            }
+        };
+    }
+
+    /**
+     * Add the current state of the clause as a batch item, and reset the clause for the next item
+     *
+     * @return the current object
+     */
+    public HibernateDeleteClause addBatch() {
+        batch.addBatch();
+        return this;
+    }
+
+    /**
+     * Set the maximum amount of keys in a single merged batch statement
+     *
+     * @param maxBatchKeys
+     * @return the current object
+     */
+    public HibernateDeleteClause setMaxBatchKeys(int maxBatchKeys) {
+        batch.setMaxBatchKeys(maxBatchKeys);
+        return this;
     }
 
     @Override
     public long execute() {
-        JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serializeForDelete(md);
-        Map<Object,String> constants = serializer.getConstantToLabel();
-
-        Query query = session.createQuery(serializer.toString());
-        HibernateUtil.setConstants(query, constants, md.getParams());
-        return query.executeUpdate();
+        return batch.execute();
     }
     
     @Override
     public HibernateDeleteClause where(Predicate... o) {
-        md.addWhere(o);
+        batch.getMetadata().addWhere(o);
         return this;
     }
     
     @Override
     public String toString() {
         JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serializeForDelete(md);
+        serializer.serializeForDelete(batch.getMetadata());
         return serializer.toString();
     }
 
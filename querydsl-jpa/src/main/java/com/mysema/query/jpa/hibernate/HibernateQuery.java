@@ -18,6 +18,7 @@ import org.hibernate.StatelessSession;
 
 import com.mysema.query.DefaultQueryMetadata;
 import com.mysema.query.QueryMetadata;
+import com.mysema.query.group.AggregatingProjectable;
 import com.mysema.query.jpa.JPQLQuery;
 import com.mysema.query.jpa.HQLTemplates;
 import com.mysema.query.jpa.JPQLTemplates;
@@ -28,7 +29,7 @@ import com.mysema.query.jpa.JPQLTemplates;
  * @author tiwe
  *
  */
-public final class HibernateQuery extends AbstractHibernateQuery<HibernateQuery> implements JPQLQuery {
+public final class HibernateQuery extends AbstractHibernateQuery<HibernateQuery> implements JPQLQuery, AggregatingProjectable {
 
     /**
      * Creates a detached query
@@ -103,8 +104,19 @@ public final class HibernateQuery extends AbstractHibernateQuery<HibernateQuery>
      * @return
      */
     public HibernateQuery clone(Session session) {
-        HibernateQuery q = new HibernateQuery(new DefaultSessionHolder(session), 
-                getTemplates(), getMetadata().clone());
+        return clone(new DefaultSessionHolder(session));
+    }
+
+    /**
+     * Clone the state of this query to a new HibernateQuery instance with the same Session
+     */
+    @Override
+    public HibernateQuery clone() {
+        return clone(getSessionHolder());
+    }
+
+    private HibernateQuery clone(SessionHolder session) {
+        HibernateQuery q = new HibernateQuery(session, getTemplates(), getMetadata().clone());
         q.cacheable = cacheable;
         q.cacheRegion = cacheRegion;
         q.fetchSize = fetchSize;
@@ -16,17 +16,18 @@ package com.mysema.query.jpa.hibernate;
 import java.util.List;
 import java.util.Map;
 
+import org.hibernate.FlushMode;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.StatelessSession;
 
-import com.mysema.query.DefaultQueryMetadata;
-import com.mysema.query.JoinType;
 import com.mysema.query.QueryMetadata;
 import com.mysema.query.dml.UpdateClause;
+import com.mysema.query.jpa.DMLBatch;
 import com.mysema.query.jpa.HQLTemplates;
 import com.mysema.query.jpa.JPQLSerializer;
 import com.mysema.query.jpa.JPQLTemplates;
+import com.mysema.query.support.QueryListeners;
 import com.mysema.query.types.EntityPath;
 import com.mysema.query.types.Expression;
 import com.mysema.query.types.ExpressionUtils;
@@ -43,7 +44,7 @@ import com.mysema.query.types.Predicate;
 public class HibernateUpdateClause implements
         UpdateClause<HibernateUpdateClause> {
 
-    private final QueryMetadata metadata = new DefaultQueryMetadata();
+    private final DMLBatch<Query> batch;
 
     private final SessionHolder session;
 
@@ -61,43 +62,84 @@ public class HibernateUpdateClause implements
         this(new DefaultSessionHolder(session), entity, templates);
     }
 
-    public HibernateUpdateClause(SessionHolder session, EntityPath<?> entity, 
-            JPQLTemplates templates) {
+    public HibernateUpdateClause(final SessionHolder session, EntityPath<?> entity, 
+            final JPQLTemplates templates) {
         this.session = session;
         this.templates = templates;
-        metadata.addJoin(JoinType.DEFAULT, entity);
+        this.batch = new DMLBatch<Query>(entity) {
+            @Override
+            protected Query createQuery(String queryString, boolean flushed) {
+                Query query = session.createQuery(queryString);
+                if (flushed) {
+                    // the persistence context has been flushed by the first statement already
+                    query.setFlushMode(FlushMode.MANUAL);
+                }
+                return query;
+            }
+
+            @Override
+            protected long execute(QueryMetadata item) {
+                long start = QueryListeners.now();
+                JPQLSerializer serializer = new JPQLSerializer(templates);
+                serializer.serializeForUpdate(item);
+                Map<Object,String> constants = serializer.getConstantToLabel();
+
+                String queryString = serializer.toString();
+                long serialized = QueryListeners.now();
+                Query query = getQuery(queryString);
+                HibernateUtil.setConstants(query, constants, item.getParams());
+                int rows = query.executeUpdate();
+                QueryListeners.executed(HibernateUpdateClause.this.getClass(), "update", queryString, start, serialized, rows);
+                return rows;
+            }
+        };
+    }
+
+    /**
+     * Add the current state of the clause as a batch item, and reset the clause for the next item
+     *
+     * @return the current object
+     */
+    public HibernateUpdateClause addBatch() {
+        batch.addBatch();
+        return this;
+    }
+
+    /**
+     * Set the maximum amount of keys in a single merged batch statement
+     *
+     * @param maxBatchKeys
+     * @return the current object
+     */
+    public HibernateUpdateClause setMaxBatchKeys(int maxBatchKeys) {
+        batch.setMaxBatchKeys(maxBatchKeys);
+        return this;
     }
 
     @Override
     public long execute() {
-        JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serializeForUpdate(metadata);
-        Map<Object, String> constants = serializer.getConstantToLabel();
-
-        Query query = session.createQuery(serializer.toString());
-        HibernateUtil.setConstants(query, constants, metadata.getParams());
-        return query.executeUpdate();
+        return batch.execute();
     }
 
     @Override
     public <T> HibernateUpdateClause set(Path<T> path, T value) {
         if (value != null) {
-            metadata.addProjection(ExpressionUtils.eqConst(path, value));
+            batch.getMetadata().addProjection(ExpressionUtils.eqConst(path, value));
         } else {
-            metadata.addProjection(ExpressionUtils.eq(path, new NullExpression<T>(path.getType())));
+            batch.getMetadata().addProjection(ExpressionUtils.eq(path, new NullExpression<T>(path.getType())));
         }
         return this;
     }
     
     @Override
     public <T> HibernateUpdateClause set(Path<T> path, Expression<? extends T> expression) {
-        metadata.addProjection(ExpressionUtils.eq(path, expression));
+        batch.getMetadata().addProjection(ExpressionUtils.eq(path, expression));
         return this;
     }
     
     @Override
     public <T> HibernateUpdateClause setNull(Path<T> path) {
-        metadata.addProjection(ExpressionUtils.eq(path, new NullExpression<T>(path.getType())));
+        batch.getMetadata().addProjection(ExpressionUtils.eq(path, new NullExpression<T>(path.getType())));
         return this;
     }
 
@@ -106,9 +148,9 @@ public class HibernateUpdateClause implements
     public HibernateUpdateClause set(List<? extends Path<?>> paths, List<?> values) {
         for (int i = 0; i < paths.size(); i++) {
             if (values.get(i) != null) {
-                metadata.addProjection(ExpressionUtils.eqConst((Expression)paths.get(i), values.get(i)));
+                batch.getMetadata().addProjection(ExpressionUtils.eqConst((Expression)paths.get(i), values.get(i)));
             } else {
-                metadata.addProjection(ExpressionUtils.eq(((Expression)paths.get(i)),
+                batch.getMetadata().addProjection(ExpressionUtils.eq(((Expression)paths.get(i)),
                         new NullExpression(paths.get(i).getType())));
             }
 
@@ -118,14 +160,14 @@ public class HibernateUpdateClause implements
 
     @Override
     public HibernateUpdateClause where(Predicate... o) {
-        metadata.addWhere(o);
+        batch.getMetadata().addWhere(o);
         return this;
     }
     
     @Override
     public String toString() {
         JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serializeForUpdate(metadata);
+        serializer.serializeForUpdate(batch.getMetadata());
         return serializer.toString();
     }
 
@@ -38,4 +38,9 @@ public final class NoSessionHolder implements SessionHolder {
         throw new UnsupportedOperationException("No session in detached Query available");
     }
 
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("No session in detached Query available");
+    }
+
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa.hibernate;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * SecondarySelectCounter counts the selects Hibernate issues to load entities and collections 
+ * on demand, e.g. lazy associations touched after a query or eager associations which 
+ * were not fetch joined.
+ * 
+ * <p>The counts are based on the SessionFactory wide statistics, which are enabled on 
+ * construction, so concurrent sessions of the same factory are included. {@link #close()} 
+ * restores the previous statistics setting of the factory.</p>
+ * 
+ * <pre>
+ * SecondarySelectCounter counter = new SecondarySelectCounter(sessionFactory);
+ * try {
+ *     List&lt;Order&gt; orders = query.from(order).fetchJoins(order.customer.name).list(order);
+ *     ...
+ *     assertEquals(0, counter.getCount());
+ * } finally {
+ *     counter.close();
+ * }
+ * </pre>
+ *
+ * @author tiwe
+ *
+ */
+public final class SecondarySelectCounter {
+
+    private final Statistics statistics;
+
+    private final boolean statisticsEnabled;
+
+    private long entityFetches, collectionFetches;
+
+    public SecondarySelectCounter(SessionFactory sessionFactory) {
+        this.statistics = sessionFactory.getStatistics();
+        this.statisticsEnabled = statistics.isStatisticsEnabled();
+        this.statistics.setStatisticsEnabled(true);
+        reset();
+    }
+
+    /**
+     * Restore the statistics setting the SessionFactory had before this counter was created
+     */
+    public void close() {
+        statistics.setStatisticsEnabled(statisticsEnabled);
+    }
+
+    /**
+     * Start counting from the current state
+     */
+    public void reset() {
+        entityFetches = statistics.getEntityFetchCount();
+        collectionFetches = statistics.getCollectionFetchCount();
+    }
+
+    /**
+     * @return amount of entities loaded via secondary selects since the last reset
+     */
+    public long getEntityFetchCount() {
+        return statistics.getEntityFetchCount() - entityFetches;
+    }
+
+    /**
+     * @return amount of collections loaded via secondary selects since the last reset
+     */
+    public long getCollectionFetchCount() {
+        return statistics.getCollectionFetchCount() - collectionFetches;
+    }
+
+    /**
+     * @return amount of secondary selects since the last reset
+     */
+    public long getCount() {
+        return getEntityFetchCount() + getCollectionFetchCount();
+    }
+
+}
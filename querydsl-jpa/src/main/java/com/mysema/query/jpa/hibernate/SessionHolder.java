@@ -40,4 +40,9 @@ public interface SessionHolder {
      */
     SQLQuery createSQLQuery(String queryString);
 
+    /**
+     * Clear the session, causing all managed entities to become detached
+     */
+    void clear();
+
 }
@@ -43,4 +43,9 @@ public class StatelessSessionHolder implements SessionHolder{
         return session.createSQLQuery(queryString);
     }
 
+    @Override
+    public void clear() {
+        // stateless sessions have no persistence context
+    }
+
 }
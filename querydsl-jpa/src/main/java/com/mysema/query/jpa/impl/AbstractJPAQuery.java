@@ -16,9 +16,12 @@ package com.mysema.query.jpa.impl;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import javax.annotation.Nullable;
 import javax.persistence.EntityManager;
@@ -40,9 +43,12 @@ import com.mysema.query.SearchResults;
 import com.mysema.query.jpa.HQLTemplates;
 import com.mysema.query.jpa.JPQLQueryBase;
 import com.mysema.query.jpa.JPQLTemplates;
+import com.mysema.query.jpa.QueryResultCache;
+import com.mysema.query.support.QueryListeners;
 import com.mysema.query.types.Expression;
 import com.mysema.query.types.FactoryExpression;
 import com.mysema.query.types.FactoryExpressionUtils;
+import com.mysema.query.types.ParamExpression;
 
 /**
  * Abstract base class for JPA API based implementations of the JPQLQuery interface
@@ -55,6 +61,11 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
 
     private static final Logger logger = LoggerFactory.getLogger(JPAQuery.class);
 
+    /**
+     * Default page size of paged iteration
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
     private static Class<?> hibernateQueryClass;
     
     static {
@@ -76,6 +87,20 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
     protected FlushModeType flushMode;
         
     protected boolean factoryExpressionUsed = false;
+
+    protected int fetchSize = 0;
+
+    protected int clearInterval = 0;
+
+    protected boolean pagedIteration = false;
+
+    protected boolean cacheable = false;
+
+    @Nullable
+    protected String cacheRegion;
+
+    @Nullable
+    protected QueryResultCache resultCache;
     
     public AbstractJPAQuery(EntityManager em) {
         this(new DefaultSessionHolder(em), HQLTemplates.DEFAULT, new DefaultQueryMetadata());
@@ -87,11 +112,14 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
     }
 
     public long count() {
+        long start = QueryListeners.now();
         String queryString = toCountRowsString();
         logQuery(queryString);
-        Query query = createQuery(queryString, null, true);
-        reset();
-        return (Long) query.getSingleResult();
+        try {
+            return getCount(queryString, start);
+        } finally {
+            reset();
+        }
     }
 
     /**
@@ -152,6 +180,11 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
             query.setFlushMode(flushMode);
         }
         
+        if (cacheable) {
+            for (Map.Entry<String, Object> entry : getTemplates().getQueryCacheHints(cacheRegion).entrySet()) {
+                query.setHint(entry.getKey(), entry.getValue());
+            }
+        }
         for (Map.Entry<String, Object> entry : hints.entrySet()) {
             query.setHint(entry.getKey(), entry.getValue());
         }
@@ -198,6 +231,53 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
         return query;
     }
     
+    @Nullable
+    private List<Object> getResultCacheKey(String type, String queryString) {
+        if (resultCache != null) {
+            QueryMetadata metadata = getMetadata();
+            return Arrays.<Object>asList(type, queryString, 
+                    new HashMap<Object, String>(getConstants()), 
+                    new HashMap<ParamExpression<?>, Object>(metadata.getParams()),
+                    metadata.getModifiers(), 
+                    new ArrayList<Expression<?>>(metadata.getProjection()));
+        } else {
+            return null;
+        }
+    }
+
+    private long getCount(String queryString, long start) {
+        long serialized = QueryListeners.now();
+        List<Object> key = getResultCacheKey("count", queryString);
+        List<?> cached = key != null ? resultCache.get(key) : null;
+        if (cached != null) {
+            return (Long) cached.get(0);
+        }
+        Query query = createQuery(queryString, null, true);
+        Long count = (Long) query.getSingleResult();
+        QueryListeners.executed(getClass(), "count", queryString, start, serialized, 1);
+        if (key != null) {
+            resultCache.put(key, Collections.singletonList(count), QueryResultCache.getEntityTypes(getMetadata()));
+        }
+        return count;
+    }
+
+    private List<?> getList(String queryString, long start) {
+        long serialized = QueryListeners.now();
+        List<Object> key = QueryResultCache.isCacheable(getMetadata().getProjection()) 
+                ? getResultCacheKey("list", queryString) : null;
+        List<?> cached = key != null ? resultCache.get(key) : null;
+        if (cached != null) {
+            return cached;
+        }
+        Query query = createQuery(queryString, getMetadata().getModifiers(), false);
+        List<?> results = getResultList(query);
+        QueryListeners.executed(getClass(), "list", queryString, start, serialized, results.size());
+        if (key != null) {
+            resultCache.put(key, results, QueryResultCache.getEntityTypes(getMetadata()));
+        }
+        return results;
+    }
+
     /**
      * Transforms results using FactoryExpression if ResultTransformer can't be used
      * 
@@ -250,47 +330,176 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
         }
     }
 
+    /**
+     * Return the query results as an iterator. By default the results are fetched as a list. 
+     * If a fetch size has been set, Hibernate based queries are streamed via forward-only 
+     * ScrollableResults, which hold an open ResultSet until the iterator is closed. If paged 
+     * iteration has been enabled, the query is executed page by page.
+     * 
+     * @see #setFetchSize(int)
+     * @see #setClearInterval(int)
+     * @see #setPagedIteration(boolean)
+     */
+    @SuppressWarnings("unchecked")
     public CloseableIterator<Object[]> iterate(Expression<?>[] args) {
-        return new IteratorAdapter<Object[]>(list(args).iterator());
+        getQueryMixin().addToProjection(args);
+        return (CloseableIterator<Object[]>) iterate();
     }
 
+    /**
+     * Return the query results as an iterator. By default the results are fetched as a list. 
+     * If a fetch size has been set, Hibernate based queries are streamed via forward-only 
+     * ScrollableResults, which hold an open ResultSet until the iterator is closed. If paged 
+     * iteration has been enabled, the query is executed page by page.
+     * 
+     * @see #setFetchSize(int)
+     * @see #setClearInterval(int)
+     * @see #setPagedIteration(boolean)
+     */
+    @SuppressWarnings("unchecked")
     public <RT> CloseableIterator<RT> iterate(Expression<RT> projection) {
-        return new IteratorAdapter<RT>(list(projection).iterator());
+        getQueryMixin().addToProjection(projection);
+        return (CloseableIterator<RT>) iterate();
     }
 
-    @Override
-    @SuppressWarnings("unchecked")
-    public List<Object[]> list(Expression<?>[] args) {
-        Query query = createQuery(args);
+    private CloseableIterator<?> iterate() {
+        long start = QueryListeners.now();
+        String queryString = toString();
+        logQuery(queryString);
+        long serialized = QueryListeners.now();
+        Query query = createQuery(queryString, getMetadata().getModifiers(), false);
         try {
-            return (List<Object[]>)getResultList(query);    
+            List<? extends Expression<?>> projection = getMetadata().getProjection();
+            CloseableIterator<?> iterator;
+            if (pagedIteration) {
+                iterator = new PagedResultIterator<Object>(query, getMetadata().getModifiers(), 
+                        fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE);
+            } else if (fetchSize > 0 && hibernateQueryClass != null && hibernateQueryClass.isInstance(query)) {
+                boolean asArray = projection.size() > 1 && FactoryExpressionUtils.wrap(projection) == null;
+                try {
+                    Constructor<?> c = Class.forName("com.mysema.query.jpa.impl.HibernateScrollableIterator")
+                        .getConstructor(Query.class, int.class, boolean.class);
+                    iterator = (CloseableIterator<?>) c.newInstance(query, fetchSize, asArray);
+                } catch (NoSuchMethodException e) {
+                    throw new QueryException(e);
+                } catch (ClassNotFoundException e) {
+                    throw new QueryException(e);
+                } catch (InstantiationException e) {
+                    throw new QueryException(e);
+                } catch (IllegalAccessException e) {
+                    throw new QueryException(e);
+                } catch (InvocationTargetException e) {
+                    throw new QueryException(e);
+                }
+            } else {
+                iterator = new IteratorAdapter<Object>(query.getResultList().iterator());
+            }
+            FactoryExpression<?> expr = factoryExpressionUsed ? (FactoryExpression<?>)projection.get(0) : null;
+            if (expr != null || clearInterval > 0) {
+                iterator = new TransformingIterator(iterator, expr, clearInterval);
+            }
+            return QueryListeners.iterate(getClass(), queryString, start, serialized, iterator);
         } finally {
             reset();
-        }        
+        }
+    }
+
+    /**
+     * Transforms results lazily using FactoryExpression and clears the persistence context 
+     * periodically
+     */
+    private class TransformingIterator implements CloseableIterator<Object> {
+
+        private final CloseableIterator<?> iterator;
+
+        @Nullable
+        private final FactoryExpression<?> expr;
+
+        private final int clearInterval;
+
+        private int rows = 0;
+
+        public TransformingIterator(CloseableIterator<?> iterator, @Nullable FactoryExpression<?> expr, 
+                int clearInterval) {
+            this.iterator = iterator;
+            this.expr = expr;
+            this.clearInterval = clearInterval;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (clearInterval > 0 && rows >= clearInterval) {
+                sessionHolder.clear();
+                rows = 0;
+            }
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            rows++;
+            Object o = iterator.next();
+            if (expr != null && o != null) {
+                if (!o.getClass().isArray()) {
+                    o = new Object[]{o};
+                }
+                return expr.newInstance((Object[])o);
+            } else {
+                return o;
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            iterator.close();
+        }
+
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object[]> list(Expression<?>[] args) {
+        getQueryMixin().addToProjection(args);
+        return (List<Object[]>)list();
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <RT> List<RT> list(Expression<RT> expr) {
-        Query query = createQuery(expr);
+        getQueryMixin().addToProjection(expr);
+        return (List<RT>)list();
+    }
+
+    private List<?> list() {
+        long start = QueryListeners.now();
+        String queryString = toString();
+        logQuery(queryString);
         try {
-            return (List<RT>) getResultList(query);    
+            return getList(queryString, start);
         } finally {
-            reset();    
+            reset();
         }
     }
 
     public <RT> SearchResults<RT> listResults(Expression<RT> expr) {
         getQueryMixin().addToProjection(expr);
-        Query countQuery = createQuery(toCountRowsString(), null, true);
-        long total = (Long) countQuery.getSingleResult();
+        long countStart = QueryListeners.now();
+        long total = getCount(toCountRowsString(), countStart);
         if (total > 0) {
             QueryModifiers modifiers = getMetadata().getModifiers();
+            long start = QueryListeners.now();
             String queryString = toString();
             logQuery(queryString);
-            Query query = createQuery(queryString, modifiers, false);
             @SuppressWarnings("unchecked")
-            List<RT> list = (List<RT>) getResultList(query);
+            List<RT> list = (List<RT>) getList(queryString, start);
             reset();
             return new SearchResults<RT>(list, modifiers, total);
         } else {
@@ -320,14 +529,31 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
     
     @Nullable
     private Object uniqueResult() {
+        long start = QueryListeners.now();
         String queryString = toQueryString();
         logQuery(queryString);
-        Query query = createQuery(queryString, getMetadata().getModifiers(), false);        
+        long serialized = QueryListeners.now();
+        List<Object> key = QueryResultCache.isCacheable(getMetadata().getProjection()) 
+                ? getResultCacheKey("unique", queryString) : null;
         try{
-            return getSingleResult(query);
-        } catch(javax.persistence.NoResultException e) {
-            logger.debug(e.getMessage(),e);
-            return null;
+            List<?> cached = key != null ? resultCache.get(key) : null;
+            if (cached != null) {
+                return cached.get(0);
+            }
+            Query query = createQuery(queryString, getMetadata().getModifiers(), false);
+            Object result;
+            try {
+                result = getSingleResult(query);
+            } catch(javax.persistence.NoResultException e) {
+                logger.debug(e.getMessage(),e);
+                result = null;
+            }
+            QueryListeners.executed(getClass(), "unique", queryString, start, serialized, result != null ? 1 : 0);
+            if (key != null) {
+                resultCache.put(key, Collections.singletonList(result), 
+                        QueryResultCache.getEntityTypes(getMetadata()));
+            }
+            return result;
         } catch(javax.persistence.NonUniqueResultException e) {
             throw new NonUniqueResultException();
         } finally {
@@ -353,5 +579,89 @@ public abstract class AbstractJPAQuery<Q extends AbstractJPAQuery<Q>> extends JP
         return (Q)this;
     }
 
+    /**
+     * Set the amount of rows fetched at a time in iterate. Hibernate based queries are scrolled 
+     * with the given JDBC fetch size, if it is positive, and the iterator needs to be closed 
+     * after usage. It is also used as the page size of paged iteration.
+     * 
+     * @param fetchSize the fetch size
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return (Q)this;
+    }
+
+    /**
+     * Execute iterate page by page. Each page is a separate query execution without a common 
+     * snapshot, so the query should be ordered by unique keys and the data should not change 
+     * during the iteration, otherwise rows might be missed or repeated.
+     * 
+     * @param pagedIteration
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setPagedIteration(boolean pagedIteration) {
+        this.pagedIteration = pagedIteration;
+        return (Q)this;
+    }
+
+    /**
+     * Clear the persistence context after the given amount of rows in iterate to keep the 
+     * memory consumption constant. Entities returned before a clear become detached.
+     * 
+     * @param clearInterval amount of rows or 0 to disable clearing
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setClearInterval(int clearInterval) {
+        this.clearInterval = clearInterval;
+        return (Q)this;
+    }
+
+    /**
+     * Enable the provider level caching of the query results via the query cache hints of 
+     * the templates
+     * 
+     * @param cacheable
+     * @return
+     * @see JPQLTemplates#getQueryCacheHints(String)
+     */
+    @SuppressWarnings("unchecked")
+    public Q setCacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+        return (Q)this;
+    }
+
+    /**
+     * Set the name of the provider level cache region
+     * 
+     * @param cacheRegion the name of a query cache region, or <tt>null</tt> for the default region
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setCacheRegion(@Nullable String cacheRegion) {
+        this.cacheRegion = cacheRegion;
+        return (Q)this;
+    }
+
+    /**
+     * Serve list, count and unique results from the given provider independent cache. 
+     * Cached results are shared between persistence contexts, so this is meant for 
+     * read-mostly data. Results of projections with entities are not cached.
+     * 
+     * @param resultCache result cache or null to disable caching
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setResultCache(@Nullable QueryResultCache resultCache) {
+        this.resultCache = resultCache;
+        return (Q)this;
+    }
+
+    protected JPASessionHolder getSessionHolder() {
+        return sessionHolder;
+    }
 
 }
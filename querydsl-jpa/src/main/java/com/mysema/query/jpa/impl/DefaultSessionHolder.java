@@ -13,8 +13,15 @@
  */
 package com.mysema.query.jpa.impl;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import javax.persistence.TransactionRequiredException;
+
+import com.mysema.query.QueryException;
 
 /**
  * Default implementation of the JPQSessionHolder interface
@@ -24,6 +31,16 @@ import javax.persistence.Query;
  */
 public class DefaultSessionHolder implements JPASessionHolder{
 
+    private static Class<?> hibernateSessionClass;
+
+    static {
+        try {
+            hibernateSessionClass = Class.forName("org.hibernate.Session");
+        } catch (ClassNotFoundException e) {
+            // do nothing
+        }
+    }
+
     private final EntityManager entityManager;
 
     public DefaultSessionHolder(EntityManager entityManager){
@@ -45,4 +62,38 @@ public class DefaultSessionHolder implements JPASessionHolder{
         return entityManager.createNativeQuery(sqlString, resultClass);
     }
 
+    @Override
+    public void clear() {
+        entityManager.clear();
+    }
+
+    @Override
+    public void flush() {
+        try {
+            entityManager.flush();
+        } catch (TransactionRequiredException e) {
+            // changes can't be flushed outside of transactions
+        }
+    }
+
+    @Override
+    public Connection getConnection() {
+        Object delegate = entityManager.getDelegate();
+        if (hibernateSessionClass != null && hibernateSessionClass.isInstance(delegate)) {
+            // Hibernate EntityManagers don't support unwrapping to Connection
+            try {
+                Method connection = hibernateSessionClass.getMethod("connection");
+                return (Connection) connection.invoke(delegate);
+            } catch (NoSuchMethodException e) {
+                throw new QueryException(e);
+            } catch (IllegalAccessException e) {
+                throw new QueryException(e);
+            } catch (InvocationTargetException e) {
+                throw new QueryException(e);
+            }
+        } else {
+            return entityManager.unwrap(Connection.class);
+        }
+    }
+
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa.impl;
+
+import javax.persistence.Query;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ejb.HibernateQuery;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.jpa.hibernate.ScrollableResultsIterator;
+
+/**
+ * HibernateScrollableIterator streams the results of Hibernate based JPA queries via 
+ * forward-only ScrollableResults
+ * 
+ * @author tiwe
+ *
+ * @param <T>
+ */
+public class HibernateScrollableIterator<T> implements CloseableIterator<T> {
+
+    private final ScrollableResultsIterator<T> iterator;
+
+    public HibernateScrollableIterator(Query query, int fetchSize, boolean asArray) {
+        org.hibernate.Query hibernateQuery = ((HibernateQuery)query).getHibernateQuery();
+        if (fetchSize > 0) {
+            hibernateQuery.setFetchSize(fetchSize);
+        }
+        iterator = new ScrollableResultsIterator<T>(hibernateQuery.scroll(ScrollMode.FORWARD_ONLY), asArray);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    @Override
+    public T next() {
+        return iterator.next();
+    }
+
+    @Override
+    public void remove() {
+        iterator.remove();
+    }
+
+    @Override
+    public void close() {
+        iterator.close();
+    }
+
+}
@@ -16,15 +16,16 @@ package com.mysema.query.jpa.impl;
 import java.util.Map;
 
 import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
 import javax.persistence.Query;
 
-import com.mysema.query.DefaultQueryMetadata;
-import com.mysema.query.JoinType;
 import com.mysema.query.QueryMetadata;
 import com.mysema.query.dml.DeleteClause;
 import com.mysema.query.jpa.JPQLSerializer;
+import com.mysema.query.jpa.DMLBatch;
 import com.mysema.query.jpa.HQLTemplates;
 import com.mysema.query.jpa.JPQLTemplates;
+import com.mysema.query.support.QueryListeners;
 import com.mysema.query.types.EntityPath;
 import com.mysema.query.types.Predicate;
 
@@ -36,7 +37,7 @@ import com.mysema.query.types.Predicate;
  */
 public class JPADeleteClause implements DeleteClause<JPADeleteClause>{
 
-    private final QueryMetadata metadata = new DefaultQueryMetadata();
+    private final DMLBatch<Query> batch;
 
     private final EntityManager entityManager;
 
@@ -46,33 +47,74 @@ public class JPADeleteClause implements DeleteClause<JPADeleteClause>{
         this(em, entity, HQLTemplates.DEFAULT);
     }
 
-    public JPADeleteClause(EntityManager entityManager, EntityPath<?> entity, JPQLTemplates templates) {
+    public JPADeleteClause(final EntityManager entityManager, EntityPath<?> entity, final JPQLTemplates templates) {
         this.entityManager = entityManager;
         this.templates = templates;
-        metadata.addJoin(JoinType.DEFAULT, entity);
+        this.batch = new DMLBatch<Query>(entity) {
+            @Override
+            protected Query createQuery(String queryString, boolean flushed) {
+                Query query = entityManager.createQuery(queryString);
+                if (flushed) {
+                    // the persistence context has been flushed by the first statement already
+                    query.setFlushMode(FlushModeType.COMMIT);
+                }
+                return query;
+            }
+
+            @Override
+            protected long execute(QueryMetadata item) {
+                long start = QueryListeners.now();
+                JPQLSerializer serializer = new JPQLSerializer(templates);
+                serializer.serializeForDelete(item);
+                Map<Object,String> constants = serializer.getConstantToLabel();
+
+                String queryString = serializer.toString();
+                long serialized = QueryListeners.now();
+                Query query = getQuery(queryString);
+                JPAUtil.setConstants(query, constants, item.getParams());
+                int rows = query.executeUpdate();
+                QueryListeners.executed(JPADeleteClause.this.getClass(), "delete", queryString, start, serialized, rows);
+                return rows;
+            }
+        };
+    }
+
+    /**
+     * Add the current state of the clause as a batch item, and reset the clause for the next item
+     *
+     * @return the current object
+     */
+    public JPADeleteClause addBatch() {
+        batch.addBatch();
+        return this;
+    }
+
+    /**
+     * Set the maximum amount of keys in a single merged batch statement
+     *
+     * @param maxBatchKeys
+     * @return the current object
+     */
+    public JPADeleteClause setMaxBatchKeys(int maxBatchKeys) {
+        batch.setMaxBatchKeys(maxBatchKeys);
+        return this;
     }
 
     @Override
     public long execute() {
-        JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serializeForDelete(metadata);
-        Map<Object,String> constants = serializer.getConstantToLabel();
-
-        Query query = entityManager.createQuery(serializer.toString());
-        JPAUtil.setConstants(query, constants, metadata.getParams());
-        return query.executeUpdate();
+        return batch.execute();
     }
     
     @Override
     public JPADeleteClause where(Predicate... o) {
-        metadata.addWhere(o);
+        batch.getMetadata().addWhere(o);
         return this;
     }
     
     @Override
     public String toString() {
         JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serializeForDelete(metadata);
+        serializer.serializeForDelete(batch.getMetadata());
         return serializer.toString();
     }
 
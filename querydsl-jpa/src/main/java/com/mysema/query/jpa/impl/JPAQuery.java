@@ -17,6 +17,7 @@ import javax.persistence.EntityManager;
 
 import com.mysema.query.DefaultQueryMetadata;
 import com.mysema.query.QueryMetadata;
+import com.mysema.query.group.AggregatingProjectable;
 import com.mysema.query.jpa.JPQLQuery;
 import com.mysema.query.jpa.HQLTemplates;
 import com.mysema.query.jpa.JPQLTemplates;
@@ -27,7 +28,7 @@ import com.mysema.query.jpa.JPQLTemplates;
  * @author tiwe
  *
  */
-public final class JPAQuery extends AbstractJPAQuery<JPAQuery> implements JPQLQuery {
+public final class JPAQuery extends AbstractJPAQuery<JPAQuery> implements JPQLQuery, AggregatingProjectable {
 
     /**
      * Creates a new detached query
@@ -83,7 +84,19 @@ public final class JPAQuery extends AbstractJPAQuery<JPAQuery> implements JPQLQu
      * @return
      */
     public JPAQuery clone(EntityManager entityManager) {
-        JPAQuery q = new JPAQuery(new DefaultSessionHolder(entityManager), getTemplates(), getMetadata().clone());
+        return clone(new DefaultSessionHolder(entityManager));
+    }
+
+    /**
+     * Clone the state of this query to a new JPAQuery instance with the same EntityManager
+     */
+    @Override
+    public JPAQuery clone() {
+        return clone(getSessionHolder());
+    }
+
+    private JPAQuery clone(JPASessionHolder sessionHolder) {
+        JPAQuery q = new JPAQuery(sessionHolder, getTemplates(), getMetadata().clone());
         q.factoryExpressionUsed = factoryExpressionUsed;
         q.flushMode = flushMode;
         q.hints.putAll(hints);
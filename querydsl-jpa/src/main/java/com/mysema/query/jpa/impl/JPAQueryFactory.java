@@ -13,12 +13,17 @@
  */
 package com.mysema.query.jpa.impl;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 import javax.inject.Provider;
 import javax.persistence.EntityManager;
 
 import com.mysema.query.QueryFactory;
 import com.mysema.query.jpa.HQLTemplates;
 import com.mysema.query.jpa.JPQLTemplates;
+import com.mysema.query.jpa.QueryResultCache;
 import com.mysema.query.types.EntityPath;
 
 /**
@@ -33,31 +38,123 @@ public class JPAQueryFactory implements QueryFactory<JPAQuery, JPASubQuery>  {
 
     private final Provider<EntityManager> entityManager;
 
+    @Nullable
+    private final QueryResultCache resultCache;
+
+    // entity types modified by DML clauses of the current thread's transaction
+    private final ThreadLocal<Set<Class<?>>> modifiedTypes = new ThreadLocal<Set<Class<?>>>();
+
     public JPAQueryFactory(Provider<EntityManager> entityManager) {
         this(HQLTemplates.DEFAULT, entityManager);
     }
 
     public JPAQueryFactory(JPQLTemplates templates, Provider<EntityManager> entityManager) {
+        this(templates, entityManager, null);
+    }
+
+    /**
+     * Create a new JPAQueryFactory instance, whose DML clauses invalidate the given result cache.
+     * 
+     * <p>The DML clauses invalidate the affected entries on execution, but concurrent 
+     * transactions can cache the old state again before the changes are committed. 
+     * {@link #afterCommit()} should be called in the thread of the transaction after its 
+     * commit, if the transaction executed DML clauses of this factory.</p>
+     * 
+     * @param templates
+     * @param entityManager
+     * @param resultCache result cache used by {@link #cachedQuery()}
+     */
+    public JPAQueryFactory(JPQLTemplates templates, Provider<EntityManager> entityManager, 
+            @Nullable QueryResultCache resultCache) {
         this.entityManager = entityManager;
         this.templates = templates;
+        this.resultCache = resultCache;
+    }
+
+    public JPADeleteClause delete(final EntityPath<?> path) {
+        if (resultCache != null) {
+            return new JPADeleteClause(entityManager.get(), path, templates) {
+                @Override
+                public long execute() {
+                    try {
+                        return super.execute();
+                    } finally {
+                        invalidate(path.getType());
+                    }
+                }
+            };
+        } else {
+            return new JPADeleteClause(entityManager.get(), path, templates);
+        }
     }
 
-    public JPADeleteClause delete(EntityPath<?> path) {
-        return new JPADeleteClause(entityManager.get(), path, templates);
+    private void invalidate(Class<?> entityType) {
+        Set<Class<?>> types = modifiedTypes.get();
+        if (types == null) {
+            types = new HashSet<Class<?>>();
+            modifiedTypes.set(types);
+        }
+        types.add(entityType);
+        resultCache.invalidate(entityType);
+    }
+
+    /**
+     * Invalidate the result cache again for the entity types modified via DML clauses of this 
+     * factory in the current thread since the last invocation. This is meant to be called 
+     * after the commit of the transaction of the current thread, e.g. from a transaction 
+     * synchronization, so that results cached by concurrent transactions before the commit 
+     * are not served afterwards. Modifications of other threads are left to their own 
+     * invocations.
+     */
+    public void afterCommit() {
+        Set<Class<?>> types = modifiedTypes.get();
+        if (types != null) {
+            modifiedTypes.remove();
+            for (Class<?> type : types) {
+                resultCache.invalidate(type);
+            }
+        }
     }
 
     public JPAQuery from(EntityPath<?> from) {
         return query().from(from);
     }
 
-    public JPAUpdateClause update(EntityPath<?> path) {
-        return new JPAUpdateClause(entityManager.get(), path, templates);
+    public JPAUpdateClause update(final EntityPath<?> path) {
+        if (resultCache != null) {
+            return new JPAUpdateClause(entityManager.get(), path, templates) {
+                @Override
+                public long execute() {
+                    try {
+                        return super.execute();
+                    } finally {
+                        invalidate(path.getType());
+                    }
+                }
+            };
+        } else {
+            return new JPAUpdateClause(entityManager.get(), path, templates);
+        }
     }
 
     public JPAQuery query() {
         return new JPAQuery(entityManager.get(), templates);
     }
 
+    /**
+     * Create a query whose results are served from the result cache of this factory
+     * 
+     * @return
+     */
+    public JPAQuery cachedQuery() {
+        return query().setResultCache(resultCache);
+    }
+
+    @Nullable
+    public QueryResultCache getResultCache() {
+        return resultCache;
+    }
+
     public JPASubQuery subQuery() {
         return new JPASubQuery();
     }
@@ -13,6 +13,8 @@
  */
 package com.mysema.query.jpa.impl;
 
+import java.sql.Connection;
+
 import javax.persistence.Query;
 
 /**
@@ -44,4 +46,22 @@ public interface JPASessionHolder {
      */
     Query createSQLQuery(String queryString, Class<?> resultClass);
 
+    /**
+     * Clear the persistence context, causing all managed entities to become detached
+     */
+    void clear();
+
+    /**
+     * Flush the persistence context to the database
+     */
+    void flush();
+
+    /**
+     * Get the JDBC connection of the persistence context. The connection is owned by the 
+     * persistence context and must not be closed.
+     * 
+     * @return
+     */
+    Connection getConnection();
+
 }
@@ -17,15 +17,16 @@ import java.util.List;
 import java.util.Map;
 
 import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
 import javax.persistence.Query;
 
-import com.mysema.query.DefaultQueryMetadata;
-import com.mysema.query.JoinType;
 import com.mysema.query.QueryMetadata;
 import com.mysema.query.dml.UpdateClause;
+import com.mysema.query.jpa.DMLBatch;
 import com.mysema.query.jpa.HQLTemplates;
 import com.mysema.query.jpa.JPQLSerializer;
 import com.mysema.query.jpa.JPQLTemplates;
+import com.mysema.query.support.QueryListeners;
 import com.mysema.query.types.EntityPath;
 import com.mysema.query.types.Expression;
 import com.mysema.query.types.ExpressionUtils;
@@ -41,7 +42,7 @@ import com.mysema.query.types.Predicate;
  */
 public class JPAUpdateClause implements UpdateClause<JPAUpdateClause>{
 
-    private final QueryMetadata metadata = new DefaultQueryMetadata();
+    private final DMLBatch<Query> batch;
 
     private final EntityManager entityManager;
 
@@ -51,42 +52,83 @@ public class JPAUpdateClause implements UpdateClause<JPAUpdateClause>{
         this(session, entity, HQLTemplates.DEFAULT);
     }
 
-    public JPAUpdateClause(EntityManager em, EntityPath<?> entity, JPQLTemplates templates) {
+    public JPAUpdateClause(EntityManager em, EntityPath<?> entity, final JPQLTemplates templates) {
         this.entityManager = em;
         this.templates = templates;
-        metadata.addJoin(JoinType.DEFAULT, entity);
+        this.batch = new DMLBatch<Query>(entity) {
+            @Override
+            protected Query createQuery(String queryString, boolean flushed) {
+                Query query = entityManager.createQuery(queryString);
+                if (flushed) {
+                    // the persistence context has been flushed by the first statement already
+                    query.setFlushMode(FlushModeType.COMMIT);
+                }
+                return query;
+            }
+
+            @Override
+            protected long execute(QueryMetadata item) {
+                long start = QueryListeners.now();
+                JPQLSerializer serializer = new JPQLSerializer(templates);
+                serializer.serializeForUpdate(item);
+                Map<Object,String> constants = serializer.getConstantToLabel();
+
+                String queryString = serializer.toString();
+                long serialized = QueryListeners.now();
+                Query query = getQuery(queryString);
+                JPAUtil.setConstants(query, constants, item.getParams());
+                int rows = query.executeUpdate();
+                QueryListeners.executed(JPAUpdateClause.this.getClass(), "update", queryString, start, serialized, rows);
+                return rows;
+            }
+        };
+    }
+
+    /**
+     * Add the current state of the clause as a batch item, and reset the clause for the next item
+     *
+     * @return the current object
+     */
+    public JPAUpdateClause addBatch() {
+        batch.addBatch();
+        return this;
+    }
+
+    /**
+     * Set the maximum amount of keys in a single merged batch statement
+     *
+     * @param maxBatchKeys
+     * @return the current object
+     */
+    public JPAUpdateClause setMaxBatchKeys(int maxBatchKeys) {
+        batch.setMaxBatchKeys(maxBatchKeys);
+        return this;
     }
 
     @Override
     public long execute() {
-        JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serializeForUpdate(metadata);
-        Map<Object,String> constants = serializer.getConstantToLabel();
-
-        Query query = entityManager.createQuery(serializer.toString());
-        JPAUtil.setConstants(query, constants, metadata.getParams());
-        return query.executeUpdate();
+        return batch.execute();
     }
 
     @Override
     public <T> JPAUpdateClause set(Path<T> path, T value) {
         if (value != null) {
-            metadata.addProjection(ExpressionUtils.eqConst(path, value));
+            batch.getMetadata().addProjection(ExpressionUtils.eqConst(path, value));
         } else {
-            metadata.addProjection(ExpressionUtils.eq(path, new NullExpression<T>(path.getType())));
+            batch.getMetadata().addProjection(ExpressionUtils.eq(path, new NullExpression<T>(path.getType())));
         }
         return this;
     }
     
     @Override
     public <T> JPAUpdateClause set(Path<T> path, Expression<? extends T> expression) {
-        metadata.addProjection(ExpressionUtils.eq(path, expression));
+        batch.getMetadata().addProjection(ExpressionUtils.eq(path, expression));
         return this;
     }
     
     @Override
     public <T> JPAUpdateClause setNull(Path<T> path) {
-        metadata.addProjection(ExpressionUtils.eq(path, new NullExpression<T>(path.getType())));
+        batch.getMetadata().addProjection(ExpressionUtils.eq(path, new NullExpression<T>(path.getType())));
         return this;
     }
 
@@ -95,9 +137,9 @@ public class JPAUpdateClause implements UpdateClause<JPAUpdateClause>{
     public JPAUpdateClause set(List<? extends Path<?>> paths, List<?> values) {
         for (int i = 0; i < paths.size(); i++) {
             if (values.get(i) != null) {
-                metadata.addProjection(ExpressionUtils.eqConst((Expression)paths.get(i), values.get(i)));
+                batch.getMetadata().addProjection(ExpressionUtils.eqConst((Expression)paths.get(i), values.get(i)));
             } else {
-                metadata.addProjection(ExpressionUtils.eq((Expression)paths.get(i), 
+                batch.getMetadata().addProjection(ExpressionUtils.eq((Expression)paths.get(i), 
                         new NullExpression(paths.get(i).getType())));
             }
         }
@@ -106,14 +148,14 @@ public class JPAUpdateClause implements UpdateClause<JPAUpdateClause>{
 
     @Override
     public JPAUpdateClause where(Predicate... o) {
-        metadata.addWhere(o);
+        batch.getMetadata().addWhere(o);
         return this;
     }
     
     @Override
     public String toString() {
         JPQLSerializer serializer = new JPQLSerializer(templates);
-        serializer.serializeForUpdate(metadata);
+        serializer.serializeForUpdate(batch.getMetadata());
         return serializer.toString();
     }
 
@@ -13,6 +13,8 @@
  */
 package com.mysema.query.jpa.impl;
 
+import java.sql.Connection;
+
 import javax.persistence.Query;
 
 /**
@@ -38,4 +40,19 @@ public class NoSessionHolder implements JPASessionHolder{
         throw new UnsupportedOperationException("No entityManager in detached Query available");
     }
 
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("No entityManager in detached Query available");
+    }
+
+    @Override
+    public void flush() {
+        throw new UnsupportedOperationException("No entityManager in detached Query available");
+    }
+
+    @Override
+    public Connection getConnection() {
+        throw new UnsupportedOperationException("No entityManager in detached Query available");
+    }
+
 }
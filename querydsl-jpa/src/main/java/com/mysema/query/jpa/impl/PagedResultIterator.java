@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa.impl;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+import javax.persistence.Query;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.QueryModifiers;
+
+/**
+ * PagedResultIterator iterates over the results of a JPA query by executing it page by page
+ * 
+ * <p>The query should be ordered by a unique key to get stable results over page boundaries.</p>
+ *
+ * @author tiwe
+ *
+ * @param <T>
+ */
+public class PagedResultIterator<T> implements CloseableIterator<T> {
+
+    private final Query query;
+
+    private final int pageSize;
+
+    private long offset;
+
+    @Nullable
+    private Long remaining;
+
+    private Iterator<T> page = Collections.<T>emptyList().iterator();
+
+    private boolean lastPage = false;
+
+    public PagedResultIterator(Query query, @Nullable QueryModifiers modifiers, int pageSize) {
+        this.query = query;
+        this.pageSize = pageSize;
+        if (modifiers != null) {
+            this.offset = modifiers.getOffset() != null ? modifiers.getOffset().longValue() : 0l;
+            this.remaining = modifiers.getLimit();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fetchPage() {
+        int size = pageSize;
+        if (remaining != null) {
+            if (remaining.longValue() <= 0) {
+                lastPage = true;
+                return;
+            }
+            size = (int) Math.min(size, remaining.longValue());
+        }
+        query.setFirstResult((int) offset);
+        query.setMaxResults(size);
+        List<T> results = query.getResultList();
+        offset += results.size();
+        if (remaining != null) {
+            remaining = remaining.longValue() - results.size();
+        }
+        lastPage = results.size() < size;
+        page = results.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (lastPage) {
+                return false;
+            }
+            fetchPage();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (hasNext()) {
+            return page.next();
+        } else {
+            throw new NoSuchElementException();
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        page = Collections.<T>emptyList().iterator();
+        lastPage = true;
+    }
+
+}
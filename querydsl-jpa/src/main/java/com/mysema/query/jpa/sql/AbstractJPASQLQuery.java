@@ -13,6 +13,7 @@
  */
 package com.mysema.query.jpa.sql;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +39,8 @@ import com.mysema.query.jpa.NativeSQLSerializer;
 import com.mysema.query.jpa.impl.DefaultSessionHolder;
 import com.mysema.query.jpa.impl.JPASessionHolder;
 import com.mysema.query.jpa.impl.JPAUtil;
+import com.mysema.query.sql.Configuration;
+import com.mysema.query.sql.SQLQueryImpl;
 import com.mysema.query.sql.SQLTemplates;
 import com.mysema.query.sql.Union;
 import com.mysema.query.sql.UnionImpl;
@@ -79,6 +82,11 @@ public abstract class AbstractJPASQLQuery<Q extends AbstractJPASQLQuery<Q> & com
     @Nullable
     protected FlushModeType flushMode;
 
+    protected boolean useConnection = false;
+
+    @Nullable
+    protected Configuration configuration;
+
     public AbstractJPASQLQuery(EntityManager entityManager, SQLTemplates sqlTemplates) {
         this(new DefaultSessionHolder(entityManager), sqlTemplates, new DefaultQueryMetadata());
     }
@@ -120,13 +128,10 @@ public abstract class AbstractJPASQLQuery<Q extends AbstractJPASQLQuery<Q> & com
         logQuery(queryString);
         List<? extends Expression<?>> projection = queryMixin.getMetadata().getProjection();
         Query query;
-        if (projection.get(0) instanceof EntityPath) {
-            if (projection.size() == 1) {
-                query = session.createSQLQuery(queryString, projection.get(0).getType());
-            } else {
-                throw new IllegalArgumentException("Only single element entity projections are supported");
-            }
-
+        if (projection.size() == 1 && projection.get(0) instanceof EntityPath) {
+            query = session.createSQLQuery(queryString, projection.get(0).getType());
+        } else if (containsEntityPath(projection)) {
+            throw new IllegalArgumentException("Only single element entity projections are supported");
         } else {
             query = session.createSQLQuery(queryString);
         }
@@ -147,9 +152,53 @@ public abstract class AbstractJPASQLQuery<Q extends AbstractJPASQLQuery<Q> & com
         return query;
     }
 
+    private boolean isConnectionQuery(Expression<?>... args) {
+        // entity projections are always mapped by the provider
+        return useConnection && !containsEntityPath(Arrays.asList(args));
+    }
+
+    private static boolean containsEntityPath(List<? extends Expression<?>> args) {
+        for (Expression<?> arg : args) {
+            if (arg instanceof EntityPath<?>) {
+                return true;
+            } else if (arg instanceof FactoryExpression<?> 
+                    && containsEntityPath(((FactoryExpression<?>)arg).getArgs())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create a querydsl-sql query for the metadata of this query, which runs on the JDBC 
+     * connection of the persistence context
+     * 
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private SQLQueryImpl createConnectionQuery() {
+        if (flushMode != FlushModeType.COMMIT) {
+            session.flush();
+        }
+        SQLQueryImpl query = new SQLQueryImpl(session.getConnection(), 
+                configuration != null ? configuration : new Configuration(sqlTemplates), 
+                queryMixin.getMetadata());
+        if (union != null) {
+            if (unionAll) {
+                query.unionAll((SubQueryExpression[])union);
+            } else {
+                query.union((SubQueryExpression[])union);
+            }
+        }
+        return query;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public List<Object[]> list(Expression<?>[] args) {
+        if (isConnectionQuery(args)) {
+            return createConnectionQuery().list(args);
+        }
         Query query = createQuery(args);
         reset();
         return query.getResultList();
@@ -158,6 +207,9 @@ public abstract class AbstractJPASQLQuery<Q extends AbstractJPASQLQuery<Q> & com
     @SuppressWarnings("unchecked")
     @Override
     public <RT> List<RT> list(Expression<RT> projection) {
+        if (isConnectionQuery(projection)) {
+            return createConnectionQuery().list(projection);
+        }
         Query query = createQuery(projection);
         reset();
         return query.getResultList();
@@ -165,16 +217,25 @@ public abstract class AbstractJPASQLQuery<Q extends AbstractJPASQLQuery<Q> & com
 
     @Override
     public CloseableIterator<Object[]> iterate(Expression<?>[] args) {
+        if (isConnectionQuery(args)) {
+            return createConnectionQuery().iterate(args);
+        }
         return new IteratorAdapter<Object[]>(list(args).iterator());
     }
 
     @Override
     public <RT> CloseableIterator<RT> iterate(Expression<RT> projection) {
+        if (isConnectionQuery(projection)) {
+            return createConnectionQuery().iterate(projection);
+        }
         return new IteratorAdapter<RT>(list(projection).iterator());
     }
 
     @Override
     public <RT> SearchResults<RT> listResults(Expression<RT> projection) {
+        if (isConnectionQuery(projection)) {
+            return createConnectionQuery().listResults(projection);
+        }
         // TODO : handle entity projections as well
         queryMixin.addToProjection(projection);
         Query query = createQuery(toCountRowsString());
@@ -243,12 +304,18 @@ public abstract class AbstractJPASQLQuery<Q extends AbstractJPASQLQuery<Q> & com
     @Override
     @SuppressWarnings("unchecked")
     public <RT> RT uniqueResult(Expression<RT> expr) {
+        if (isConnectionQuery(expr)) {
+            return createConnectionQuery().uniqueResult(expr);
+        }
         Query query = createQuery(expr);
         return (RT)uniqueResult(query);
     }
     
     @Override
     public Object[] uniqueResult(Expression<?>[] args) {
+        if (isConnectionQuery(args)) {
+            return createConnectionQuery().uniqueResult(args);
+        }
         Query query = createQuery(args);
         Object obj = uniqueResult(query);
         if (obj != null) {
@@ -288,5 +355,35 @@ public abstract class AbstractJPASQLQuery<Q extends AbstractJPASQLQuery<Q> & com
         hints.put(name, value);
         return (Q)this;
     }
+
+    /**
+     * Execute scalar and DTO projections directly on the JDBC connection of the persistence 
+     * context using the type aware result reading and streaming iteration of querydsl-sql. 
+     * This avoids the result mapping overhead of the provider for large reporting queries.
+     * 
+     * <p>The persistence context is flushed before the execution, unless the flush mode of 
+     * this query is COMMIT. Entity projections are still mapped by the provider.</p>
+     * 
+     * @param useConnection
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q setUseConnection(boolean useConnection) {
+        this.useConnection = useConnection;
+        return (Q)this;
+    }
+
+    /**
+     * Set the querydsl-sql configuration to be used for the execution on the JDBC connection
+     * 
+     * @param configuration
+     * @return
+     * @see #setUseConnection(boolean)
+     */
+    @SuppressWarnings("unchecked")
+    public Q setConfiguration(Configuration configuration) {
+        this.configuration = configuration;
+        return (Q)this;
+    }
     
 }
@@ -41,6 +41,7 @@ import com.mysema.query.jpa.domain.QBook;
 import com.mysema.query.jpa.domain.QCat;
 import com.mysema.query.jpa.hibernate.HibernateQuery;
 import com.mysema.query.jpa.hibernate.ScrollableResultsIterator;
+import com.mysema.query.jpa.hibernate.SecondarySelectCounter;
 
 /**
  * @author tiwe
@@ -92,6 +93,31 @@ public abstract class AbstractHibernateTest extends AbstractStandardTest{
         query().from(QCat.cat).setFlushMode(org.hibernate.FlushMode.AUTO).list(QCat.cat);
     }
 
+    @Test
+    public void FetchJoins(){
+        QCat cat = QCat.cat;
+        session.flush();
+        session.clear();
+        boolean statisticsEnabled = session.getSessionFactory().getStatistics().isStatisticsEnabled();
+        SecondarySelectCounter counter = new SecondarySelectCounter(session.getSessionFactory());
+        try {
+            for (Cat c : query().from(cat).list(cat)){
+                c.getKittens().size();
+            }
+            assertTrue(counter.getCollectionFetchCount() > 0);
+
+            session.clear();
+            counter.reset();
+            for (Cat c : query().from(cat).fetchJoins(cat.kittens).list(cat)){
+                c.getKittens().size();
+            }
+            assertEquals(0, counter.getCount());
+        } finally {
+            counter.close();
+        }
+        assertEquals(statisticsEnabled, session.getSessionFactory().getStatistics().isStatisticsEnabled());
+    }
+
     @Test
     public void Scroll() throws IOException{
         CloseableIterator<Cat> cats = new ScrollableResultsIterator<Cat>(query().from(QCat.cat)
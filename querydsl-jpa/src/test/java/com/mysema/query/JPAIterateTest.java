@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.commons.lang.IteratorAdapter;
+import com.mysema.query.jpa.domain.Cat;
+import com.mysema.query.jpa.domain.QCat;
+import com.mysema.query.jpa.impl.HibernateScrollableIterator;
+import com.mysema.query.jpa.impl.JPAQuery;
+import com.mysema.query.jpa.impl.PagedResultIterator;
+import com.mysema.query.types.QTuple;
+import com.mysema.testutil.JPAConfig;
+import com.mysema.testutil.JPATestRunner;
+
+@RunWith(JPATestRunner.class)
+@JPAConfig("derby")
+public class JPAIterateTest {
+
+    private static final int ID_OFFSET = 1000;
+
+    private final QCat cat = QCat.cat;
+
+    private EntityManager entityManager;
+
+    protected JPAQuery query(){
+        return new JPAQuery(entityManager).from(cat)
+            .where(cat.id.goe(ID_OFFSET)).orderBy(cat.id.asc());
+    }
+
+    public void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Before
+    public void setUp(){
+        for (int i = 0; i < 5; i++) {
+            entityManager.persist(new Cat("Cat" + i, ID_OFFSET + i));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void Scroll(){
+        CloseableIterator<Cat> cats = query().setFetchSize(2).iterate(cat);
+        assertTrue(cats instanceof HibernateScrollableIterator);
+        List<Cat> results = IteratorAdapter.asList(cats);
+        assertEquals(5, results.size());
+        assertEquals("Cat0", results.get(0).getName());
+        assertEquals("Cat4", results.get(4).getName());
+    }
+
+    @Test
+    public void Scroll_Close(){
+        CloseableIterator<Cat> cats = query().setFetchSize(2).iterate(cat);
+        assertEquals("Cat0", cats.next().getName());
+        cats.close();
+    }
+
+    @Test
+    public void List_By_Default(){
+        CloseableIterator<Cat> cats = query().iterate(cat);
+        assertFalse(cats instanceof HibernateScrollableIterator);
+        assertFalse(cats instanceof PagedResultIterator);
+        assertEquals(5, IteratorAdapter.asList(cats).size());
+    }
+
+    @Test
+    public void Paged(){
+        CloseableIterator<Cat> cats = query().setPagedIteration(true).setFetchSize(2).iterate(cat);
+        assertTrue(cats instanceof PagedResultIterator);
+        List<Cat> results = IteratorAdapter.asList(cats);
+        assertEquals(5, results.size());
+        assertEquals("Cat0", results.get(0).getName());
+        assertEquals("Cat4", results.get(4).getName());
+    }
+
+    @Test
+    public void Factory_Expression(){
+        List<Tuple> tuples = IteratorAdapter.asList(query().iterate(new QTuple(cat.name, cat.id)));
+        assertEquals(5, tuples.size());
+        assertEquals("Cat0", tuples.get(0).get(cat.name));
+        assertEquals(Integer.valueOf(ID_OFFSET), tuples.get(0).get(cat.id));
+    }
+
+    @Test
+    public void Clear_Interval(){
+        CloseableIterator<Cat> cats = query().setClearInterval(2).iterate(cat);
+        Cat first = cats.next();
+        assertTrue(entityManager.contains(first));
+        int count = 1;
+        while (cats.hasNext()) {
+            cats.next();
+            count++;
+        }
+        cats.close();
+        assertEquals(5, count);
+        assertFalse(entityManager.contains(first));
+    }
+
+}
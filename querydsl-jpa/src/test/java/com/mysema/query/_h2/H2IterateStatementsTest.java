@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query._h2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.jpa.domain.Cat;
+import com.mysema.query.jpa.domain.QCat;
+import com.mysema.query.jpa.hibernate.HibernateQuery;
+import com.mysema.testutil.HibernateConfig;
+import com.mysema.testutil.HibernateTestRunner;
+
+/**
+ * Compares the statement counts of scroll based and Query.iterate based iteration
+ * 
+ * @author tiwe
+ *
+ */
+@RunWith(HibernateTestRunner.class)
+@HibernateConfig("h2.properties")
+public class H2IterateStatementsTest {
+
+    private static final int ROWS = 2000;
+
+    private static final int ID_OFFSET = 100000;
+
+    private final QCat cat = QCat.cat;
+
+    private Session session;
+
+    public void setSession(Session session) {
+        this.session = session;
+    }
+
+    private HibernateQuery query() {
+        return new HibernateQuery(session).from(cat).where(cat.id.goe(ID_OFFSET)).orderBy(cat.id.asc());
+    }
+
+    @Test
+    public void Iterate() {
+        for (int i = 0; i < ROWS; i++) {
+            session.save(new Cat("Cat" + i, ID_OFFSET + i));
+        }
+        session.flush();
+        session.clear();
+
+        Statistics statistics = session.getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        long scrollStatements = run(statistics, query().setFetchSize(100).setClearInterval(500));
+        long iterateStatements = run(statistics, query().setUseQueryIterate(true));
+
+        assertEquals(1, scrollStatements);
+        assertTrue(iterateStatements > ROWS);
+    }
+
+    private long run(Statistics statistics, HibernateQuery query) {
+        session.clear();
+        statistics.clear();
+        CloseableIterator<Cat> cats = query.iterate(cat);
+        int count = 0;
+        try {
+            while (cats.hasNext()) {
+                cats.next().getName();
+                count++;
+            }
+        } finally {
+            cats.close();
+        }
+        assertEquals(ROWS, count);
+        return statistics.getPrepareStatementCount();
+    }
+
+}
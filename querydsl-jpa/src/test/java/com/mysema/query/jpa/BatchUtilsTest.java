@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mysema.query.DefaultQueryMetadata;
+import com.mysema.query.JoinType;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.jpa.domain.QOrder;
+import com.mysema.query.types.ExpressionUtils;
+import com.mysema.query.types.PathMetadataFactory;
+import com.mysema.query.types.Predicate;
+import com.mysema.query.types.path.PathInits;
+
+public class BatchUtilsTest {
+
+    private final QOrder order = new QOrder(PathMetadataFactory.forVariable("order"), PathInits.DIRECT);
+
+    private final List<QueryMetadata> batches = new ArrayList<QueryMetadata>();
+
+    private void update(boolean paid, Predicate... conditions) {
+        QueryMetadata metadata = new DefaultQueryMetadata();
+        metadata.addJoin(JoinType.DEFAULT, order);
+        metadata.addProjection(ExpressionUtils.eqConst(order.paid, paid));
+        metadata.addWhere(conditions);
+        batches.add(metadata);
+    }
+
+    private String serialize(QueryMetadata metadata) {
+        JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+        serializer.serializeForUpdate(metadata);
+        return serializer.toString().replace('\n', ' ');
+    }
+
+    @Test
+    public void Merge_Keys() {
+        for (long i = 0; i < 5; i++) {
+            update(true, order.id.eq(i));
+        }
+        List<QueryMetadata> merged = BatchUtils.merge(batches, BatchUtils.DEFAULT_MAX_KEYS);
+        assertEquals(1, merged.size());
+        assertEquals("update Order order set order.paid = ?1 where order.id in (?2)", serialize(merged.get(0)));
+    }
+
+    @Test
+    public void Merge_Keys_with_Other_Conditions() {
+        for (long i = 0; i < 3; i++) {
+            update(true, order.paid.isFalse(), order.id.eq(i));
+        }
+        List<QueryMetadata> merged = BatchUtils.merge(batches, BatchUtils.DEFAULT_MAX_KEYS);
+        assertEquals(1, merged.size());
+        assertEquals("update Order order set order.paid = ?1 where order.paid = ?2 and order.id in (?3)", 
+                serialize(merged.get(0)));
+    }
+
+    @Test
+    public void Chunks() {
+        for (long i = 0; i < 5; i++) {
+            update(true, order.id.eq(i));
+        }
+        List<QueryMetadata> merged = BatchUtils.merge(batches, 2);
+        assertEquals(3, merged.size());
+        assertSame(batches.get(4), merged.get(2));
+    }
+
+    @Test
+    public void Different_Shapes_Are_Not_Merged() {
+        update(true, order.id.eq(1l));
+        update(false, order.id.eq(2l));
+        update(false, order.id.eq(3l));
+        update(true, order.id.eq(4l));
+        List<QueryMetadata> merged = BatchUtils.merge(batches, BatchUtils.DEFAULT_MAX_KEYS);
+        assertEquals(3, merged.size());
+        assertSame(batches.get(0), merged.get(0));
+        assertEquals("update Order order set order.paid = ?1 where order.id in (?2)", serialize(merged.get(1)));
+        assertSame(batches.get(3), merged.get(2));
+    }
+
+    @Test
+    public void Without_Key_Condition() {
+        update(true, order.paid.isFalse());
+        update(true);
+        update(true, order.paid.isFalse());
+        List<QueryMetadata> merged = BatchUtils.merge(batches, BatchUtils.DEFAULT_MAX_KEYS);
+        assertEquals(batches, merged);
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.jpa.domain.QOrder;
+import com.mysema.query.types.ExpressionUtils;
+import com.mysema.query.types.PathMetadataFactory;
+import com.mysema.query.types.path.PathInits;
+
+public class DMLBatchTest {
+
+    private final QOrder order = new QOrder(PathMetadataFactory.forVariable("order"), PathInits.DIRECT);
+
+    private final List<String> created = new ArrayList<String>();
+
+    private final List<String> executed = new ArrayList<String>();
+
+    private final DMLBatch<String> batch = new DMLBatch<String>(order) {
+        @Override
+        protected String createQuery(String queryString, boolean flushed) {
+            created.add(flushed + " " + queryString);
+            return queryString;
+        }
+
+        @Override
+        protected long execute(QueryMetadata item) {
+            JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+            serializer.serializeForUpdate(item);
+            executed.add(getQuery(serializer.toString().replace('\n', ' ')));
+            return 1;
+        }
+    };
+
+    private void update(boolean paid, long id) {
+        batch.getMetadata().addProjection(ExpressionUtils.eqConst(order.paid, paid));
+        batch.getMetadata().addWhere(order.id.eq(id));
+        batch.addBatch();
+    }
+
+    @Test
+    public void Execute() {
+        update(true, 1l);
+        update(true, 2l);
+        update(false, 3l);
+        update(true, 4l);
+        assertEquals(3, batch.execute());
+        assertEquals(Arrays.asList(
+                "update Order order set order.paid = ?1 where order.id in (?2)",
+                "update Order order set order.paid = ?1 where order.id = ?2",
+                "update Order order set order.paid = ?1 where order.id = ?2"), executed);
+        assertEquals(Arrays.asList(
+                "false update Order order set order.paid = ?1 where order.id in (?2)",
+                "true update Order order set order.paid = ?1 where order.id = ?2"), created);
+    }
+
+    @Test
+    public void Batch_Is_Cleared() {
+        update(true, 1l);
+        update(true, 2l);
+        batch.execute();
+        batch.getMetadata().addProjection(ExpressionUtils.eqConst(order.paid, false));
+        assertEquals(1, batch.execute());
+        assertEquals(2, executed.size());
+        assertEquals("update Order order set order.paid = ?1", executed.get(1));
+        assertEquals(2, created.size());
+    }
+
+    @Test
+    public void Max_Batch_Keys() {
+        batch.setMaxBatchKeys(2);
+        for (long i = 0; i < 5; i++) {
+            update(true, i);
+        }
+        assertEquals(3, batch.execute());
+        assertEquals(2, created.size());
+    }
+
+}
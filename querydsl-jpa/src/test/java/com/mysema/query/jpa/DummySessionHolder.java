@@ -30,4 +30,9 @@ public class DummySessionHolder implements SessionHolder{
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
 }
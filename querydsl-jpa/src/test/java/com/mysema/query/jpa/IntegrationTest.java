@@ -154,6 +154,35 @@ public class IntegrationTest extends ParsingTest {
         assertEquals(1, amount);
     }
 
+    @Test
+    public void Update_Batch(){
+        session.save(new Cat("Bob",10));
+        session.save(new Cat("Steve",11));
+        session.save(new Cat("Tom",12));
+
+        QCat cat = QCat.cat;
+        HibernateUpdateClause update = update(cat);
+        for (int id = 10; id < 13; id++) {
+            update.set(cat.name, "Bobby").where(cat.id.eq(id)).addBatch();
+        }
+        assertEquals(3, update.execute());
+        assertEquals(3l, query().from(cat).where(cat.name.eq("Bobby")).count());
+    }
+
+    @Test
+    public void Delete_Batch(){
+        session.save(new Cat("Bob",10));
+        session.save(new Cat("Steve",11));
+        session.save(new Cat("Tom",12));
+
+        QCat cat = QCat.cat;
+        HibernateDeleteClause delete = delete(cat);
+        delete.where(cat.id.eq(10)).addBatch();
+        delete.where(cat.name.eq("Steve")).addBatch();
+        delete.where(cat.id.eq(12)).addBatch();
+        assertEquals(3, delete.execute());
+    }
+
     @Test
     public void Collection() throws Exception{
         List<Cat> cats = Arrays.asList(new Cat("Bob",10), new Cat("Steve",11));
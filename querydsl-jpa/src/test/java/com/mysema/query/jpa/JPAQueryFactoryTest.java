@@ -14,14 +14,21 @@
 package com.mysema.query.jpa;
 
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 import javax.inject.Provider;
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
 
 import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.mysema.query.jpa.domain.Animal;
 import com.mysema.query.jpa.domain.QAnimal;
 import com.mysema.query.jpa.impl.JPAQueryFactory;
 
@@ -65,4 +72,64 @@ public class JPAQueryFactoryTest {
         assertNotNull(queryFactory.update(QAnimal.animal));
     }
 
+    @Test
+    public void AfterCommit(){
+        final EntityManager entityManager = EasyMock.createNiceMock(EntityManager.class);
+        Query query = EasyMock.createNiceMock(Query.class);
+        EasyMock.expect(entityManager.createQuery(EasyMock.<String>anyObject())).andReturn(query).anyTimes();
+        EasyMock.replay(entityManager, query);
+        Provider<EntityManager> provider = new Provider<EntityManager>(){
+            @Override
+            public EntityManager get() {
+                return entityManager;
+            }
+        };
+        QueryResultCache resultCache = new QueryResultCache();
+        JPAQueryFactory factory = new JPAQueryFactory(JPQLTemplates.DEFAULT, provider, resultCache);
+        List<Object> key = Collections.<Object>singletonList("animals");
+        Set<Class<?>> types = Collections.<Class<?>>singleton(Animal.class);
+
+        resultCache.put(key, Collections.singletonList(1), types);
+        factory.update(QAnimal.animal).set(QAnimal.animal.name, "Bob").execute();
+        assertNull(resultCache.get(key));
+
+        // cached again by a concurrent transaction before the commit
+        resultCache.put(key, Collections.singletonList(1), types);
+        factory.afterCommit();
+        assertNull(resultCache.get(key));
+    }
+
+    @Test
+    public void AfterCommit_Of_Other_Thread() throws InterruptedException{
+        final EntityManager entityManager = EasyMock.createNiceMock(EntityManager.class);
+        Query query = EasyMock.createNiceMock(Query.class);
+        EasyMock.expect(entityManager.createQuery(EasyMock.<String>anyObject())).andReturn(query).anyTimes();
+        EasyMock.replay(entityManager, query);
+        Provider<EntityManager> provider = new Provider<EntityManager>(){
+            @Override
+            public EntityManager get() {
+                return entityManager;
+            }
+        };
+        QueryResultCache resultCache = new QueryResultCache();
+        final JPAQueryFactory factory = new JPAQueryFactory(JPQLTemplates.DEFAULT, provider, resultCache);
+        List<Object> key = Collections.<Object>singletonList("animals");
+        Set<Class<?>> types = Collections.<Class<?>>singleton(Animal.class);
+
+        factory.update(QAnimal.animal).set(QAnimal.animal.name, "Bob").execute();
+        // the commit of another transaction doesn't drain the modifications of this one
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                factory.afterCommit();
+            }
+        };
+        other.start();
+        other.join();
+
+        resultCache.put(key, Collections.singletonList(1), types);
+        factory.afterCommit();
+        assertNull(resultCache.get(key));
+    }
+
 }
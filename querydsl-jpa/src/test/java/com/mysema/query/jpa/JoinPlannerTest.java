@@ -0,0 +1,153 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.mysema.query.DefaultQueryMetadata;
+import com.mysema.query.JoinType;
+import com.mysema.query.PreparedQuery;
+import com.mysema.query.jpa.domain.QCustomer;
+import com.mysema.query.jpa.domain.QOrder;
+import com.mysema.query.types.ArrayConstructorExpression;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.FactoryExpression;
+import com.mysema.query.types.PathMetadataFactory;
+import com.mysema.query.types.path.PathInits;
+
+public class JoinPlannerTest {
+
+    private final QOrder order = new QOrder(PathMetadataFactory.forVariable("order"), new PathInits("customer.name", "customer.currentOrder"));
+
+    private final JPQLQueryMixin<?> mixin = new JPQLQueryMixin<Object>(new DefaultQueryMetadata());
+
+    private String serialize() {
+        JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+        serializer.serialize(mixin.getMetadata(), false, null);
+        return serializer.toString();
+    }
+
+    private String serialize(Expression<?> expr) {
+        JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+        serializer.handle(expr);
+        return serializer.toString();
+    }
+
+    @Test
+    public void FetchJoins() {
+        mixin.from(order);
+        mixin.fetchJoins(order.customer.name.firstName, order.customer.name.lastName, order.paid);
+        assertEquals("from Order order\n" +
+                "  left join fetch order.customer as order_customer\n" +
+                "  left join fetch order_customer.name as order_customer_name", serialize());
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void FetchJoins_Prepared() {
+        mixin.from(order);
+        PreparedQuery prepared = new PreparedQuery(mixin.getMetadata());
+        new JPQLQueryMixin<Object>(prepared.bind()).fetchJoins(order.customer.name.firstName);
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void JoinPaths_Prepared() {
+        mixin.from(order);
+        PreparedQuery prepared = new PreparedQuery(mixin.getMetadata());
+        new JPQLQueryMixin<Object>(prepared.bind()).joinPaths(order.customer.name.firstName);
+    }
+
+    @Test
+    public void FetchJoins_Collection() {
+        mixin.from(order);
+        mixin.fetchJoins(order.items);
+        assertEquals("from Order order\n" +
+                "  left join fetch order.items as order_items", serialize());
+    }
+
+    @Test
+    public void FetchJoins_Reuse_Existing_Join() {
+        QCustomer customer = new QCustomer("c");
+        mixin.from(order);
+        mixin.innerJoin(order.customer, customer);
+        mixin.fetchJoins(order.customer.name.firstName);
+        assertEquals("from Order order\n" +
+                "  inner join order.customer as c\n" +
+                "  left join fetch c.name as order_customer_name", serialize());
+    }
+
+    @Test
+    public void FetchJoins_After_JoinPaths() {
+        mixin.from(order);
+        mixin.joinPaths(order.customer.name);
+        mixin.fetchJoins(order.customer.name.firstName);
+        assertEquals("from Order order\n" +
+                "  left join fetch order.customer as order_customer\n" +
+                "  left join fetch order_customer.name as order_customer_name", serialize());
+    }
+
+    @Test
+    public void Unique_Aliases() {
+        QCustomer customer = new QCustomer("order_customer");
+        mixin.from(order, customer);
+        mixin.joinPaths(order.customer.name);
+        assertEquals("from Order order, Customer order_customer\n" +
+                "  left join order.customer as order_customer_1\n" +
+                "  left join order_customer_1.name as order_customer_name", serialize());
+    }
+
+    @Test
+    public void JoinPaths() {
+        mixin.from(order);
+        ArrayConstructorExpression<String> projection = new ArrayConstructorExpression<String>(
+                String[].class, order.customer.name.firstName, order.customer.name.lastName);
+        Expression<String[]> rebased = mixin.joinPaths(projection);
+        assertEquals("from Order order\n" +
+                "  left join order.customer as order_customer\n" +
+                "  left join order_customer.name as order_customer_name", serialize());
+        assertEquals("(order_customer_name.firstName, order_customer_name.lastName)", serialize(rebased));
+        assertEquals(Arrays.asList("a", "b"), Arrays.asList(((FactoryExpression<String[]>)rebased).newInstance("a", "b")));
+    }
+
+    @Test
+    public void JoinPaths_Entity() {
+        mixin.from(order);
+        Expression<?> rebased = mixin.joinPaths(order.customer.name);
+        assertEquals("from Order order\n" +
+                "  left join order.customer as order_customer\n" +
+                "  left join order_customer.name as order_customer_name", serialize());
+        assertEquals("order_customer_name", serialize(rebased));
+    }
+
+    @Test
+    public void JoinPaths_Repeated() {
+        mixin.from(order);
+        mixin.joinPaths(order.customer.name.firstName);
+        mixin.joinPaths(order.customer.name.lastName.concat(order.customer.currentOrder.id.stringValue()));
+        assertEquals(4, mixin.getMetadata().getJoins().size());
+        assertEquals(JoinType.LEFTJOIN, mixin.getMetadata().getJoins().get(3).getType());
+    }
+
+    @Test
+    public void JoinPaths_Scalar() {
+        mixin.from(order);
+        Expression<?> rebased = mixin.joinPaths(order.paid);
+        assertEquals(order.paid, rebased);
+        assertEquals(1, mixin.getMetadata().getJoins().size());
+    }
+
+}
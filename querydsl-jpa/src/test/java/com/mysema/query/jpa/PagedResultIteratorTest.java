@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.persistence.Query;
+
+import org.junit.Test;
+
+import com.mysema.commons.lang.IteratorAdapter;
+import com.mysema.query.QueryModifiers;
+import com.mysema.query.jpa.impl.PagedResultIterator;
+
+public class PagedResultIteratorTest {
+
+    private final Query query = createMock(Query.class);
+
+    private void expectPage(int offset, int size, Integer... results) {
+        expect(query.setFirstResult(offset)).andReturn(query);
+        expect(query.setMaxResults(size)).andReturn(query);
+        expect(query.getResultList()).andReturn(Arrays.asList(results));
+    }
+
+    @Test
+    public void Pages() {
+        expectPage(0, 2, 1, 2);
+        expectPage(2, 2, 3);
+        replay(query);
+
+        PagedResultIterator<Integer> iterator = new PagedResultIterator<Integer>(query, null, 2);
+        assertEquals(Arrays.asList(1, 2, 3), IteratorAdapter.asList(iterator));
+        verify(query);
+    }
+
+    @Test
+    public void Last_Page_Is_Full() {
+        expectPage(0, 2, 1, 2);
+        expectPage(2, 2);
+        replay(query);
+
+        PagedResultIterator<Integer> iterator = new PagedResultIterator<Integer>(query, null, 2);
+        assertEquals(Arrays.asList(1, 2), IteratorAdapter.asList(iterator));
+        verify(query);
+    }
+
+    @Test
+    public void Limit_And_Offset() {
+        expectPage(1, 2, 2, 3);
+        expectPage(3, 1, 4);
+        replay(query);
+
+        PagedResultIterator<Integer> iterator = new PagedResultIterator<Integer>(query, 
+                new QueryModifiers(3l, 1l), 2);
+        assertEquals(Arrays.asList(2, 3, 4), IteratorAdapter.asList(iterator));
+        verify(query);
+    }
+
+    @Test
+    public void Close() {
+        expectPage(0, 2, 1, 2);
+        replay(query);
+
+        PagedResultIterator<Integer> iterator = new PagedResultIterator<Integer>(query, null, 2);
+        assertEquals(Integer.valueOf(1), iterator.next());
+        iterator.close();
+        assertFalse(iterator.hasNext());
+        verify(query);
+    }
+
+    @Test
+    public void Empty() {
+        expectPage(0, 2);
+        replay(query);
+
+        PagedResultIterator<Integer> iterator = new PagedResultIterator<Integer>(query, null, 2);
+        assertEquals(Collections.emptyList(), IteratorAdapter.asList(iterator));
+        verify(query);
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.mysema.query.DefaultQueryMetadata;
+import com.mysema.query.JoinType;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.jpa.domain.Cat;
+import com.mysema.query.jpa.domain.Customer;
+import com.mysema.query.jpa.domain.Order;
+import com.mysema.query.jpa.domain.QCustomer;
+import com.mysema.query.types.EntityPath;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.QTuple;
+import com.mysema.query.types.path.EntityPathBase;
+
+public class QueryResultCacheTest {
+
+    private final EntityPath<Cat> cat = new EntityPathBase<Cat>(Cat.class, "cat");
+
+    private final QCustomer customer = new QCustomer("customer");
+
+    private static List<Object> key(Object... values) {
+        return Arrays.asList(values);
+    }
+
+    private static Set<Class<?>> types(Class<?>... types) {
+        return new HashSet<Class<?>>(Arrays.asList(types));
+    }
+
+    @Test
+    public void Hits_and_Misses() {
+        QueryResultCache cache = new QueryResultCache();
+        assertNull(cache.get(key("a")));
+        cache.put(key("a"), Arrays.asList(1, 2), types(Cat.class));
+        assertEquals(Arrays.asList(1, 2), cache.get(key("a")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void Rows_Are_Copied() {
+        QueryResultCache cache = new QueryResultCache();
+        Object[] row = new Object[]{1, "a"};
+        cache.put(key("a"), Collections.singletonList(row), types(Cat.class));
+        row[0] = 2;
+        List<?> results = cache.get(key("a"));
+        assertEquals(1, ((Object[])results.get(0))[0]);
+        ((Object[])results.get(0))[0] = 3;
+        assertEquals(1, ((Object[])cache.get(key("a")).get(0))[0]);
+    }
+
+    @Test
+    public void Null_Result() {
+        QueryResultCache cache = new QueryResultCache();
+        cache.put(key("a"), Collections.singletonList(null), types(Cat.class));
+        assertEquals(Collections.singletonList(null), cache.get(key("a")));
+    }
+
+    @Test
+    public void LRU_Eviction() {
+        QueryResultCache cache = new QueryResultCache(2, 0);
+        cache.put(key("a"), Arrays.asList(1), types(Cat.class));
+        cache.put(key("b"), Arrays.asList(2), types(Cat.class));
+        cache.get(key("a"));
+        cache.put(key("c"), Arrays.asList(3), types(Cat.class));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(key("b")));
+        assertEquals(Arrays.asList(1), cache.get(key("a")));
+    }
+
+    @Test
+    public void Expiration() throws InterruptedException {
+        QueryResultCache cache = new QueryResultCache(2, 10);
+        cache.put(key("a"), Arrays.asList(1), types(Cat.class));
+        Thread.sleep(50);
+        assertNull(cache.get(key("a")));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void Invalidate() {
+        QueryResultCache cache = new QueryResultCache();
+        cache.put(key("a"), Arrays.asList(1), types(Number.class));
+        cache.put(key("b"), Arrays.asList(2), types(String.class, Integer.class));
+        cache.put(key("c"), Arrays.asList(3), types(String.class));
+        assertEquals(2, cache.invalidate(Integer.class));
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getInvalidationCount());
+        assertEquals(Arrays.asList(3), cache.get(key("c")));
+    }
+
+    @Test
+    public void EntityTypes() {
+        QueryMetadata metadata = new DefaultQueryMetadata();
+        metadata.addJoin(JoinType.DEFAULT, cat);
+        metadata.addProjection(cat);
+        metadata.addWhere(new JPQLSubQuery().from(customer).where(customer.currentOrder.id.eq(1l)).exists());
+        assertEquals(types(Cat.class, Customer.class, Order.class), QueryResultCache.getEntityTypes(metadata));
+    }
+
+    @Test
+    public void IsCacheable() {
+        assertTrue(QueryResultCache.isCacheable(Arrays.<Expression<?>>asList(
+                customer.currentOrder.id, customer.currentOrder.paid)));
+        assertFalse(QueryResultCache.isCacheable(Arrays.<Expression<?>>asList(
+                new QTuple(customer.currentOrder.id, customer.currentOrder.paid))));
+        assertFalse(QueryResultCache.isCacheable(Arrays.<Expression<?>>asList(cat)));
+        assertFalse(QueryResultCache.isCacheable(Arrays.<Expression<?>>asList(customer.currentOrder.items)));
+        assertFalse(QueryResultCache.isCacheable(Arrays.<Expression<?>>asList(
+                new QTuple(customer.currentOrder.id, customer.currentOrder))));
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.jpa;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mysema.query.DefaultQueryMetadata;
+import com.mysema.query.JoinType;
+import com.mysema.query.QueryMetadata;
+import com.mysema.query.jpa.domain.Cat;
+import com.mysema.query.types.EntityPath;
+import com.mysema.query.types.Predicate;
+import com.mysema.query.types.expr.Param;
+import com.mysema.query.types.path.EntityPathBase;
+import com.mysema.query.types.path.NumberPath;
+import com.mysema.query.types.path.StringPath;
+
+public class QueryStringCacheTest {
+
+    private final EntityPath<Cat> cat = new EntityPathBase<Cat>(Cat.class, "cat");
+
+    private final StringPath name = new StringPath(cat, "name");
+
+    private final NumberPath<Integer> id = new NumberPath<Integer>(Integer.class, cat, "id");
+
+    private QueryStringCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new QueryStringCache(2);
+    }
+
+    private QueryMetadata metadata(Predicate where) {
+        QueryMetadata md = new DefaultQueryMetadata();
+        md.addJoin(JoinType.DEFAULT, cat);
+        md.addProjection(cat);
+        md.addWhere(where);
+        return md;
+    }
+
+    private void assertSerialization(QueryMetadata md) {
+        JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+        serializer.serialize(md, false, null);
+        Map<Object, String> constants = new HashMap<Object, String>();
+        assertEquals(serializer.toString(), cache.serialize(HQLTemplates.DEFAULT, md, false, constants));
+        assertEquals(serializer.getConstantToLabel(), constants);
+    }
+
+    @Test
+    public void Same_Shape_Different_Constants() {
+        assertSerialization(metadata(name.eq("Bob").and(id.gt(1))));
+        assertSerialization(metadata(name.eq("Steve").and(id.gt(2))));
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void Equal_Constants_Change_Shape() {
+        assertSerialization(metadata(name.eq("Bob").and(name.ne("Bob"))));
+        assertSerialization(metadata(name.eq("Bob").and(name.ne("Steve"))));
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void Constant_Types_Change_Shape() {
+        NumberPath<Long> longPath = new NumberPath<Long>(Long.class, cat, "long");
+        assertSerialization(metadata(longPath.add(1l).gt(3l)));
+        assertSerialization(metadata(longPath.add(1).gt(3l)));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getUncacheableCount());
+    }
+
+    @Test
+    public void Params() {
+        Param<String> param = new Param<String>(String.class, "name");
+        assertSerialization(metadata(name.eq(param).and(id.gt(1))));
+        assertSerialization(metadata(name.eq(param).and(id.gt(2))));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void Transformed_Constants_Are_Not_Cached() {
+        assertSerialization(metadata(name.matches("Bob.*")));
+        assertSerialization(metadata(name.matches("B.b")));
+        assertSerialization(metadata(name.startsWith("B")));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.getUncacheableCount());
+    }
+
+    @Test
+    public void Eviction() {
+        assertSerialization(metadata(name.eq("Bob")));
+        assertSerialization(metadata(id.eq(1)));
+        assertSerialization(metadata(name.isNull()));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void Enable_And_Disable() {
+        HQLTemplates templates = new HQLTemplates();
+        assertFalse(templates.isQueryStringCacheEnabled());
+        templates.setQueryStringCacheEnabled(true);
+        assertTrue(templates.isQueryStringCacheEnabled());
+        templates.getQueryStringCache().serialize(templates, metadata(name.eq("Bob")), false, 
+                new HashMap<Object, String>());
+        templates.setQueryStringCacheEnabled(false);
+        assertFalse(templates.isQueryStringCacheEnabled());
+        assertEquals(0, templates.getQueryStringCache().size());
+    }
+
+}
@@ -31,6 +31,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.mysema.query.SearchResults;
 import com.mysema.query.jpa.domain.Cat;
 import com.mysema.query.jpa.domain.QCat;
@@ -264,6 +265,45 @@ public class JPADerbySQLTest {
         assertFalse(list.isEmpty());
     }
     
+    @Test
+    public void List_Via_Connection() {
+        assertEquals(Arrays.asList("Beck","Bobby","Harold"), query().from(cat)
+                .setUseConnection(true).orderBy(cat.name.asc()).limit(3).list(cat.name));
+    }
+
+    @Test
+    public void Iterate_Via_Connection() {
+        CloseableIterator<Object[]> rows = query().from(cat).setUseConnection(true)
+                .where(cat.dtype.eq("C")).iterate(cat.id, cat.name);
+        try {
+            int count = 0;
+            while (rows.hasNext()) {
+                assertEquals(2, rows.next().length);
+                count++;
+            }
+            assertEquals(6, count);
+        } finally {
+            rows.close();
+        }
+    }
+
+    @Test
+    public void Entity_Projection_Via_Provider() {
+        List<Cat> cats = query().from(cat).setUseConnection(true).orderBy(cat.name.asc()).list(QCat.cat);
+        assertEquals(6, cats.size());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void Mixed_Entity_Projection_Via_Provider() {
+        query().from(cat).setUseConnection(true).list(cat.name, QCat.cat);
+    }
+
+    @Test
+    public void Count_Via_Connection_Flushes() {
+        entityManager.persist(new Cat("Jack",7));
+        assertEquals(7l, query().from(cat).setUseConnection(true).where(cat.dtype.eq("C")).count());
+    }
+
     private void print(Iterable<Object[]> rows){
         for (Object[] row : rows){
             System.out.println(Arrays.asList(row));
@@ -15,20 +15,29 @@ package com.mysema.query.lucene;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.FieldSelector;
 import org.apache.lucene.document.MapFieldSelector;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanFilter;
 import org.apache.lucene.search.DuplicateFilter;
 import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.FilterClause;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Searcher;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopScoreDocCollector;
 
 import com.google.common.base.Function;
 import com.mysema.commons.lang.CloseableIterator;
@@ -43,6 +52,9 @@ import com.mysema.query.SearchResults;
 import com.mysema.query.SimpleProjectable;
 import com.mysema.query.SimpleQuery;
 import com.mysema.query.support.QueryMixin;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.Operation;
+import com.mysema.query.types.Ops;
 import com.mysema.query.types.OrderSpecifier;
 import com.mysema.query.types.ParamExpression;
 import com.mysema.query.types.Path;
@@ -72,10 +84,23 @@ SimpleProjectable<T> {
 
     @Nullable
     private Filter filter;
+
+    private final List<Predicate> filterPredicates = new ArrayList<Predicate>();
+
+    private final Set<Path<?>> fieldCachePaths = new HashSet<Path<?>>();
+
+    @Nullable
+    private FilterCache filterCache = FilterCache.DEFAULT;
     
     @Nullable
     private Sort querySort;
 
+    @Nullable
+    private ScoreDoc searchAfter;
+
+    @Nullable
+    private ScoreDoc lastHit;
+
     @SuppressWarnings("unchecked")
     public AbstractLuceneQuery(LuceneSerializer serializer, Searcher searcher,
             Function<Document, T> transformer) {
@@ -91,12 +116,29 @@ SimpleProjectable<T> {
 
     @Override
     public boolean exists() {
-        return innerCount() > 0;
+        return innerExists();
     }
 
     @Override
     public boolean notExists() {
-        return innerCount() == 0;
+        return !innerExists();
+    }
+
+    private boolean innerExists() {
+        try {
+            if (searcher.maxDoc() == 0) {
+                return false;
+            }
+            FirstHitCollector collector = new FirstHitCollector();
+            try {
+                searcher.search(createQuery(), createFilter(), collector);
+            } catch (CollectionTerminatedException e) {
+                // first hit found
+            }
+            return collector.isFound();
+        } catch (final IOException e) {
+            throw new QueryException(e);
+        }
     }
 
     private long innerCount(){
@@ -105,7 +147,9 @@ SimpleProjectable<T> {
             if (maxDoc == 0) {
                 return 0;
             }
-            return searcher.search(createQuery(), filter, maxDoc).totalHits;
+            HitCountCollector collector = new HitCountCollector();
+            searcher.search(createQuery(), createFilter(), collector);
+            return collector.getTotalHits();
         } catch (final IOException e) {
             throw new QueryException(e);
         }
@@ -155,6 +199,68 @@ SimpleProjectable<T> {
         return (Q)this;
     }
 
+    /**
+     * Apply the given predicates as non-scoring filters to the search results. Each 
+     * conjunct of the predicates is serialized into its own filter, and the document sets 
+     * of the filters are reused via the filter cache of this query.
+     *
+     * @param predicates
+     * @return
+     * @see #filterCache(FilterCache)
+     */
+    @SuppressWarnings("unchecked")
+    public Q filter(Predicate... predicates) {
+        for (Predicate predicate : predicates) {
+            addFilterPredicate(predicate);
+        }
+        return (Q)this;
+    }
+
+    private void addFilterPredicate(Predicate predicate) {
+        if (predicate instanceof Operation<?> && ((Operation<?>)predicate).getOperator() == Ops.AND) {
+            for (Expression<?> arg : ((Operation<?>)predicate).getArgs()) {
+                addFilterPredicate((Predicate)arg);
+            }
+        } else {
+            filterPredicates.add(predicate);
+        }
+    }
+
+    /**
+     * Set the cache for the filters of the filter predicates, default is {@link FilterCache#DEFAULT}
+     *
+     * @param filterCache cache or null, for no caching
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q filterCache(@Nullable FilterCache filterCache) {
+        this.filterCache = filterCache;
+        return (Q)this;
+    }
+
+    @Nullable
+    private Filter createFilter() {
+        if (filterPredicates.isEmpty()) {
+            return filter;
+        }
+        List<Filter> filters = new ArrayList<Filter>(filterPredicates.size() + 1);
+        for (Predicate predicate : filterPredicates) {
+            Filter f = serializer.toFilter(predicate, queryMixin.getMetadata());
+            filters.add(filterCache != null ? filterCache.get(f) : f);
+        }
+        if (filter != null) {
+            filters.add(filter);
+        }
+        if (filters.size() == 1) {
+            return filters.get(0);
+        }
+        BooleanFilter booleanFilter = new BooleanFilter();
+        for (Filter f : filters) {
+            booleanFilter.add(new FilterClause(f, Occur.MUST));
+        }
+        return booleanFilter;
+    }
+
     @Override
     public Q limit(long limit) {
         return queryMixin.limit(limit);
@@ -162,43 +268,135 @@ SimpleProjectable<T> {
 
     @Override
     public CloseableIterator<T> iterate() {
+        try {
+            TopDocs topDocs = searchPage(createQuery());
+            return topDocs != null ? iterate(topDocs) : new EmptyCloseableIterator<T>();
+        } catch (final IOException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    /**
+     * Return the values of the given projection for the results. The projection can be a
+     * path or a factory expression such as a QBean, ConstructorExpression or QTuple with 
+     * path arguments. Only the stored fields of the paths are loaded and converted to the 
+     * types of the paths.
+     *
+     * @param projection
+     * @return
+     * @see #loadFromFieldCache(Path...)
+     */
+    public <RT> CloseableIterator<RT> iterate(Expression<RT> projection) {
+        try {
+            TopDocs topDocs = searchPage(createQuery());
+            return topDocs != null ? iterate(topDocs, projection) : new EmptyCloseableIterator<RT>();
+        } catch (final IOException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    private <RT> CloseableIterator<RT> iterate(TopDocs topDocs, Expression<RT> projection) throws IOException {
+        final Long queryOffset = queryMixin.getMetadata().getModifiers().getOffset();
+        final int offset = queryOffset != null ? queryOffset.intValue() : 0;
+        if (offset < topDocs.scoreDocs.length) {
+            return new ProjectionResultIterator<RT>(topDocs.scoreDocs, offset, createProjection(projection));
+        }
+        return new EmptyCloseableIterator<RT>();
+    }
+
+    private <RT> FieldProjection<RT> createProjection(Expression<RT> projection) throws IOException {
+        return new FieldProjection<RT>(projection, serializer, searcher, fieldCachePaths);
+    }
+
+    private CloseableIterator<T> iterate(TopDocs topDocs) {
+        final Long queryOffset = queryMixin.getMetadata().getModifiers().getOffset();
+        final int offset = queryOffset != null ? queryOffset.intValue() : 0;
+        final ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+        if (offset < scoreDocs.length) {
+            return new ResultIterator<T>(scoreDocs, offset, searcher, fieldSelector, transformer);
+        }
+        return new EmptyCloseableIterator<T>();
+    }
+
+    /**
+     * Search the hits up to the end of the requested page
+     *
+     * @param query
+     * @return top docs or null, if the index is empty
+     * @throws IOException
+     */
+    @Nullable
+    private TopDocs searchPage(Query query) throws IOException {
         final QueryMetadata metadata = queryMixin.getMetadata();
         final List<OrderSpecifier<?>> orderBys = metadata.getOrderBy();
         final Long queryLimit = metadata.getModifiers().getLimit();
         final Long queryOffset = metadata.getModifiers().getOffset();
         Sort sort = querySort;
-        int limit;
-        final int offset = queryOffset != null ? queryOffset.intValue() : 0;
-        try {
-            limit = maxDoc();
-            if (limit == 0) {
-                return new EmptyCloseableIterator<T>();
-            }
-        } catch (final IOException e) {
-            throw new QueryException(e);
+        int limit = maxDoc();
+        if (limit == 0) {
+            return null;
         }
+        final int offset = queryOffset != null ? queryOffset.intValue() : 0;
         if (queryLimit != null && queryLimit.intValue() < limit) {
             limit = queryLimit.intValue();
         }
         if (sort == null && !orderBys.isEmpty()) {
             sort = serializer.toSort(orderBys);
         }
+        int sumOfLimitAndOffset = limit + offset;
+        if (sumOfLimitAndOffset < 1) {
+            throw new QueryException("The given limit (" + limit + ") and offset (" + offset + ") cause an integer overflow.");
+        }
+        TopDocs topDocs = search(query, sumOfLimitAndOffset, sort);
+        ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+        lastHit = scoreDocs.length > 0 ? scoreDocs[scoreDocs.length - 1] : null;
+        return topDocs;
+    }
 
-        try {
-            ScoreDoc[] scoreDocs;
-            int sumOfLimitAndOffset = limit + offset;
-            if (sumOfLimitAndOffset < 1) {
-                throw new QueryException("The given limit (" + limit + ") and offset (" + offset + ") cause an integer overflow.");
-            }
+    private TopDocs search(Query query, int nDocs, @Nullable Sort sort) throws IOException {
+        if (searchAfter != null) {
+            TopDocsCollector<?> collector;
             if (sort != null) {
-                scoreDocs = searcher.search(createQuery(), filter, sumOfLimitAndOffset, sort).scoreDocs;
+                collector = TopFieldCollector.create(sort, nDocs, true, false, false, false);
             } else {
-                scoreDocs = searcher.search(createQuery(), filter, sumOfLimitAndOffset).scoreDocs;
+                collector = TopScoreDocCollector.create(nDocs, false);
             }
-            if (offset < scoreDocs.length) {
-                return new ResultIterator<T>(scoreDocs, offset, searcher, fieldSelector, transformer);
+            SearchAfterCollector afterCollector = new SearchAfterCollector(collector, searchAfter, sort);
+            searcher.search(query, createFilter(), afterCollector);
+            // the total hits include the hits before the cursor
+            TopDocs topDocs = collector.topDocs();
+            return new TopDocs(afterCollector.getTotalHits(), topDocs.scoreDocs, topDocs.getMaxScore());
+        } else if (sort != null) {
+            return searcher.search(query, createFilter(), nDocs, sort);
+        } else {
+            return searcher.search(query, createFilter(), nDocs);
+        }
+    }
+
+    /**
+     * Return the results in index order without scoring or sorting them. The matching documents
+     * are collected into a bit set of the size of the index and the stored fields are loaded 
+     * only when the iteration advances, so that the whole index can be exported in bounded 
+     * memory. Order specifiers, sort and searchAfter are ignored, limit and offset are applied.
+     *
+     * @return
+     */
+    public CloseableIterator<T> iterateUnsorted() {
+        final QueryModifiers modifiers = queryMixin.getMetadata().getModifiers();
+        final int offset = modifiers.getOffset() != null ? modifiers.getOffset().intValue() : 0;
+        try {
+            final int maxDoc = maxDoc();
+            if (maxDoc == 0) {
+                return new EmptyCloseableIterator<T>();
+            }
+            long maxHits = modifiers.getLimit() != null ? modifiers.getLimit() + offset : maxDoc;
+            DocSetCollector collector = new DocSetCollector(maxDoc, (int) Math.min(maxHits, maxDoc));
+            try {
+                searcher.search(createQuery(), createFilter(), collector);
+            } catch (CollectionTerminatedException e) {
+                // enough hits collected
             }
-            return new EmptyCloseableIterator<T>();
+            return new DocSetResultIterator<T>(collector.getDocs(), offset, searcher, fieldSelector, transformer);
         } catch (final IOException e) {
             throw new QueryException(e);
         }
@@ -218,6 +416,17 @@ SimpleProjectable<T> {
         return innerList();
     }
 
+    /**
+     * Return the values of the given projection for the results
+     *
+     * @param projection
+     * @return
+     * @see #iterate(Expression)
+     */
+    public <RT> List<RT> list(Expression<RT> projection) {
+        return new IteratorAdapter<RT>(iterate(projection)).asList();
+    }
+
     /**
      * Set the given FieldSelector to the query
      *
@@ -246,6 +455,24 @@ SimpleProjectable<T> {
         return (Q)this;
     }
 
+    /**
+     * Read the values of the given numeric paths in projections from the field cache instead 
+     * of the stored fields. The paths need to be indexed with a single term per document, as 
+     * for sorting, and are supported for Integer, Long, Float and Double typed paths. The field 
+     * cache entries are shared with sorts on the same fields. Projections consisting only of 
+     * such paths don't load the documents at all.
+     *
+     * @param paths
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q loadFromFieldCache(Path<?>... paths) {
+        for (Path<?> path : paths) {
+            fieldCachePaths.add(path);
+        }
+        return (Q)this;
+    }
+
     @Override
     public List<T> listDistinct() {
         throw new UnsupportedOperationException("use distinct(path) instead");
@@ -258,12 +485,38 @@ SimpleProjectable<T> {
 
     @Override
     public SearchResults<T> listResults() {
-        List<T> documents = innerList();
-        /*
-         * TODO Get rid of count(). It could be implemented by iterating the
-         * list results in list* from n to m.
-         */
-        return new SearchResults<T>(documents, queryMixin.getMetadata().getModifiers(), innerCount());
+        try {
+            // the page and the total amount of hits are collected in a single search
+            TopDocs topDocs = searchPage(createQuery());
+            if (topDocs == null) {
+                return SearchResults.emptyResults();
+            }
+            List<T> documents = new IteratorAdapter<T>(iterate(topDocs)).asList();
+            return new SearchResults<T>(documents, queryMixin.getMetadata().getModifiers(), topDocs.totalHits);
+        } catch (final IOException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    /**
+     * Return the values of the given projection for the results together with the total 
+     * amount of hits
+     *
+     * @param projection
+     * @return
+     * @see #iterate(Expression)
+     */
+    public <RT> SearchResults<RT> listResults(Expression<RT> projection) {
+        try {
+            TopDocs topDocs = searchPage(createQuery());
+            if (topDocs == null) {
+                return SearchResults.emptyResults();
+            }
+            List<RT> results = new IteratorAdapter<RT>(iterate(topDocs, projection)).asList();
+            return new SearchResults<RT>(results, queryMixin.getMetadata().getModifiers(), topDocs.totalHits);
+        } catch (final IOException e) {
+            throw new QueryException(e);
+        }
     }
 
     @Override
@@ -286,6 +539,32 @@ SimpleProjectable<T> {
         return queryMixin.set(param, value);
     }
     
+    /**
+     * Return only the hits which are ordered after the given hit, which is usually the last 
+     * hit of the previous page. Unlike paging via offset the cost of the search doesn't grow 
+     * with the depth of the page. For sorted queries the hit needs to carry the sort values,
+     * which is the case for the hits returned by {@link #getLastHit()}.
+     *
+     * @param after last hit of the previous page
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public Q searchAfter(@Nullable ScoreDoc after) {
+        this.searchAfter = after;
+        return (Q)this;
+    }
+
+    /**
+     * Get the last hit of the latest page of results, which can be used as cursor for the 
+     * next page via {@link #searchAfter(ScoreDoc)}
+     *
+     * @return last hit or null, if the latest page was empty
+     */
+    @Nullable
+    public ScoreDoc getLastHit() {
+        return lastHit;
+    }
+
     @SuppressWarnings("unchecked")
     public Q sort(Sort sort) {
         this.querySort = sort;
@@ -295,27 +574,13 @@ SimpleProjectable<T> {
     @Nullable
     private T oneResult(boolean unique) {
         try {
-            int maxDoc = maxDoc();
-            if (maxDoc == 0) {
-                return null;
-            }
-            final ScoreDoc[] scoreDocs = searcher.search(createQuery(), filter, maxDoc).scoreDocs;
-            int index = 0;
-            QueryModifiers modifiers = queryMixin.getMetadata().getModifiers();
-            Long offset = modifiers.getOffset();
-            if (offset != null) {
-                index = offset.intValue();
-            }
-            Long limit = modifiers.getLimit();
-            if (unique && (limit == null ? scoreDocs.length - index > 1 :
-                                           limit > 1 && scoreDocs.length > 1)) {
-                throw new NonUniqueResultException("Unique result requested, but " + scoreDocs.length + " found.");
-            } else if (scoreDocs.length > index) {
+            ScoreDoc hit = oneHit(unique);
+            if (hit != null) {
                 Document document;
                 if (fieldSelector != null){
-                    document = searcher.doc(scoreDocs[index].doc, fieldSelector);
+                    document = searcher.doc(hit.doc, fieldSelector);
                 } else {
-                    document = searcher.doc(scoreDocs[index].doc);
+                    document = searcher.doc(hit.doc);
                 }
                 return transformer.apply(document);
             } else {
@@ -326,6 +591,43 @@ SimpleProjectable<T> {
         }
     }
 
+    @Nullable
+    private <RT> RT oneResult(Expression<RT> projection, boolean unique) {
+        try {
+            ScoreDoc hit = oneHit(unique);
+            return hit != null ? createProjection(projection).get(hit.doc) : null;
+        } catch (IOException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    @Nullable
+    private ScoreDoc oneHit(boolean unique) throws IOException {
+        int maxDoc = maxDoc();
+        if (maxDoc == 0) {
+            return null;
+        }
+        int index = 0;
+        QueryModifiers modifiers = queryMixin.getMetadata().getModifiers();
+        Long offset = modifiers.getOffset();
+        if (offset != null) {
+            index = offset.intValue();
+        }
+        // the offset and one more document are enough to detect non-unique results
+        int nDocs = (int) Math.min(maxDoc, (long) index + (unique ? 2 : 1));
+        final TopDocs topDocs = searcher.search(createQuery(), createFilter(), nDocs);
+        final ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+        Long limit = modifiers.getLimit();
+        if (unique && (limit == null ? scoreDocs.length - index > 1 :
+                                       limit > 1 && scoreDocs.length > 1)) {
+            throw new NonUniqueResultException("Unique result requested, but " + topDocs.totalHits + " found.");
+        } else if (scoreDocs.length > index) {
+            return scoreDocs[index];
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public T singleResult() {
         return oneResult(false);
@@ -336,6 +638,16 @@ SimpleProjectable<T> {
         return oneResult(true);
     }
 
+    @Nullable
+    public <RT> RT singleResult(Expression<RT> projection) {
+        return oneResult(projection, false);
+    }
+
+    @Nullable
+    public <RT> RT uniqueResult(Expression<RT> projection) {
+        return oneResult(projection, true);
+    }
+
     @Override
     public Q where(Predicate... e) {
         return queryMixin.where(e);
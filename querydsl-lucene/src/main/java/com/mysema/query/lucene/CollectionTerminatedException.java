@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+/**
+ * CollectionTerminatedException is thrown by collectors to stop the search, since Lucene 
+ * collectors have no other means of early termination
+ *
+ * @author tiwe
+ *
+ */
+final class CollectionTerminatedException extends RuntimeException {
+
+    private static final long serialVersionUID = -4283961924817227735L;
+
+    static final CollectionTerminatedException INSTANCE = new CollectionTerminatedException();
+
+    private CollectionTerminatedException() {}
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
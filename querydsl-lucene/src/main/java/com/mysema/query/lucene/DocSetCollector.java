@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.OpenBitSet;
+
+/**
+ * DocSetCollector marks the matching documents in a bit set without scoring or sorting them.
+ * The search is terminated when the given amount of hits has been collected.
+ *
+ * @author tiwe
+ *
+ */
+final class DocSetCollector extends Collector {
+
+    private final OpenBitSet docs;
+
+    private final int maxHits;
+
+    private int totalHits;
+
+    private int docBase;
+
+    public DocSetCollector(int maxDoc, int maxHits) {
+        this.docs = new OpenBitSet(maxDoc);
+        this.maxHits = maxHits;
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) {
+        // not needed
+    }
+
+    @Override
+    public void collect(int doc) {
+        if (totalHits >= maxHits) {
+            throw CollectionTerminatedException.INSTANCE;
+        }
+        docs.fastSet(docBase + doc);
+        if (++totalHits >= maxHits) {
+            throw CollectionTerminatedException.INSTANCE;
+        }
+    }
+
+    @Override
+    public void setNextReader(IndexReader reader, int docBase) {
+        this.docBase = docBase;
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        // in order collection makes limit and offset consistent with the iteration
+        return false;
+    }
+
+    public OpenBitSet getDocs() {
+        return docs;
+    }
+
+}
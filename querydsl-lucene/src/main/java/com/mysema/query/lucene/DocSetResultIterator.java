@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.search.Searcher;
+import org.apache.lucene.util.OpenBitSet;
+
+import com.google.common.base.Function;
+import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.query.QueryException;
+
+/**
+ * DocSetResultIterator iterates over the documents of a bit set in index order and loads 
+ * the stored fields of each document only when it is requested
+ *
+ * @author tiwe
+ *
+ * @param <T>
+ */
+public final class DocSetResultIterator<T> implements CloseableIterator<T> {
+
+    private final OpenBitSet docs;
+
+    private int doc;
+
+    private final Searcher searcher;
+
+    @Nullable
+    private final FieldSelector fieldSelector;
+
+    private final Function<Document,T> transformer;
+
+    public DocSetResultIterator(OpenBitSet docs, int offset, Searcher searcher,
+            @Nullable FieldSelector fieldSelector, Function<Document, T> transformer) {
+        this.docs = docs;
+        this.searcher = searcher;
+        this.fieldSelector = fieldSelector;
+        this.transformer = transformer;
+        this.doc = docs.nextSetBit(0);
+        for (int i = 0; i < offset && doc != -1; i++) {
+            doc = docs.nextSetBit(doc + 1);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return doc != -1;
+    }
+
+    @Override
+    public T next() {
+        if (doc == -1) {
+            throw new NoSuchElementException();
+        }
+        try {
+            Document document;
+            if (fieldSelector != null) {
+                document = searcher.doc(doc, fieldSelector);
+            } else {
+                document = searcher.doc(doc);
+            }
+            doc = docs.nextSetBit(doc + 1);
+            return transformer.apply(document);
+        } catch (IOException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.FieldSelector;
+import org.apache.lucene.document.MapFieldSelector;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.FieldCache;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Searcher;
+import org.apache.lucene.util.NumericUtils;
+
+import com.mysema.query.QueryException;
+import com.mysema.query.types.Expression;
+import com.mysema.query.types.FactoryExpression;
+import com.mysema.query.types.Path;
+
+/**
+ * FieldProjection reads the values of a path or factory expression projection for given 
+ * documents. Only the stored fields of the projected paths are loaded, and numeric paths
+ * can be read from the per segment field cache without loading the document at all.
+ *
+ * @author tiwe
+ *
+ * @param <RT> projection type
+ */
+final class FieldProjection<RT> {
+
+    private final Expression<RT> projection;
+
+    private final Class<?>[] types;
+
+    private final String[] fields;
+
+    // per segment field cache values of the path or null, if the stored field is used
+    private final Object[][] cached;
+
+    @Nullable
+    private final FieldSelector fieldSelector;
+
+    private final Searcher searcher;
+
+    private final int[] docStarts;
+
+    public FieldProjection(Expression<RT> projection, LuceneSerializer serializer, Searcher searcher,
+            Collection<Path<?>> fieldCachePaths) throws IOException {
+        this.projection = projection;
+        this.searcher = searcher;
+        List<Path<?>> paths = getPaths(projection);
+        IndexReader[] subReaders = getSubReaders(searcher);
+        types = new Class<?>[paths.size()];
+        fields = new String[paths.size()];
+        cached = new Object[paths.size()][];
+        docStarts = new int[subReaders != null ? subReaders.length : 0];
+        for (int i = 0; i < docStarts.length - 1; i++) {
+            docStarts[i + 1] = docStarts[i] + subReaders[i].maxDoc();
+        }
+        List<String> storedFields = new ArrayList<String>();
+        for (int i = 0; i < fields.length; i++) {
+            types[i] = paths.get(i).getType();
+            fields[i] = serializer.toField(paths.get(i));
+            if (subReaders != null && fieldCachePaths.contains(paths.get(i))) {
+                cached[i] = new Object[subReaders.length];
+                for (int j = 0; j < subReaders.length; j++) {
+                    cached[i][j] = getFieldCacheValues(subReaders[j], fields[i], types[i]);
+                }
+            } else {
+                storedFields.add(fields[i]);
+            }
+        }
+        fieldSelector = storedFields.isEmpty() ? null : new MapFieldSelector(storedFields);
+    }
+
+    private static List<Path<?>> getPaths(Expression<?> projection) {
+        List<Path<?>> paths = new ArrayList<Path<?>>();
+        if (projection instanceof FactoryExpression<?>) {
+            for (Expression<?> arg : ((FactoryExpression<?>)projection).getArgs()) {
+                if (!(arg instanceof Path<?>)) {
+                    throw new IllegalArgumentException("Unsupported projection argument " + arg);
+                }
+                paths.add((Path<?>)arg);
+            }
+        } else if (projection instanceof Path<?>) {
+            paths.add((Path<?>)projection);
+        } else {
+            throw new IllegalArgumentException("Unsupported projection " + projection);
+        }
+        return paths;
+    }
+
+    @Nullable
+    private static IndexReader[] getSubReaders(Searcher searcher) {
+        if (searcher instanceof IndexSearcher) {
+            IndexReader reader = ((IndexSearcher)searcher).getIndexReader();
+            IndexReader[] subReaders = reader.getSequentialSubReaders();
+            return subReaders != null ? subReaders : new IndexReader[]{reader};
+        } else {
+            return null;
+        }
+    }
+
+    private static Object getFieldCacheValues(IndexReader reader, String field, Class<?> type) 
+            throws IOException {
+        // the parsers are autodetected, so that the entries are shared with the sorts
+        if (type.equals(Integer.class)) {
+            return FieldCache.DEFAULT.getInts(reader, field);
+        } else if (type.equals(Long.class)) {
+            return FieldCache.DEFAULT.getLongs(reader, field);
+        } else if (type.equals(Float.class)) {
+            return FieldCache.DEFAULT.getFloats(reader, field);
+        } else if (type.equals(Double.class)) {
+            return FieldCache.DEFAULT.getDoubles(reader, field);
+        } else {
+            throw new IllegalArgumentException("Unsupported field cache type " + type.getName());
+        }
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public RT get(int doc) {
+        try {
+            Document document = null;
+            if (fieldSelector != null) {
+                document = searcher.doc(doc, fieldSelector);
+            }
+            Object[] values = new Object[fields.length];
+            int segment = cached.length > 0 ? getSegment(doc) : 0;
+            for (int i = 0; i < values.length; i++) {
+                if (cached[i] != null) {
+                    values[i] = getCachedValue(cached[i][segment], doc - docStarts[segment]);
+                } else {
+                    values[i] = convert(document.get(fields[i]), types[i]);
+                }
+            }
+            if (projection instanceof FactoryExpression<?>) {
+                return ((FactoryExpression<RT>)projection).newInstance(values);
+            } else {
+                return (RT) values[0];
+            }
+        } catch (IOException e) {
+            throw new QueryException(e);
+        }
+    }
+
+    private int getSegment(int doc) {
+        int lo = 0, hi = docStarts.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (docStarts[mid] <= doc) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private static Object getCachedValue(Object values, int doc) {
+        if (values instanceof int[]) {
+            return ((int[])values)[doc];
+        } else if (values instanceof long[]) {
+            return ((long[])values)[doc];
+        } else if (values instanceof float[]) {
+            return ((float[])values)[doc];
+        } else {
+            return ((double[])values)[doc];
+        }
+    }
+
+    /**
+     * Convert the given stored value to the given type. Numeric values are accepted both in 
+     * plain and in prefix coded form.
+     * 
+     * @param value
+     * @param type
+     * @return
+     */
+    @Nullable
+    static Object convert(@Nullable String value, Class<?> type) {
+        if (value == null || type.equals(String.class) || type.equals(Object.class)) {
+            return value;
+        } else if (Number.class.isAssignableFrom(type)) {
+            return convertNumber(value, type);
+        } else if (type.equals(Boolean.class)) {
+            return Boolean.valueOf(value);
+        } else if (type.equals(Character.class)) {
+            return value.charAt(0);
+        } else {
+            throw new IllegalArgumentException("Unsupported type " + type.getName());
+        }
+    }
+
+    private static Number convertNumber(String value, Class<?> type) {
+        if (value.length() > 0 && value.charAt(0) == NumericUtils.SHIFT_START_INT) {
+            int intValue = NumericUtils.prefixCodedToInt(value);
+            return convertNumber(type.equals(Float.class) 
+                    ? String.valueOf(NumericUtils.sortableIntToFloat(intValue))
+                    : String.valueOf(intValue), type);
+        } else if (value.length() > 0 && value.charAt(0) == NumericUtils.SHIFT_START_LONG) {
+            long longValue = NumericUtils.prefixCodedToLong(value);
+            return convertNumber(type.equals(Double.class) || type.equals(BigDecimal.class)
+                    ? String.valueOf(NumericUtils.sortableLongToDouble(longValue))
+                    : String.valueOf(longValue), type);
+        } else if (type.equals(Integer.class)) {
+            return Integer.valueOf(value);
+        } else if (type.equals(Long.class)) {
+            return Long.valueOf(value);
+        } else if (type.equals(Double.class)) {
+            return Double.valueOf(value);
+        } else if (type.equals(Float.class)) {
+            return Float.valueOf(value);
+        } else if (type.equals(Short.class)) {
+            return Short.valueOf(value);
+        } else if (type.equals(Byte.class)) {
+            return Byte.valueOf(value);
+        } else if (type.equals(BigDecimal.class)) {
+            return new BigDecimal(value);
+        } else if (type.equals(BigInteger.class)) {
+            return new BigInteger(value);
+        } else {
+            throw new IllegalArgumentException("Unsupported numeric type " + type.getName());
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.search.CachingWrapperFilter;
+import org.apache.lucene.search.Filter;
+
+/**
+ * FilterCache caches the document sets of filters across queries.
+ * 
+ * <p>Filters are keyed by equality, so filters serialized from equal predicates share the 
+ * cached entry. The document sets are cached per index segment, and are computed again only
+ * for new segments. Entries of closed segments are released together with the segment 
+ * readers.</p>
+ * 
+ * @author tiwe
+ *
+ */
+public final class FilterCache {
+
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    /**
+     * Default instance shared by all queries which don't declare their own cache
+     */
+    public static final FilterCache DEFAULT = new FilterCache();
+
+    private final Map<Filter, Filter> filters;
+
+    private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), 
+        evictions = new AtomicLong();
+
+    private final int maxSize;
+
+    public FilterCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    @SuppressWarnings("serial")
+    public FilterCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.filters = Collections.synchronizedMap(new LinkedHashMap<Filter, Filter>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Filter, Filter> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the caching form of the given filter
+     * 
+     * @param filter filter to be cached
+     * @return caching filter
+     */
+    public Filter get(Filter filter) {
+        synchronized (filters) {
+            Filter cached = filters.get(filter);
+            if (cached != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                cached = new CachingWrapperFilter(filter);
+                filters.put(filter, cached);
+            }
+            return cached;
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        filters.clear();
+    }
+
+    /**
+     * @return amount of filters served from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return amount of filters added to the cache
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return amount of entries evicted because of the size limit
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        return filters.size();
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * HitCountCollector counts the matching documents without scoring or collecting them
+ *
+ * @author tiwe
+ *
+ */
+final class HitCountCollector extends Collector {
+
+    private int totalHits;
+
+    @Override
+    public void setScorer(Scorer scorer) {
+        // not needed
+    }
+
+    @Override
+    public void collect(int doc) {
+        totalHits++;
+    }
+
+    @Override
+    public void setNextReader(IndexReader reader, int docBase) {
+        // not needed
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return true;
+    }
+
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+}
@@ -30,15 +30,19 @@ import org.apache.lucene.queryParser.QueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.PhraseQuery;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.TermsFilter;
 import org.apache.lucene.search.WildcardQuery;
 import org.apache.lucene.util.NumericUtils;
 
@@ -240,6 +244,12 @@ public class LuceneSerializer {
         Path<?> path = getPath(operation.getArg(0));
         String field = toField(path);
         Collection<?> values = (Collection<?>) ((Constant<?>) operation.getArg(1)).getConstant();
+        if (values.size() > BooleanQuery.getMaxClauseCount()) {
+            Filter filter = termsFilter(path, field, values);
+            if (filter != null) {
+                return new ConstantScoreQuery(filter);
+            }
+        }
         BooleanQuery bq = new BooleanQuery();
         for (Object value : values) {
             String[] str = convert(path, value);
@@ -248,6 +258,27 @@ public class LuceneSerializer {
         return bq;
     }
 
+    /**
+     * Create a terms filter for the given values, if each of them converts to a single term
+     * 
+     * @param path
+     * @param field
+     * @param values
+     * @return terms filter or null, if a value converts to a phrase
+     */
+    @Nullable
+    protected Filter termsFilter(Path<?> path, String field, Collection<?> values) {
+        TermsFilter filter = new TermsFilter();
+        for (Object value : values) {
+            String[] str = convert(path, value);
+            if (str.length > 1) {
+                return null;
+            }
+            filter.addTerm(new Term(field, str[0]));
+        }
+        return filter;
+    }
+
     protected Query ne(Operation<?> operation, QueryMetadata metadata, boolean ignoreCase) {
         BooleanQuery bq = new BooleanQuery();
         bq.add(new BooleanClause(eq(operation, metadata, ignoreCase), Occur.MUST_NOT));
@@ -535,6 +566,29 @@ public class LuceneSerializer {
         }
     }
 
+    /**
+     * Serialize the given predicate into a non-scoring filter. In expressions are converted
+     * into terms filters, other predicates are wrapped as queries.
+     * 
+     * @param expr
+     * @param metadata
+     * @return
+     */
+    public Filter toFilter(Expression<?> expr, QueryMetadata metadata) {
+        if (expr instanceof Operation<?> && ((Operation<?>)expr).getOperator() == Ops.IN) {
+            Operation<?> operation = (Operation<?>)expr;
+            if (operation.getArg(1) instanceof Constant<?>) {
+                Path<?> path = getPath(operation.getArg(0));
+                Collection<?> values = (Collection<?>) ((Constant<?>) operation.getArg(1)).getConstant();
+                Filter filter = termsFilter(path, toField(path), values);
+                if (filter != null) {
+                    return filter;
+                }
+            }
+        }
+        return new QueryWrapperFilter(toQuery(expr, metadata));
+    }
+
     public Sort toSort(List<? extends OrderSpecifier<?>> orderBys) {
         List<SortField> sorts = new ArrayList<SortField>(orderBys.size());
         for (OrderSpecifier<?> order : orderBys) {
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.util.NoSuchElementException;
+
+import org.apache.lucene.search.ScoreDoc;
+
+import com.mysema.commons.lang.CloseableIterator;
+
+/**
+ * ProjectionResultIterator iterates over the projected values of the given hits
+ *
+ * @author tiwe
+ *
+ * @param <RT>
+ */
+final class ProjectionResultIterator<RT> implements CloseableIterator<RT> {
+
+    private final ScoreDoc[] scoreDocs;
+
+    private int cursor;
+
+    private final FieldProjection<RT> projection;
+
+    public ProjectionResultIterator(ScoreDoc[] scoreDocs, int offset, FieldProjection<RT> projection) {
+        this.scoreDocs = scoreDocs;
+        this.cursor = offset;
+        this.projection = projection;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return cursor < scoreDocs.length;
+    }
+
+    @Override
+    public RT next() {
+        if (cursor >= scoreDocs.length) {
+            throw new NoSuchElementException();
+        }
+        return projection.get(scoreDocs[cursor++].doc);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+}
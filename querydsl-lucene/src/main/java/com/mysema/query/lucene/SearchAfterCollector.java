@@ -0,0 +1,188 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.io.IOException;
+import java.text.Collator;
+
+import javax.annotation.Nullable;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldCache;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreCachingWrappingScorer;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+
+import com.mysema.query.QueryException;
+
+/**
+ * SearchAfterCollector passes only the hits which are ordered after the given hit to the 
+ * wrapped collector. The collected page stays bounded by the size of the wrapped collector 
+ * regardless of how deep the page is.
+ * 
+ * <p>For sorted searches the given hit needs to be a {@link FieldDoc} with the sort values 
+ * filled in, as returned by the sorted searches of {@link AbstractLuceneQuery}.</p>
+ *
+ * @author tiwe
+ *
+ */
+final class SearchAfterCollector extends Collector {
+
+    private final Collector collector;
+
+    private final ScoreDoc after;
+
+    @Nullable
+    private final SortField[] sortFields;
+
+    @Nullable
+    private final Collator[] collators;
+
+    @Nullable
+    private Object[] values;
+
+    private Scorer scorer;
+
+    private int docBase;
+
+    private int totalHits;
+
+    public SearchAfterCollector(Collector collector, ScoreDoc after, @Nullable Sort sort) {
+        this.collector = collector;
+        this.after = after;
+        if (sort != null) {
+            if (!(after instanceof FieldDoc) || ((FieldDoc)after).fields == null) {
+                throw new QueryException("Sorted searches need a FieldDoc with sort values as cursor");
+            }
+            sortFields = sort.getSort();
+            collators = new Collator[sortFields.length];
+            for (int i = 0; i < sortFields.length; i++) {
+                if (sortFields[i].getLocale() != null) {
+                    collators[i] = Collator.getInstance(sortFields[i].getLocale());
+                }
+            }
+        } else {
+            sortFields = null;
+            collators = null;
+        }
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        this.scorer = new ScoreCachingWrappingScorer(scorer);
+        collector.setScorer(this.scorer);
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        totalHits++;
+        if (isAfter(doc)) {
+            collector.collect(doc);
+        }
+    }
+
+    private boolean isAfter(int doc) throws IOException {
+        if (sortFields == null) {
+            float score = scorer.score();
+            return score < after.score || (score == after.score && docBase + doc > after.doc);
+        }
+        Comparable<?>[] afterValues = ((FieldDoc)after).fields;
+        for (int i = 0; i < sortFields.length; i++) {
+            int cmp = compare(i, doc, afterValues[i]);
+            if (cmp != 0) {
+                return sortFields[i].getReverse() ? cmp < 0 : cmp > 0;
+            }
+        }
+        return docBase + doc > after.doc;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(int i, int doc, @Nullable Object afterValue) throws IOException {
+        switch (sortFields[i].getType()) {
+        case SortField.SCORE:
+            // higher scores come first
+            return Float.compare(((Float)afterValue).floatValue(), scorer.score());
+        case SortField.DOC:
+            return (docBase + doc) - ((Integer)afterValue).intValue();
+        case SortField.STRING:
+            // the string index is shared with the sorting of the search
+            FieldCache.StringIndex index = (FieldCache.StringIndex)values[i];
+            String value = index.lookup[index.order[doc]];
+            if (value == null || afterValue == null) {
+                return value == null ? (afterValue == null ? 0 : -1) : 1;
+            } else if (collators[i] != null) {
+                return collators[i].compare(value, afterValue);
+            } else {
+                return value.compareTo((String)afterValue);
+            }
+        default:
+            return ((Comparable<Object>)getNumber(i, doc)).compareTo(afterValue);
+        }
+    }
+
+    private Number getNumber(int i, int doc) {
+        switch (sortFields[i].getType()) {
+        case SortField.INT:    return ((int[])values[i])[doc];
+        case SortField.LONG:   return ((long[])values[i])[doc];
+        case SortField.FLOAT:  return ((float[])values[i])[doc];
+        case SortField.DOUBLE: return ((double[])values[i])[doc];
+        case SortField.SHORT:  return ((short[])values[i])[doc];
+        case SortField.BYTE:   return ((byte[])values[i])[doc];
+        default: throw new QueryException("Unsupported sort field type " + sortFields[i].getType());
+        }
+    }
+
+    @Override
+    public void setNextReader(IndexReader reader, int docBase) throws IOException {
+        this.docBase = docBase;
+        if (sortFields != null) {
+            values = new Object[sortFields.length];
+            for (int i = 0; i < sortFields.length; i++) {
+                values[i] = getValues(reader, sortFields[i]);
+            }
+        }
+        collector.setNextReader(reader, docBase);
+    }
+
+    @Nullable
+    private static Object getValues(IndexReader reader, SortField sortField) throws IOException {
+        String field = sortField.getField();
+        switch (sortField.getType()) {
+        case SortField.SCORE:
+        case SortField.DOC:    return null;
+        case SortField.STRING: return FieldCache.DEFAULT.getStringIndex(reader, field);
+        case SortField.INT:    return FieldCache.DEFAULT.getInts(reader, field);
+        case SortField.LONG:   return FieldCache.DEFAULT.getLongs(reader, field);
+        case SortField.FLOAT:  return FieldCache.DEFAULT.getFloats(reader, field);
+        case SortField.DOUBLE: return FieldCache.DEFAULT.getDoubles(reader, field);
+        case SortField.SHORT:  return FieldCache.DEFAULT.getShorts(reader, field);
+        case SortField.BYTE:   return FieldCache.DEFAULT.getBytes(reader, field);
+        default: throw new QueryException("Unsupported sort field type " + sortField.getType());
+        }
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return collector.acceptsDocsOutOfOrder();
+    }
+
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Searcher;
+import org.apache.lucene.store.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * SearcherManager hands out reference counted searchers of the latest reopened index reader,
+ * so that searchers can be shared by concurrent queries and index refreshes don't block them.
+ * 
+ * <p>Each acquired searcher needs to be released after the results have been consumed:</p>
+ * 
+ * <pre>
+ * Searcher searcher = manager.acquire();
+ * try {
+ *     List&lt;Document&gt; documents = new LuceneQuery(searcher).where(...).list();
+ * } finally {
+ *     manager.release(searcher);
+ * }
+ * </pre>
+ * 
+ * <p>A reader is closed, when it has been replaced by a reopened reader and all its searchers
+ * have been released.</p>
+ *
+ * @author tiwe
+ *
+ */
+public class SearcherManager implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearcherManager.class);
+
+    private final Object reopenLock = new Object();
+
+    // the readers of the searchers which are in use or current
+    private final Map<Searcher, IndexReader> readers = new IdentityHashMap<Searcher, IndexReader>();
+
+    private Searcher current;
+
+    public SearcherManager(Directory directory) throws IOException {
+        this(IndexReader.open(directory, true));
+    }
+
+    /**
+     * Create a new SearcherManager for the given reader. The manager takes over the reference
+     * of the caller to the reader.
+     * 
+     * @param reader initial reader
+     * @throws IOException
+     */
+    public SearcherManager(IndexReader reader) throws IOException {
+        this.current = createSearcher(reader);
+    }
+
+    private Searcher createSearcher(IndexReader reader) throws IOException {
+        Searcher searcher = new IndexSearcher(reader);
+        synchronized (readers) {
+            readers.put(searcher, reader);
+        }
+        return searcher;
+    }
+
+    /**
+     * Acquire the current searcher
+     * 
+     * @return searcher, to be released via {@link #release(Searcher)}
+     */
+    public Searcher acquire() {
+        synchronized (readers) {
+            if (current == null) {
+                throw new IllegalStateException("SearcherManager is closed");
+            }
+            readers.get(current).incRef();
+            return current;
+        }
+    }
+
+    /**
+     * Release the given searcher
+     * 
+     * @param searcher searcher returned by {@link #acquire()}
+     * @throws IOException
+     */
+    public void release(Searcher searcher) throws IOException {
+        synchronized (readers) {
+            IndexReader reader = readers.get(searcher);
+            if (reader == null) {
+                throw new IllegalArgumentException("Searcher is not managed by this SearcherManager");
+            }
+            if (reader.getRefCount() == 1) {
+                readers.remove(searcher);
+            }
+            reader.decRef();
+        }
+    }
+
+    /**
+     * Reopen the reader of the current searcher and make a new searcher current, if the index 
+     * has changed. Searchers acquired before stay usable until they are released.
+     * 
+     * @return true, if the searcher was replaced
+     * @throws IOException
+     */
+    public boolean maybeReopen() throws IOException {
+        synchronized (reopenLock) {
+            Searcher searcher = acquire();
+            try {
+                IndexReader reader;
+                synchronized (readers) {
+                    reader = readers.get(searcher);
+                }
+                IndexReader newReader = reader.reopen();
+                if (newReader == reader) {
+                    return false;
+                }
+                Searcher newSearcher = createSearcher(newReader);
+                Searcher old;
+                synchronized (readers) {
+                    old = current;
+                    current = newSearcher;
+                }
+                // drop the reference of the manager
+                release(old);
+                return true;
+            } finally {
+                release(searcher);
+            }
+        }
+    }
+
+    /**
+     * Reopen the reader periodically with the given executor
+     * 
+     * @param executor executor for the reopen task
+     * @param period period between reopens
+     * @param unit time unit of the period
+     * @return future of the task, to be used for cancellation
+     */
+    public ScheduledFuture<?> scheduleReopen(ScheduledExecutorService executor, long period, TimeUnit unit) {
+        return executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    maybeReopen();
+                } catch (IOException e) {
+                    logger.error(e.getMessage(), e);
+                } catch (IllegalStateException e) {
+                    // closed
+                }
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Release the current searcher. The reader is closed when all acquired searchers have been 
+     * released.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (reopenLock) {
+            Searcher old;
+            synchronized (readers) {
+                old = current;
+                current = null;
+            }
+            if (old != null) {
+                release(old);
+            }
+        }
+    }
+
+}
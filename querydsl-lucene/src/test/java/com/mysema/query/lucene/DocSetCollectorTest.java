@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class DocSetCollectorTest {
+
+    @Test
+    public void Collect() {
+        DocSetCollector collector = new DocSetCollector(10, 2);
+        collector.setNextReader(null, 5);
+        collector.collect(1);
+        try {
+            collector.collect(3);
+            fail("expected termination");
+        } catch (CollectionTerminatedException e) {
+            // expected
+        }
+        assertEquals(2, collector.getDocs().cardinality());
+        assertTrue(collector.getDocs().get(6));
+        assertTrue(collector.getDocs().get(8));
+    }
+
+    @Test
+    public void Collect_Without_Hits() {
+        DocSetCollector collector = new DocSetCollector(10, 0);
+        try {
+            collector.collect(1);
+            fail("expected termination");
+        } catch (CollectionTerminatedException e) {
+            // expected
+        }
+        assertEquals(0, collector.getDocs().cardinality());
+    }
+
+}
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -44,17 +45,21 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Searcher;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.NumericUtils;
 import org.apache.lucene.util.Version;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.mysema.commons.lang.IteratorAdapter;
 import com.mysema.query.NonUniqueResultException;
 import com.mysema.query.QueryException;
 import com.mysema.query.QueryModifiers;
 import com.mysema.query.SearchResults;
+import com.mysema.query.Tuple;
 import com.mysema.query.types.ParamNotSetException;
+import com.mysema.query.types.QTuple;
 import com.mysema.query.types.expr.Param;
 import com.mysema.query.types.path.NumberPath;
 import com.mysema.query.types.path.StringPath;
@@ -153,12 +158,44 @@ public class LuceneQueryTest {
         assertTrue(query.where(title.eq("Jurassic Park X")).notExists());
     }
 
+    @Test
+    public void Exists_Multiple_Hits(){
+        assertTrue(query.where(year.eq(1990)).exists());
+    }
+
     @Test
     public void Count() {
         query.where(title.eq("Jurassic Park"));
         assertEquals(1, query.count());
     }
 
+    @Test
+    public void Count_Multiple_Hits() {
+        query.where(year.eq(1990));
+        assertEquals(2, query.count());
+    }
+
+    @Test
+    public void Filter_Predicates() {
+        FilterCache cache = new FilterCache();
+        query.filterCache(cache).filter(year.between(1800, 2000).and(title.ne("Jurassic Park")));
+        assertEquals(3, query.count());
+        assertEquals(2, cache.getMissCount());
+
+        query = new LuceneQuery(new LuceneSerializer(true, true), searcher);
+        query.filterCache(cache).filter(title.ne("Jurassic Park")).where(year.eq(1990));
+        List<Document> documents = query.list();
+        assertEquals(1, documents.size());
+        assertEquals("Introduction to Algorithms", documents.get(0).get("title"));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void Filter_In() {
+        query.filterCache(null).filter(title.in("Nummisuutarit", "Jurassic"));
+        assertEquals(2, query.count());
+    }
+
     @Test(expected = QueryException.class)
     public void Count_Index_Problem() throws IOException {
         searcher = createMockBuilder(IndexSearcher.class).addMockedMethod(
@@ -384,6 +421,91 @@ public class LuceneQueryTest {
                 .get("title"));
     }
 
+    @Test
+    public void List_Sorted_Search_After() {
+        query.where(year.between(1800, 2000)).orderBy(year.asc()).limit(2);
+        List<Document> documents = query.list();
+        assertEquals(2, documents.size());
+        assertEquals("1864", documents.get(0).get("year"));
+        assertEquals("1954", documents.get(1).get("year"));
+
+        query = new LuceneQuery(new LuceneSerializer(true, true), searcher)
+            .where(year.between(1800, 2000)).orderBy(year.asc()).limit(2)
+            .searchAfter(query.getLastHit());
+        documents = query.list();
+        assertEquals(2, documents.size());
+        assertEquals("Jurassic Park", documents.get(0).get("title"));
+        assertEquals("Introduction to Algorithms", documents.get(1).get("title"));
+    }
+
+    @Test
+    public void List_Search_After() {
+        query.where(title.ne("")).limit(3);
+        assertEquals(3, query.list().size());
+
+        query = new LuceneQuery(new LuceneSerializer(true, true), searcher)
+            .where(title.ne("")).limit(3)
+            .searchAfter(query.getLastHit());
+        List<Document> documents = query.list();
+        assertEquals(1, documents.size());
+        assertEquals("Introduction to Algorithms", documents.get(0).get("title"));
+    }
+
+    @Test
+    public void Iterate_Unsorted() {
+        query.where(year.eq(1990)).orderBy(title.asc());
+        List<Document> documents = new IteratorAdapter<Document>(query.iterateUnsorted()).asList();
+        assertEquals(2, documents.size());
+        assertEquals("Jurassic Park", documents.get(0).get("title"));
+        assertEquals("Introduction to Algorithms", documents.get(1).get("title"));
+    }
+
+    @Test
+    public void Iterate_Unsorted_Limit_And_Offset() {
+        query.where(year.between(1800, 2000)).limit(2).offset(1);
+        List<Document> documents = new IteratorAdapter<Document>(query.iterateUnsorted()).asList();
+        assertEquals(2, documents.size());
+        assertEquals("Nummisuutarit", documents.get(0).get("title"));
+        assertEquals("The Lord of the Rings", documents.get(1).get("title"));
+    }
+
+    @Test
+    public void List_Path_Projection() {
+        query.where(year.between(1800, 2000)).orderBy(year.asc());
+        assertEquals(Arrays.asList(1864, 1954, 1990, 1990), query.list(year));
+    }
+
+    @Test
+    public void List_Path_Projection_From_Field_Cache() {
+        query.where(year.between(1800, 2000)).orderBy(year.asc()).loadFromFieldCache(year);
+        assertEquals(Arrays.asList(1864, 1954, 1990, 1990), query.list(year));
+    }
+
+    @Test
+    public void UniqueResult_Tuple_Projection() {
+        query.where(title.startsWith("Nummi"));
+        Tuple tuple = query.uniqueResult(new QTuple(title, year, gross));
+        assertEquals("Nummisuutarit", tuple.get(title));
+        assertEquals(Integer.valueOf(1864), tuple.get(year));
+        assertEquals(Double.valueOf(10.0), tuple.get(gross));
+    }
+
+    @Test
+    public void ListResults_Projection() {
+        query.where(year.between(1800, 2000)).orderBy(year.asc()).limit(2);
+        SearchResults<Double> results = query.listResults(gross);
+        assertEquals(Arrays.asList(10.0, 89.0), results.getResults());
+        assertEquals(4, results.getTotal());
+    }
+
+    @Test
+    public void Convert_Prefix_Coded() {
+        assertEquals(5, FieldProjection.convert(NumericUtils.intToPrefixCoded(5), Integer.class));
+        assertEquals(5l, FieldProjection.convert(NumericUtils.longToPrefixCoded(5l), Long.class));
+        assertEquals(1.5, FieldProjection.convert(NumericUtils.doubleToPrefixCoded(1.5), Double.class));
+        assertEquals(1.5, FieldProjection.convert("1.5", Double.class));
+    }
+
     @Ignore
     @Test(expected = QueryException.class)
     public void List_Index_Problem_In_Max_Doc() throws IOException {
@@ -613,6 +735,28 @@ public class LuceneQueryTest {
         assertEquals(4, results.getTotal());
     }
 
+    @Test
+    public void ListResults_Offset_After_Last_Hit() {
+        query.where(year.between(1800, 2000));
+        query.offset(10);
+        final SearchResults<Document> results = query.listResults();
+        assertTrue(results.getResults().isEmpty());
+        assertEquals(4, results.getTotal());
+    }
+
+    @Test
+    public void ListResults_Search_After() {
+        query.where(year.between(1800, 2000)).orderBy(year.asc()).limit(3);
+        query.list();
+        query = new LuceneQuery(new LuceneSerializer(true, true), searcher)
+            .where(year.between(1800, 2000)).orderBy(year.asc()).limit(3)
+            .searchAfter(query.getLastHit());
+        final SearchResults<Document> results = query.listResults();
+        assertEquals(1, results.getResults().size());
+        assertEquals("Introduction to Algorithms", results.getResults().get(0).get("title"));
+        assertEquals(4, results.getTotal());
+    }
+
     @Test(expected=UnsupportedOperationException.class)
     public void ListDistinctResults() {
         query.where(year.between(1800, 2000).or(
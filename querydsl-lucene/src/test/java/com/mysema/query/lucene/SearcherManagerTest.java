@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.lucene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Index;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriter.MaxFieldLength;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Searcher;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mysema.query.types.path.StringPath;
+
+public class SearcherManagerTest {
+
+    private final StringPath title = new StringPath("title");
+
+    private RAMDirectory idx;
+
+    private IndexWriter writer;
+
+    private SearcherManager manager;
+
+    private Document createDocument(String docTitle) {
+        Document doc = new Document();
+        doc.add(new Field("title", docTitle, Store.YES, Index.ANALYZED));
+        return doc;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        idx = new RAMDirectory();
+        writer = new IndexWriter(idx, new StandardAnalyzer(Version.LUCENE_30), true,
+                MaxFieldLength.UNLIMITED);
+        writer.addDocument(createDocument("Jurassic Park"));
+        writer.commit();
+        manager = new SearcherManager(idx);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        manager.close();
+        writer.close();
+    }
+
+    private long count(Searcher searcher) {
+        return new LuceneQuery(searcher).count();
+    }
+
+    @Test
+    public void Acquire_Returns_Current_Searcher() throws Exception {
+        Searcher searcher = manager.acquire();
+        try {
+            assertSame(searcher, manager.acquire());
+            manager.release(searcher);
+            assertEquals(1, count(searcher));
+        } finally {
+            manager.release(searcher);
+        }
+    }
+
+    @Test
+    public void MaybeReopen_Without_Changes() throws Exception {
+        assertFalse(manager.maybeReopen());
+    }
+
+    @Test
+    public void MaybeReopen_After_Commit() throws Exception {
+        Searcher old = manager.acquire();
+        IndexReader oldReader = ((IndexSearcher)old).getIndexReader();
+
+        writer.addDocument(createDocument("Nummisuutarit"));
+        writer.commit();
+        assertTrue(manager.maybeReopen());
+
+        Searcher searcher = manager.acquire();
+        try {
+            assertNotSame(old, searcher);
+            assertEquals(2, count(searcher));
+            assertEquals(1, new LuceneQuery(searcher).where(title.eq("nummisuutarit")).count());
+
+            // old searcher stays usable until released
+            assertEquals(1, count(old));
+            manager.release(old);
+            assertEquals(0, oldReader.getRefCount());
+        } finally {
+            manager.release(searcher);
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void Release_Unknown_Searcher() throws Exception {
+        manager.release(new IndexSearcher(idx, true));
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void Acquire_After_Close() throws Exception {
+        manager.close();
+        manager.acquire();
+    }
+
+}
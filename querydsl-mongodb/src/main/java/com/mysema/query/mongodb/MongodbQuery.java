@@ -16,21 +16,27 @@ package com.mysema.query.mongodb;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 
 import com.google.common.base.Function;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mysema.commons.lang.CloseableIterator;
+import com.mysema.commons.lang.EmptyCloseableIterator;
 import com.mysema.query.DefaultQueryMetadata;
 import com.mysema.query.JoinExpression;
 import com.mysema.query.NonUniqueResultException;
+import com.mysema.query.QueryException;
 import com.mysema.query.QueryMetadata;
 import com.mysema.query.QueryModifiers;
 import com.mysema.query.SearchResults;
@@ -39,6 +45,7 @@ import com.mysema.query.SimpleQuery;
 import com.mysema.query.support.QueryMixin;
 import com.mysema.query.types.Expression;
 import com.mysema.query.types.ExpressionUtils;
+import com.mysema.query.types.FactoryExpression;
 import com.mysema.query.types.Operation;
 import com.mysema.query.types.OrderSpecifier;
 import com.mysema.query.types.ParamExpression;
@@ -54,9 +61,34 @@ import com.mysema.query.types.Predicate;
  * @param <K>
  */
 public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, SimpleProjectable<K> {
+
+    public static final int DEFAULT_JOIN_CHUNK_SIZE = 10000;
+
+    public static final int DEFAULT_MAX_JOIN_IDS = 100000;
     
     @SuppressWarnings("serial")
     private static class NoResults extends RuntimeException {}
+
+    /**
+     * JoinIds holds the ids a join reference needs to match
+     */
+    private static class JoinIds {
+
+        private final Path<Object> path;
+
+        private final Collection<Object> ids;
+
+        @SuppressWarnings("unchecked")
+        JoinIds(Path<?> path, Collection<Object> ids) {
+            this.path = (Path<Object>)path;
+            this.ids = ids;
+        }
+
+        Predicate toPredicate() {
+            return ExpressionUtils.in(path, ids);
+        }
+
+    }
     
     private final MongodbSerializer serializer;
 
@@ -66,6 +98,15 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
 
     private final Function<DBObject, K> transformer;
 
+    private int batchSize = 0;
+
+    private int joinChunkSize = DEFAULT_JOIN_CHUNK_SIZE;
+
+    private int maxJoinIds = DEFAULT_MAX_JOIN_IDS;
+
+    @Nullable
+    private ExecutorService joinExecutor;
+
     public MongodbQuery(DBCollection collection, Function<DBObject, K> transformer, MongodbSerializer serializer) {
         this.queryMixin = new QueryMixin<MongodbQuery<K>>(this, new DefaultQueryMetadata(false));
         this.transformer = transformer;
@@ -107,45 +148,144 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
     
     @Nullable
     protected Predicate createJoinFilter(QueryMetadata metadata) {
-        Multimap<Expression<?>, Predicate> predicates = HashMultimap.<Expression<?>, Predicate>create();
         List<JoinExpression> joins = metadata.getJoins();
-        for (int i = joins.size() - 1; i >= 0; i--) {
-            JoinExpression join = joins.get(i);
-            Path source = (Path)((Operation<?>)join.getTarget()).getArg(0);
-            Path target = (Path)((Operation<?>)join.getTarget()).getArg(1);
-            Collection<Predicate> extraFilters = predicates.get(target.getRoot());
-            Predicate filter = ExpressionUtils.allOf(join.getCondition(), allOf(extraFilters));
-            List<Object> ids = getIds(target.getType(), filter);
+        Path<?> source = (Path<?>)((Operation<?>)joins.get(0).getTarget()).getArg(0);
+        List<JoinIds> joinIds = resolveJoins(joins, source.getRoot(), 0, true);
+        List<Predicate> predicates = new ArrayList<Predicate>(joinIds.size());
+        for (JoinIds ids : joinIds) {
+            predicates.add(ids.toPredicate());
+        }
+        return ExpressionUtils.allOf(predicates);
+    }
+
+    /**
+     * Resolve the ids of the joins with the given source root, starting from the given index.
+     * Joins of independent targets are resolved concurrently, if an executor has been set and
+     * concurrent is true. Only the top level is resolved concurrently, since tasks blocking on 
+     * subtasks of the same executor could take all of its threads.
+     */
+    private List<JoinIds> resolveJoins(final List<JoinExpression> joins, Path<?> root, int from, 
+            boolean concurrent) {
+        List<Callable<JoinIds>> tasks = new ArrayList<Callable<JoinIds>>();
+        for (int i = from; i < joins.size(); i++) {
+            final JoinExpression join = joins.get(i);
+            final int index = i;
+            Path<?> source = (Path<?>)((Operation<?>)join.getTarget()).getArg(0);
+            if (source.getRoot().equals(root)) {
+                tasks.add(new Callable<JoinIds>() {
+                    @Override
+                    public JoinIds call() {
+                        return resolveJoin(joins, index);
+                    }
+                });
+            }
+        }
+        List<JoinIds> rv = new ArrayList<JoinIds>(tasks.size());
+        if (concurrent && joinExecutor != null && tasks.size() > 1) {
+            try {
+                for (Future<JoinIds> future : joinExecutor.invokeAll(tasks)) {
+                    rv.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryException(e.getMessage(), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException)e.getCause();
+                } else {
+                    throw new QueryException(e.getMessage(), e.getCause());
+                }
+            }
+        } else {
+            try {
+                for (Callable<JoinIds> task : tasks) {
+                    rv.add(task.call());
+                }
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new QueryException(e.getMessage(), e);
+            }
+        }
+        return rv;
+    }
+
+    private JoinIds resolveJoin(List<JoinExpression> joins, int index) {
+        JoinExpression join = joins.get(index);
+        Path<?> source = (Path<?>)((Operation<?>)join.getTarget()).getArg(0);
+        Path<?> target = (Path<?>)((Operation<?>)join.getTarget()).getArg(1);
+
+        // ids of the joins of the target
+        List<JoinIds> constraints = resolveJoins(joins, target.getRoot(), index + 1, false);
+        List<JoinIds> chunked = new ArrayList<JoinIds>();
+        List<Predicate> filters = new ArrayList<Predicate>();
+        filters.add(join.getCondition());
+        for (JoinIds ids : constraints) {
+            if (ids.ids.size() > joinChunkSize) {
+                chunked.add(ids);
+            } else {
+                filters.add(ids.toPredicate());
+            }
+        }
+        Predicate filter = ExpressionUtils.allOf(filters);
+
+        // semi join in chunks of each large id set, intersecting the results
+        Set<Object> ids = null;
+        for (JoinIds constraint : chunked) {
+            Set<Object> matched = new LinkedHashSet<Object>();
+            List<Object> values = new ArrayList<Object>(constraint.ids);
+            for (int i = 0; i < values.size(); i += joinChunkSize) {
+                List<Object> chunk = values.subList(i, Math.min(values.size(), i + joinChunkSize));
+                addIds(matched, target, ExpressionUtils.allOf(filter, ExpressionUtils.in(constraint.path, chunk)));
+            }
+            if (ids == null) {
+                ids = matched;
+            } else {
+                ids.retainAll(matched);
+            }
             if (ids.isEmpty()) {
                 throw new NoResults();
             }
-            Path path = new PathImpl<String>(String.class, source, "$id");
-            predicates.put(source.getRoot(), ExpressionUtils.in(path, ids));
-//            System.err.println(predicates);
         }
-        Path source = (Path)((Operation)joins.get(0).getTarget()).getArg(0);
-        return allOf(predicates.get(source.getRoot()));
+        if (ids == null) {
+            ids = new LinkedHashSet<Object>();
+            addIds(ids, target, filter);
+        }
+        if (ids.isEmpty()) {
+            throw new NoResults();
+        }
+        return new JoinIds(new PathImpl<String>(String.class, source, "$id"), ids);
     }
-    
-    private Predicate allOf(Collection<Predicate> predicates) {
-        return predicates != null ? ExpressionUtils.allOf(predicates) : null;
+
+    private void addIds(Set<Object> ids, Path<?> target, Predicate filter) {
+        ids.addAll(getIds(target.getType(), filter));
+        if (ids.size() > maxJoinIds) {
+            throw new QueryException("Join on " + target + " matched more than " + maxJoinIds + " documents");
+        }
     }
-    
+
+    /**
+     * Get the ids of the documents of the given type matching the given condition
+     * 
+     * @param targetType
+     * @param condition
+     * @return
+     */
     protected List<Object> getIds(Class<?> targetType, Predicate condition) {
         DBCollection collection = getCollection(targetType);
-        // TODO : fetch only ids
-        DBCursor cursor = createCursor(collection, condition, QueryModifiers.EMPTY, Collections.<OrderSpecifier<?>>emptyList());
-        if (cursor.hasNext()) {
-            List<Object> ids = new ArrayList<Object>(cursor.count());
-            for (DBObject obj : cursor) {
-                ids.add(obj.get("_id"));
+        DBCursor cursor = createCursor(collection, condition, new BasicDBObject("_id", 1), QueryModifiers.EMPTY,
+                Collections.<OrderSpecifier<?>>emptyList());
+        try {
+            List<Object> ids = new ArrayList<Object>();
+            while (cursor.hasNext()) {
+                ids.add(cursor.next().get("_id"));
             }
             return ids;
-        } else {
-            return Collections.emptyList();
+        } finally {
+            cursor.close();
         }
     }
-    
+
     @Override
     public boolean notExists() {
         return !exists();
@@ -181,31 +321,117 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
         return queryMixin.orderBy(o);
     }
 
+    /**
+     * Set the amount of documents to be fetched per round trip by cursors of this query
+     * 
+     * @param batchSize
+     * @return
+     */
+    public MongodbQuery<K> setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Set the maximum amount of ids to be inlined into a single query, when the ids of 
+     * a join target are resolved from the ids of a subsequent join
+     * 
+     * @param joinChunkSize
+     * @return
+     */
+    public MongodbQuery<K> setJoinChunkSize(int joinChunkSize) {
+        this.joinChunkSize = joinChunkSize;
+        return this;
+    }
+
+    /**
+     * Set the maximum amount of ids a join may resolve to, before the query fails with 
+     * a {@link QueryException}
+     * 
+     * @param maxJoinIds
+     * @return
+     */
+    public MongodbQuery<K> setMaxJoinIds(int maxJoinIds) {
+        this.maxJoinIds = maxJoinIds;
+        return this;
+    }
+
+    /**
+     * Set the executor to be used to resolve the independent joins of the query root 
+     * concurrently. Nested joins are resolved in the thread of their parent join.
+     * 
+     * @param joinExecutor
+     * @return
+     */
+    public MongodbQuery<K> setJoinExecutor(@Nullable ExecutorService joinExecutor) {
+        this.joinExecutor = joinExecutor;
+        return this;
+    }
+
     @Override
     public <T> MongodbQuery<K> set(ParamExpression<T> param, T value) {
         return queryMixin.set(param, value);
     }
 
+    /**
+     * Return the query results as an <tt>Iterator</tt>. The iterator should be closed after 
+     * usage to release the cursor.
+     */
     @Override
     public CloseableIterator<K> iterate() {
-        final DBCursor cursor = createCursor();
-        return new CloseableIterator<K>() {
+        return iterate(null, transformer);
+    }
+
+    /**
+     * Return the query results with only the given paths populated as an <tt>Iterator</tt>. 
+     * The iterator should be closed after usage to release the cursor.
+     * 
+     * @param paths paths to be fetched
+     * @return
+     */
+    public CloseableIterator<K> iterate(Path<?>... paths) {
+        return iterate(createFields(paths), transformer);
+    }
+
+    /**
+     * Return the projection as an <tt>Iterator</tt>. Only the fields of the arguments of 
+     * the projection are fetched. The iterator should be closed after usage to release the 
+     * cursor.
+     * 
+     * @param <RT>
+     * @param projection factory expression of paths, e.g. a QBean or a constructor projection 
+     * @return
+     */
+    public <RT> CloseableIterator<RT> iterate(FactoryExpression<RT> projection) {
+        return iterate(createFields(projection), createTransformer(projection));
+    }
+
+    private <RT> CloseableIterator<RT> iterate(@Nullable DBObject fields, final Function<DBObject, RT> transformer) {
+        final DBCursor cursor;
+        try {
+            cursor = createCursor(fields);
+        } catch (NoResults ex) {
+            return new EmptyCloseableIterator<RT>();
+        }
+        return new CloseableIterator<RT>() {
             @Override
             public boolean hasNext() {
                 return cursor.hasNext();
             }
 
             @Override
-            public K next() {
+            public RT next() {
                 return transformer.apply(cursor.next());
             }
 
             @Override
             public void remove() {
+                throw new UnsupportedOperationException();
             }
 
             @Override
             public void close() {
+                cursor.close();
             }
         };
     }
@@ -217,27 +443,139 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
 
     @Override
     public List<K> list() {
+        return list(null, transformer);
+    }
+
+    /**
+     * Return the query results with only the given paths populated
+     * 
+     * @param paths paths to be fetched
+     * @return
+     */
+    public List<K> list(Path<?>... paths) {
+        return list(createFields(paths), transformer);
+    }
+
+    /**
+     * Return the projection. Only the fields of the arguments of the projection are fetched.
+     * 
+     * @param <RT>
+     * @param projection factory expression of paths, e.g. a QBean or a constructor projection 
+     * @return
+     */
+    public <RT> List<RT> list(FactoryExpression<RT> projection) {
+        return list(createFields(projection), createTransformer(projection));
+    }
+
+    private <RT> List<RT> list(@Nullable DBObject fields, Function<DBObject, RT> transformer) {
         try {
-            DBCursor cursor = createCursor();
-            List<K> results = new ArrayList<K>(cursor.size());
-            for (DBObject dbObject : cursor) {
-                results.add(transformer.apply(dbObject));
+            DBCursor cursor = createCursor(fields);
+            try {
+                // sized by iteration, cursor.size() would need an extra count round trip
+                List<RT> results = new ArrayList<RT>();
+                while (cursor.hasNext()) {
+                    results.add(transformer.apply(cursor.next()));
+                }
+                return results;
+            } finally {
+                cursor.close();
             }
-            return results;    
         } catch (NoResults ex) {
             return Collections.emptyList();
-        }        
+        }
     }
-    
+
+    private DBObject createFields(Path<?>... paths) {
+        BasicDBObject fields = new BasicDBObject();
+        for (Path<?> path : paths) {
+            fields.put(serializer.handle(path).toString(), 1);
+        }
+        return fields;
+    }
+
+    private DBObject createFields(FactoryExpression<?> projection) {
+        BasicDBObject fields = new BasicDBObject();
+        for (Expression<?> arg : projection.getArgs()) {
+            fields.put(toKey(arg), 1);
+        }
+        return fields;
+    }
+
+    private String toKey(Expression<?> expr) {
+        if (expr instanceof Path<?>) {
+            return serializer.handle(expr).toString();
+        } else {
+            throw new IllegalArgumentException("Unsupported projection argument " + expr);
+        }
+    }
+
+    private <RT> Function<DBObject, RT> createTransformer(final FactoryExpression<RT> projection) {
+        final List<Expression<?>> args = projection.getArgs();
+        final String[] keys = new String[args.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = toKey(args.get(i));
+        }
+        return new Function<DBObject, RT>() {
+            @Override
+            public RT apply(DBObject dbObject) {
+                Object[] values = new Object[keys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    values[i] = getValue(dbObject, keys[i], args.get(i).getType());
+                }
+                return projection.newInstance(values);
+            }
+        };
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Nullable
+    private static Object getValue(DBObject dbObject, String key, Class<?> type) {
+        Object value = dbObject;
+        for (String segment : key.split("\\.")) {
+            if (value instanceof DBObject) {
+                value = ((DBObject)value).get(segment);
+            } else {
+                return null;
+            }
+        }
+        if (value instanceof String && type.isEnum()) {
+            return Enum.valueOf((Class)type, (String)value);
+        } else {
+            return value;
+        }
+    }
+
     protected DBCursor createCursor() {
         QueryMetadata metadata = queryMixin.getMetadata();
         Predicate filter = createFilter(metadata);
-        return createCursor(collection, filter, metadata.getModifiers(), metadata.getOrderBy());     
+        return createCursor(collection, filter, metadata.getModifiers(), metadata.getOrderBy());
+    }
+
+    /**
+     * Create a cursor which fetches only the given fields, cursors for all fields are
+     * created via {@link #createCursor()}
+     *
+     * @param fields fields to be fetched or null for all fields
+     * @return
+     */
+    protected DBCursor createCursor(@Nullable DBObject fields) {
+        if (fields == null) {
+            return createCursor();
+        }
+        QueryMetadata metadata = queryMixin.getMetadata();
+        Predicate filter = createFilter(metadata);
+        return createCursor(collection, filter, fields, metadata.getModifiers(), metadata.getOrderBy());
     }
 
     protected DBCursor createCursor(DBCollection collection, @Nullable Predicate where, QueryModifiers modifiers,
             List<OrderSpecifier<?>> orderBy) {
-        DBCursor cursor = collection.find(createQuery(where));
+        return createCursor(collection, where, null, modifiers, orderBy);
+    }
+
+    protected DBCursor createCursor(DBCollection collection, @Nullable Predicate where, @Nullable DBObject fields,
+            QueryModifiers modifiers, List<OrderSpecifier<?>> orderBy) {
+        DBObject query = createQuery(where);
+        DBCursor cursor = fields != null ? collection.find(query, fields) : collection.find(query);
         if (modifiers.getLimit() != null){
             cursor.limit(modifiers.getLimit().intValue());
         }
@@ -247,6 +585,9 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
         if (orderBy.size() > 0) {
             cursor.sort(serializer.toSort(orderBy));
         }
+        if (batchSize > 0) {
+            cursor.batchSize(batchSize);
+        }
         return cursor;
     }
 
@@ -257,52 +598,103 @@ public abstract class MongodbQuery<K> implements SimpleQuery<MongodbQuery<K>>, S
 
     @Override
     public K singleResult() {
+        return singleResult((DBObject)null);
+    }
+
+    /**
+     * Return the first result with only the given paths populated
+     * 
+     * @param paths paths to be fetched
+     * @return
+     */
+    public K singleResult(Path<?>... paths) {
+        return singleResult(createFields(paths));
+    }
+
+    private K singleResult(@Nullable DBObject fields) {
         try {
-            DBCursor c = createCursor().limit(1);
-            if (c.hasNext()){
-                return transformer.apply(c.next());
-            } else {
-                return null;
-            }    
+            DBCursor c = createCursor(fields).limit(1);
+            try {
+                if (c.hasNext()){
+                    return transformer.apply(c.next());
+                } else {
+                    return null;
+                }
+            } finally {
+                c.close();
+            }
         } catch (NoResults ex) {
             return null;
-        }        
+        }
     }
 
     @Override
     public K uniqueResult() {
+        return uniqueResult((DBObject)null);
+    }
+
+    /**
+     * Return the unique result with only the given paths populated
+     * 
+     * @param paths paths to be fetched
+     * @return
+     */
+    public K uniqueResult(Path<?>... paths) {
+        return uniqueResult(createFields(paths));
+    }
+
+    private K uniqueResult(@Nullable DBObject fields) {
         try {
             Long limit = queryMixin.getMetadata().getModifiers().getLimit();
             if (limit == null){
                 limit = 2l;
             }
-            DBCursor c = createCursor().limit(limit.intValue());
-            if (c.hasNext()){
-                K rv = transformer.apply(c.next());
+            DBCursor c = createCursor(fields).limit(limit.intValue());
+            try {
                 if (c.hasNext()){
-                    throw new NonUniqueResultException();
+                    K rv = transformer.apply(c.next());
+                    if (c.hasNext()){
+                        throw new NonUniqueResultException();
+                    }
+                    return rv;
+                } else {
+                    return null;
                 }
-                return rv;
-            } else {
-                return null;
-            }    
+            } finally {
+                c.close();
+            }
         } catch (NoResults ex) {
             return null;
-        }        
+        }
     }
 
     @Override
     public SearchResults<K> listResults() {
+        return listResults((DBObject)null);
+    }
+
+    /**
+     * Return the current page with only the given paths populated and the total amount 
+     * of results
+     * 
+     * @param paths paths to be fetched
+     * @return
+     */
+    public SearchResults<K> listResults(Path<?>... paths) {
+        return listResults(createFields(paths));
+    }
+
+    private SearchResults<K> listResults(@Nullable DBObject fields) {
         try {
             long total = count();
             if (total > 0l){
-                return new SearchResults<K>(list(), queryMixin.getMetadata().getModifiers(), total);
+                return new SearchResults<K>(list(fields, transformer), queryMixin.getMetadata().getModifiers(), total);
             } else {
                 return SearchResults.emptyResults();
-            }    
+            }
         } catch (NoResults ex) {
             return SearchResults.emptyResults();
-        }        
+        }
     }
 
     @Override
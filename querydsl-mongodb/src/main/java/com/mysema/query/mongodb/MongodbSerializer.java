@@ -14,9 +14,14 @@
 package com.mysema.query.mongodb;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 import org.bson.BSONObject;
 import org.bson.types.ObjectId;
 
@@ -35,6 +40,26 @@ public class MongodbSerializer implements Visitor<Object, Void> {
 
     public static final MongodbSerializer DEFAULT = new MongodbSerializer();
 
+    private final Map<String, String> lowerCaseKeys;
+
+    private final boolean prefixRanges;
+
+    public MongodbSerializer() {
+        this(Collections.<String,String>emptyMap(), false);
+    }
+
+    /**
+     * Create a new MongodbSerializer instance
+     * 
+     * @param lowerCaseKeys mapping from document keys to the keys of shadow fields holding the 
+     *        values lower cased with <code>toLowerCase(Locale.ENGLISH)</code>
+     * @param prefixRanges true, to serialize prefix matches as ranges instead of anchored regexes
+     */
+    public MongodbSerializer(Map<String, String> lowerCaseKeys, boolean prefixRanges) {
+        this.lowerCaseKeys = lowerCaseKeys;
+        this.prefixRanges = prefixRanges;
+    }
+
     public Object handle(Expression<?> expression) {
         return expression.accept(this, null);
     }
@@ -83,9 +108,81 @@ public class MongodbSerializer implements Visitor<Object, Void> {
         return new BasicDBObject(key, value);
     }
 
+    /**
+     * Get the key of the lower cased shadow field of the given path
+     * 
+     * @param expr path
+     * @param key document key of the path
+     * @return shadow field key or null, if the path has no shadow field
+     */
+    @Nullable
+    protected String getLowerCaseKey(Path<?> expr, String key) {
+        return lowerCaseKeys.get(key);
+    }
+
+    @Nullable
+    private String getLowerCaseKey(Operation<?> expr) {
+        if (expr.getArg(0) instanceof Path<?>) {
+            return getLowerCaseKey((Path<?>)expr.getArg(0), asDBKey(expr, 0));
+        } else {
+            return null;
+        }
+    }
+
+    private String lowerCaseValue(Operation<?> expr, int index) {
+        return asDBValue(expr, index).toString().toLowerCase(Locale.ENGLISH);
+    }
+
+    private DBObject prefix(String key, String prefix) {
+        if (prefixRanges) {
+            BasicDBObject range = new BasicDBObject("$gte", prefix);
+            String upper = successor(prefix);
+            if (upper != null) {
+                range.append("$lt", upper);
+            }
+            return asDBObject(key, range);
+        } else {
+            return asDBObject(key, Pattern.compile("^" + Pattern.quote(prefix)));
+        }
+    }
+
+    /**
+     * Get the smallest string which is greater than all strings starting with the given prefix
+     */
+    @Nullable
+    private static String successor(String prefix) {
+        StringBuilder builder = new StringBuilder(prefix);
+        for (int i = builder.length() - 1; i >= 0; i--) {
+            char c = builder.charAt(i);
+            if (c < Character.MAX_VALUE) {
+                builder.setCharAt(i, (char)(c + 1));
+                builder.setLength(i + 1);
+                return builder.toString();
+            }
+        }
+        return null;
+    }
+
     @Override
     public Object visit(Operation<?> expr, Void context) {
         Operator<?> op = expr.getOperator();
+        if (op == Ops.EQ_IGNORE_CASE || op == Ops.STARTS_WITH_IC 
+         || op == Ops.ENDS_WITH_IC || op == Ops.STRING_CONTAINS_IC) {
+            String key = getLowerCaseKey(expr);
+            if (key != null) {
+                String value = lowerCaseValue(expr, 1);
+                if (op == Ops.EQ_IGNORE_CASE) {
+                    return asDBObject(key, value);
+                } else if (op == Ops.STARTS_WITH_IC) {
+                    return prefix(key, value);
+                } else if (op == Ops.ENDS_WITH_IC) {
+                    return asDBObject(key, Pattern.compile(Pattern.quote(value) + "$"));
+                } else {
+                    return asDBObject(key, Pattern.compile(".*" + Pattern.quote(value) + ".*"));
+                }
+            }
+        }
+
         if (op == Ops.EQ_OBJECT || op == Ops.EQ_PRIMITIVE ) {
             return asDBObject(asDBKey(expr, 0), asDBValue(expr, 1));
 
@@ -106,12 +203,14 @@ public class MongodbSerializer implements Visitor<Object, Void> {
             //Only support the first key, let's see if there
             //is cases where this will get broken
             String key = arg.keySet().iterator().next();
+            Object value = arg.get(key);
 
             Operator<?> subOp = ((Operation<?>) expr.getArg(0)).getOperator();
-            if (subOp != Ops.EQ_OBJECT && subOp != Ops.EQ_PRIMITIVE && subOp != Ops.STRING_IS_EMPTY){
-                return asDBObject(key, asDBObject("$not", arg.get(key)));
+            if (subOp != Ops.EQ_OBJECT && subOp != Ops.EQ_PRIMITIVE && subOp != Ops.STRING_IS_EMPTY
+                    && (value instanceof DBObject || value instanceof Pattern)){
+                return asDBObject(key, asDBObject("$not", value));
             } else {
-                return asDBObject(key, asDBObject("$ne", arg.get(key)));
+                return asDBObject(key, asDBObject("$ne", value));
             }
         }
 
@@ -127,8 +226,7 @@ public class MongodbSerializer implements Visitor<Object, Void> {
         }
 
         else if (op == Ops.STARTS_WITH) {
-            return asDBObject(asDBKey(expr, 0), 
-                    Pattern.compile("^" + regexValue(expr, 1)));
+            return prefix(asDBKey(expr, 0), asDBValue(expr, 1).toString());
         }
 
         else if (op == Ops.STARTS_WITH_IC) {
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012, Mysema Ltd
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mysema.query.mongodb.morphia;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * LowerCaseField declares a sibling field which holds the lower cased value of the annotated 
+ * field. Case insensitive predicates of the annotated field are serialized as case sensitive 
+ * predicates of the shadow field, which can be served by an index.
+ * 
+ * <p>The shadow field needs to be populated by the application with 
+ * <code>value.toLowerCase(Locale.ENGLISH)</code>, e.g. in a <code>@PrePersist</code> method.</p>
+ *
+ * @author tiwe
+ *
+ */
+@Documented
+@Target(FIELD)
+@Retention(RUNTIME)
+public @interface LowerCaseField {
+
+    /**
+     * @return name of the shadow field
+     */
+    String value();
+}
@@ -13,6 +13,8 @@
  */
 package com.mysema.query.mongodb.morphia;
 
+import javax.annotation.Nullable;
+
 import com.google.code.morphia.Datastore;
 import com.google.code.morphia.Morphia;
 import com.google.code.morphia.mapping.cache.DefaultEntityCache;
@@ -54,9 +56,9 @@ public class MorphiaQuery<K> extends MongodbQuery<K> {
     }
 
     @Override
-    protected DBCursor createCursor() {
+    protected DBCursor createCursor(@Nullable DBObject fields) {
         cache.flush();
-        return super.createCursor();
+        return super.createCursor(fields);
     }
 
     @Override
@@ -13,6 +13,11 @@
  */
 package com.mysema.query.mongodb.morphia;
 
+import java.util.Collections;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
 import com.google.code.morphia.annotations.Property;
 import com.mysema.query.mongodb.MongodbSerializer;
 import com.mysema.query.types.Path;
@@ -20,7 +25,8 @@ import com.mysema.query.types.PathMetadata;
 import com.mysema.query.types.PathType;
 
 /**
- * MorphiaSerializer extends MongodbSerializer with Morphia specific annotation handling
+ * MorphiaSerializer extends MongodbSerializer with Morphia specific annotation handling. 
+ * Shadow fields for case insensitive predicates can be declared via {@link LowerCaseField}.
  *
  * @author tiwe
  *
@@ -29,6 +35,14 @@ public class MorphiaSerializer extends MongodbSerializer{
 
     public static final MorphiaSerializer DEFAULT = new MorphiaSerializer();
 
+    public MorphiaSerializer() {
+        this(Collections.<String,String>emptyMap(), false);
+    }
+
+    public MorphiaSerializer(Map<String, String> lowerCaseKeys, boolean prefixRanges) {
+        super(lowerCaseKeys, prefixRanges);
+    }
+
     @Override
     protected String getKeyForPath(Path<?> expr, PathMetadata<?> metadata) {
         if (metadata.getPathType() == PathType.PROPERTY && expr.getAnnotatedElement().isAnnotationPresent(Property.class)){
@@ -38,4 +52,17 @@ public class MorphiaSerializer extends MongodbSerializer{
         }
     }
 
+    @Override
+    @Nullable
+    protected String getLowerCaseKey(Path<?> expr, String key) {
+        if (expr.getMetadata().getPathType() == PathType.PROPERTY 
+                && expr.getAnnotatedElement().isAnnotationPresent(LowerCaseField.class)) {
+            String field = expr.getAnnotatedElement().getAnnotation(LowerCaseField.class).value();
+            int index = key.lastIndexOf('.');
+            return index > -1 ? key.substring(0, index + 1) + field : field;
+        } else {
+            return super.getLowerCaseKey(expr, key);
+        }
+    }
+
 }
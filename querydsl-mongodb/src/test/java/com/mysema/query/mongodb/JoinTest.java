@@ -6,6 +6,8 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.net.UnknownHostException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -14,6 +16,7 @@ import com.google.code.morphia.Datastore;
 import com.google.code.morphia.Morphia;
 import com.mongodb.Mongo;
 import com.mongodb.MongoException;
+import com.mysema.query.QueryException;
 import com.mysema.query.mongodb.domain.Item;
 import com.mysema.query.mongodb.domain.QUser;
 import com.mysema.query.mongodb.domain.User;
@@ -115,6 +118,66 @@ public class JoinTest {
                 .singleResult().getFirstName());
     }
     
+    @Test
+    public void Double_Concurrent() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertEquals("Mike", where()
+                    .join(user.friend(), friend).on(friend.firstName.eq("Mary"))
+                    .join(user.enemy(), enemy).on(enemy.firstName.eq("Ann"))
+                    .setJoinExecutor(executor)
+                    .singleResult().getFirstName());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test(timeout=10000)
+    public void Deep_Concurrent() {
+        QUser enemy2 = new QUser("enemy2");
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            assertEquals(0, where()
+                    .join(user.friend(), friend).on(friend.firstName.isNotNull())
+                    .join(friend.friend(), friend2).on(friend2.firstName.isNotNull())
+                    .join(friend.enemy(), enemy).on(enemy.firstName.isNotNull())
+                    .join(user.enemy(), enemy2).on(enemy2.firstName.isNotNull())
+                    .setJoinExecutor(executor)
+                    .count());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void Deep_Chunked() {
+        // Mary -> Jane -> Max, Mike -> Mary -> Jane
+        assertEquals(2, where()
+                .join(user.friend(), friend).on(friend.firstName.isNotNull())
+                .join(friend.friend(), friend2).on(friend2.firstName.in("Jane", "Max", "Bob"))
+                .setJoinChunkSize(2)
+                .count());
+    }
+
+    @Test
+    public void Deep_Chunked_Constraints() {
+        // Mary -> Jane -> Max, Mike -> Mary -> Jane
+        QUser friend3 = new QUser("friend3");
+        assertEquals(2, where()
+                .join(user.friend(), friend).on(friend.firstName.isNotNull())
+                .join(friend.friend(), friend2).on(friend2.firstName.isNotNull())
+                .join(friend.friend(), friend3).on(friend3.firstName.in("Jane", "Max", "Bob"))
+                .setJoinChunkSize(2)
+                .count());
+    }
+
+    @Test(expected=QueryException.class)
+    public void Max_Join_Ids() {
+        where().join(user.friend(), friend).on(friend.firstName.isNotNull())
+            .setMaxJoinIds(1)
+            .count();
+    }
+
     private MongodbQuery<User> query() {
         return new MorphiaQuery<User>(morphia, ds, user);
     }
@@ -36,8 +36,10 @@ import com.google.code.morphia.Datastore;
 import com.google.code.morphia.Morphia;
 import com.mongodb.Mongo;
 import com.mongodb.MongoException;
+import com.mysema.commons.lang.CloseableIterator;
 import com.mysema.query.NonUniqueResultException;
 import com.mysema.query.SearchResults;
+import com.mysema.query.Tuple;
 import com.mysema.query.mongodb.domain.Address;
 import com.mysema.query.mongodb.domain.City;
 import com.mysema.query.mongodb.domain.Item;
@@ -50,6 +52,7 @@ import com.mysema.query.mongodb.morphia.MorphiaQuery;
 import com.mysema.query.types.EntityPath;
 import com.mysema.query.types.OrderSpecifier;
 import com.mysema.query.types.Predicate;
+import com.mysema.query.types.QTuple;
 import com.mysema.query.types.path.StringPath;
 
 public class MongodbQueryTest {
@@ -294,6 +297,45 @@ public class MongodbQueryTest {
 
     }
 
+    @Test
+    public void Iterate_Close() {
+        CloseableIterator<User> i = query().orderBy(user.age.asc()).setBatchSize(1).iterate();
+        try {
+            assertEquals(u1, i.next());
+            assertEquals(u2, i.next());
+        } finally {
+            i.close();
+        }
+    }
+
+    @Test
+    public void List_Paths() {
+        List<User> users = query().orderBy(user.age.asc()).list(user.firstName, user.age);
+        assertEquals(4, users.size());
+        assertEquals("Jaakko", users.get(0).getFirstName());
+        assertEquals(20, users.get(0).getAge());
+        assertNull(users.get(0).getLastName());
+        assertEquals(u1.getId(), users.get(0).getId());
+    }
+
+    @Test
+    public void UniqueResult_Paths() {
+        User u = where(user.firstName.eq("Jaakko")).uniqueResult(user.lastName);
+        assertEquals("Jantunen", u.getLastName());
+        assertNull(u.getFirstName());
+    }
+
+    @Test
+    public void List_Tuple_Projection() {
+        List<Tuple> tuples = query().orderBy(user.age.asc()).limit(2)
+                .list(new QTuple(user.firstName, user.mainAddress().city().name, user.gender));
+        assertEquals(2, tuples.size());
+        assertEquals("Jaakko", tuples.get(0).get(user.firstName));
+        assertEquals("Helsinki", tuples.get(0).get(user.mainAddress().city().name));
+        assertEquals(Gender.MALE, tuples.get(0).get(user.gender));
+        assertEquals("Jaakki", tuples.get(1).get(user.firstName));
+    }
+
     @Test
     public void UniqueResultAndLimitAndOffset() {
         MongodbQuery<User> q = query().where(user.firstName.startsWith("Ja")).orderBy(user.age.asc());
@@ -17,6 +17,7 @@ import static junit.framework.Assert.assertEquals;
 
 import java.sql.Timestamp;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -203,6 +204,45 @@ public class MongodbSerializerTest {
     }
 
 
+    @Test
+    public void LowerCase_Shadow_Field() {
+        serializer = new MongodbSerializer(Collections.singletonMap("title", "titleLower"), false);
+
+        assertQuery(title.equalsIgnoreCase("AbC"), dbo("titleLower", "abc"));
+        assertQuery(title.equalsIgnoreCase("AbC").not(), dbo("titleLower", dbo("$ne", "abc")));
+        assertQuery(title.startsWithIgnoreCase("AB"),
+                dbo("titleLower", dbo("$regex", "^\\Qab\\E").append("$options", "")));
+        assertQuery(title.endsWithIgnoreCase("AB"),
+                dbo("titleLower", dbo("$regex", "\\Qab\\E$").append("$options", "")));
+        assertQuery(title.containsIgnoreCase("AB"),
+                dbo("titleLower", dbo("$regex", ".*\\Qab\\E.*").append("$options", "")));
+
+        // case sensitive predicates use the original field
+        assertQuery(title.eq("AbC"), dbo("title", "AbC"));
+        assertQuery(year.eq(1).and(title.equalsIgnoreCase("A")),
+                dbo("year", 1).append("titleLower", "a"));
+    }
+
+    @Test
+    public void LowerCase_Shadow_Field_Annotation() {
+        QUser user = QUser.user;
+        assertQuery(user.firstName.equalsIgnoreCase("JaakKo"), dbo("firstNameLower", "jaakko"));
+        assertQuery(user.mainAddress().street.equalsIgnoreCase("Aakatu"),
+                dbo("mainAddress.street", dbo("$regex", "^\\QAakatu\\E$").append("$options", "i")));
+    }
+
+    @Test
+    public void Prefix_Ranges() {
+        serializer = new MongodbSerializer(Collections.singletonMap("title", "titleLower"), true);
+
+        assertQuery(title.startsWith("ab"), dbo("title", dbo("$gte", "ab").append("$lt", "ac")));
+        assertQuery(title.startsWithIgnoreCase("AB"),
+                dbo("titleLower", dbo("$gte", "ab").append("$lt", "ac")));
+        assertQuery(title.startsWith("a\uffff"), dbo("title", dbo("$gte", "a\uffff").append("$lt", "b")));
+        assertQuery(title.startsWith("ab").not(),
+                dbo("title", dbo("$not", dbo("$gte", "ab").append("$lt", "ac"))));
+    }
+
     private List<OrderSpecifier<?>> sortList(OrderSpecifier<?> ... order) {
         return Arrays.asList(order);
     }
@@ -16,13 +16,16 @@ package com.mysema.query.mongodb.domain;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 import org.bson.types.ObjectId;
 
 import com.google.code.morphia.annotations.Embedded;
 import com.google.code.morphia.annotations.Entity;
 import com.google.code.morphia.annotations.Id;
+import com.google.code.morphia.annotations.PrePersist;
 import com.google.code.morphia.annotations.Reference;
+import com.mysema.query.mongodb.morphia.LowerCaseField;
 
 @Entity
 public class User {
@@ -31,8 +34,11 @@ public class User {
     
     private @Id ObjectId id;
     
+    @LowerCaseField("firstNameLower")
     private String firstName;
     
+    private String firstNameLower;
+    
     private String lastName;
     
     private Date created;
@@ -73,6 +79,11 @@ public class User {
         this.firstName = firstName; this.lastName = lastName; this.age = age; this.created = created;
     }
 
+    @PrePersist
+    public void prePersist() {
+        firstNameLower = firstName != null ? firstName.toLowerCase(Locale.ENGLISH) : null;
+    }
+
     @Override
     public String toString() {
         return "TestUser [id=" + id + ", firstName=" + firstName + ", lastName=" + lastName
@@ -30,10 +30,12 @@ import org.slf4j.LoggerFactory;
 import com.mysema.commons.lang.Assert;
 import com.mysema.commons.lang.CloseableIterator;
 import com.mysema.commons.lang.IteratorAdapter;
+import com.mysema.query.BoundQueryMetadata;
 import com.mysema.query.DefaultQueryMetadata;
 import com.mysema.query.JoinExpression;
 import com.mysema.query.JoinFlag;
 import com.mysema.query.JoinType;
+import com.mysema.query.PreparedQuery;
 import com.mysema.query.Query;
 import com.mysema.query.QueryException;
 import com.mysema.query.QueryFlag;
@@ -158,14 +160,32 @@ public abstract class AbstractSQLQuery<Q extends AbstractSQLQuery<Q> & Query> ex
     }
 
     protected String buildQueryString(boolean forCountRow) {
+        QueryMetadata metadata = queryMixin.getMetadata();
+        PreparedQuery preparedQuery = null;
+        Object cacheKey = null;
+        if (union == null && metadata instanceof BoundQueryMetadata) {
+            BoundQueryMetadata bound = (BoundQueryMetadata)metadata;
+            preparedQuery = bound.getPreparedQuery();
+            cacheKey = bound.getCacheKey(getClass(), configuration.getTemplates(), forCountRow, 
+                    metadata.getModifiers());
+            SerializedQuery cached = preparedQuery.getCachedForm(cacheKey);
+            if (cached != null) {
+                constants = cached.constants;
+                constantPaths = cached.constantPaths;
+                return cached.queryString;
+            }
+        }
         SQLSerializer serializer = createSerializer();
         if (union != null) {
-            serializer.serializeUnion(union, queryMixin.getMetadata(), unionAll);
+            serializer.serializeUnion(union, metadata, unionAll);
         } else {
-            serializer.serialize(queryMixin.getMetadata(), forCountRow);
+            serializer.serialize(metadata, forCountRow);
         }
         constants = serializer.getConstants();
         constantPaths = serializer.getConstantPaths();
+        if (preparedQuery != null) {
+            preparedQuery.cacheForm(cacheKey, new SerializedQuery(serializer.toString(), constants, constantPaths));
+        }
         return serializer.toString();
     }
 
@@ -346,6 +366,10 @@ public abstract class AbstractSQLQuery<Q extends AbstractSQLQuery<Q> & Query> ex
         return configuration;
     }
 
+    protected Connection getConnection() {
+        return conn;
+    }
+
     @Override
     public CloseableIterator<Object[]> iterate(Expression<?>[] args) {     
         queryMixin.addToProjection(args);
@@ -624,4 +648,20 @@ public abstract class AbstractSQLQuery<Q extends AbstractSQLQuery<Q> & Query> ex
         }
     }
 
+    private static final class SerializedQuery {
+
+        private final String queryString;
+
+        private final List<Object> constants;
+
+        private final List<Path<?>> constantPaths;
+
+        SerializedQuery(String queryString, List<Object> constants, List<Path<?>> constantPaths) {
+            this.queryString = queryString;
+            this.constants = constants;
+            this.constantPaths = constantPaths;
+        }
+
+    }
+
 }
@@ -17,13 +17,14 @@ import java.sql.Connection;
 
 import com.mysema.query.DefaultQueryMetadata;
 import com.mysema.query.QueryMetadata;
+import com.mysema.query.group.AggregatingProjectable;
 
 /**
  * SQLQueryImpl is a JDBC based implementation of the Querydsl SQLQuery interface
  *
  * @author tiwe
  */
-public class SQLQueryImpl extends AbstractSQLQuery<SQLQueryImpl> implements SQLQuery {
+public class SQLQueryImpl extends AbstractSQLQuery<SQLQueryImpl> implements SQLQuery, AggregatingProjectable {
 
     /**
      * Create a detached SQLQueryImpl instance
@@ -91,4 +92,12 @@ public class SQLQueryImpl extends AbstractSQLQuery<SQLQueryImpl> implements SQLQ
         return q;
     }
 
+    /**
+     * Clone the state of this query to a new SQLQueryImpl instance with the same Connection
+     */
+    @Override
+    public SQLQueryImpl clone() {
+        return clone(getConnection());
+    }
+
 }